@@ -1,6 +1,9 @@
 package org.junit.contrib.java.lang.system;
 
+import static org.junit.contrib.java.lang.system.internal.ThreadLocalProperties.openOverlay;
+
 import org.junit.contrib.java.lang.system.internal.RestoreSpecificSystemProperties;
+import org.junit.contrib.java.lang.system.internal.ThreadLocalProperties.Overlay;
 import org.junit.rules.ExternalResource;
 
 /**
@@ -49,6 +52,8 @@ import org.junit.rules.ExternalResource;
 public class ClearSystemProperties extends ExternalResource {
 	private final RestoreSpecificSystemProperties restoreSystemProperty = new RestoreSpecificSystemProperties();
 	private final String[] properties;
+	private boolean isolatedPerThread = false;
+	private Overlay overlay;
 
 	/**
 	 * Creates a {@code ClearSystemProperties} rule that clears the specified
@@ -96,14 +101,34 @@ public class ClearSystemProperties extends ExternalResource {
 		System.clearProperty(property);
 	}
 
+	/**
+	 * Clears the properties for the test's thread (and for threads that are
+	 * created by it) only. Other tests that run in parallel still see the
+	 * properties.
+	 *
+	 * @return the rule itself.
+	 * @see RestoreSystemProperties#isolatedPerThread()
+	 */
+	public ClearSystemProperties isolatedPerThread() {
+		isolatedPerThread = true;
+		return this;
+	}
+
 	@Override
 	protected void before() throws Throwable {
+		if (isolatedPerThread)
+			overlay = openOverlay();
 		clearProperties();
 	}
 
 	@Override
 	protected void after() {
-		restoreOriginalValue();
+		if (overlay == null)
+			restoreOriginalValue();
+		else {
+			overlay.close();
+			overlay = null;
+		}
 	}
 
 	private void clearProperties() {
@@ -0,0 +1,207 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.nio.charset.Charset.defaultCharset;
+import static org.junit.contrib.java.lang.system.TextFromStandardInputStream.emptyStandardInputStream;
+import static org.junit.contrib.java.lang.system.internal.PrintStreamHandler.SYSTEM_OUT;
+
+import java.util.regex.Pattern;
+
+import org.junit.contrib.java.lang.system.internal.OutputMatcher;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * The {@code ConsoleDialogue} rule lets a test have a dialogue with an
+ * interactive program. The test waits until the program writes a prompt to
+ * {@code System.out} and sends the answer to {@code System.in} afterwards.
+ * The program under test has to run in another thread.
+ *
+ * <pre>
+ *   public class MyTest {
+ *     &#064;Rule
+ *     public final ConsoleDialogue dialogue = new ConsoleDialogue();
+ *
+ *     &#064;Test
+ *     public void greetsUser() {
+ *       new Thread(new Greeter()).start();
+ *       dialogue.expect("Name: ")
+ *         .send("Alice")
+ *         .expect(Pattern.compile("Hello,? Alice"));
+ *     }
+ *   }
+ * </pre>
+ *
+ * <p>{@code expect} returns as soon as the expected text has been written.
+ * It fails with an {@code AssertionError} if the text has not been written
+ * within the timeout. Every {@code expect} looks at the output after the
+ * text that has been matched by the previous {@code expect}. The output is
+ * not written to the original {@code System.out}. It is available by
+ * {@link #getOutput()}.
+ *
+ * <p>{@code System.in} behaves like the {@link InteractiveInput} of
+ * {@link TextFromStandardInputStream}: reads block until an answer is sent.
+ * {@link #closeInput()} ends the input.
+ */
+public class ConsoleDialogue implements TestRule {
+	private static final long DEFAULT_TIMEOUT = 10000;
+	private static final int INPUT_BUFFER_SIZE = 8192;
+
+	private final TextFromStandardInputStream systemInMock
+		= emptyStandardInputStream();
+	private final long timeoutMillis;
+	private InteractiveInput input;
+	private OutputMatcher output;
+
+	/**
+	 * Creates a {@code ConsoleDialogue} that waits 10 seconds for output and
+	 * input.
+	 */
+	public ConsoleDialogue() {
+		this(DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Creates a {@code ConsoleDialogue}.
+	 *
+	 * @param timeoutMillis the default time in milliseconds that the test
+	 * waits for output and that the program waits for input.
+	 */
+	public ConsoleDialogue(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Waits until the text is written to {@code System.out}.
+	 *
+	 * @param text the expected text.
+	 * @return the rule itself.
+	 * @throws AssertionError if the text is not written within the timeout.
+	 */
+	public ConsoleDialogue expect(String text) {
+		return expect(text, timeoutMillis);
+	}
+
+	/**
+	 * Waits until the text is written to {@code System.out}.
+	 *
+	 * @param text the expected text.
+	 * @param timeoutMillis the maximal time in milliseconds to wait.
+	 * @return the rule itself.
+	 * @throws AssertionError if the text is not written within the timeout.
+	 */
+	public ConsoleDialogue expect(String text, long timeoutMillis) {
+		try {
+			if (!output.awaitText(text, timeoutMillis))
+				failExpectation("\"" + text + "\"", timeoutMillis);
+		} catch (InterruptedException e) {
+			throw interrupted(e);
+		}
+		return this;
+	}
+
+	/**
+	 * Waits until the pattern matches the text that is written to
+	 * {@code System.out}.
+	 *
+	 * @param pattern the expected pattern.
+	 * @return the rule itself.
+	 * @throws AssertionError if no matching text is written within the
+	 * timeout.
+	 */
+	public ConsoleDialogue expect(Pattern pattern) {
+		return expect(pattern, timeoutMillis);
+	}
+
+	/**
+	 * Waits until the pattern matches the text that is written to
+	 * {@code System.out}.
+	 *
+	 * @param pattern the expected pattern.
+	 * @param timeoutMillis the maximal time in milliseconds to wait.
+	 * @return the rule itself.
+	 * @throws AssertionError if no matching text is written within the
+	 * timeout.
+	 */
+	public ConsoleDialogue expect(Pattern pattern, long timeoutMillis) {
+		try {
+			if (!output.awaitPattern(pattern, timeoutMillis))
+				failExpectation("pattern \"" + pattern + "\"", timeoutMillis);
+		} catch (InterruptedException e) {
+			throw interrupted(e);
+		}
+		return this;
+	}
+
+	private void failExpectation(String expectation, long timeoutMillis) {
+		throw new AssertionError("Expected " + expectation + " on System.out"
+			+ " within " + timeoutMillis + " ms but the output was \""
+			+ output.getUnmatchedOutput() + "\".");
+	}
+
+	private RuntimeException interrupted(InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return new RuntimeException(
+			"Interrupted while waiting for System.out.", e);
+	}
+
+	/**
+	 * Sends a line to {@code System.in}.
+	 * {@code System.getProperty("line.separator")} is used for the end of
+	 * the line.
+	 *
+	 * @param line the line.
+	 * @return the rule itself.
+	 * @see InteractiveInput#send(String)
+	 */
+	public ConsoleDialogue send(String line) {
+		input.send(line);
+		return this;
+	}
+
+	/**
+	 * Sends a text to {@code System.in}. No line separator is added.
+	 *
+	 * @param text the text.
+	 * @return the rule itself.
+	 * @see InteractiveInput#sendText(String)
+	 */
+	public ConsoleDialogue sendText(String text) {
+		input.sendText(text);
+		return this;
+	}
+
+	/**
+	 * Closes {@code System.in}. The program reaches the end of the input
+	 * after reading the text that has already been sent.
+	 */
+	public void closeInput() {
+		input.close();
+	}
+
+	/**
+	 * Returns the text that has been written to {@code System.out} during
+	 * the test.
+	 *
+	 * @return the text that has been written to {@code System.out}.
+	 */
+	public String getOutput() {
+		return output.getOutput();
+	}
+
+	public Statement apply(final Statement base, Description description) {
+		final OutputMatcher matcher = new OutputMatcher(
+			SYSTEM_OUT, defaultCharset());
+		Statement dialogue = new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				output = matcher;
+				input = systemInMock.provideInteractiveInput(
+					INPUT_BUFFER_SIZE, timeoutMillis);
+				base.evaluate();
+			}
+		};
+		return systemInMock.apply(matcher.createStatement(dialogue),
+			description);
+	}
+}
@@ -0,0 +1,202 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.System.getProperty;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+
+import org.junit.contrib.java.lang.system.internal.ConsoleNoise;
+import org.junit.contrib.java.lang.system.internal.ConsoleNoise.Noise;
+import org.junit.contrib.java.lang.system.internal.HeavyHitters.Counter;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * The {@code ConsoleNoiseProfiler} is a {@code RunListener} that finds the
+ * tests which write the most text to {@code System.out} and
+ * {@code System.err}. It counts the bytes and lines that each test writes and
+ * the lines that are written most frequently. Text that is muted by a
+ * {@link SystemOutRule} or {@link SystemErrRule} is not counted because it
+ * doesn't reach the console. At the end of the test run the profiler writes a
+ * report with the noisiest test first.
+ *
+ * <p>Add the profiler to Surefire's configuration.
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;artifactId&gt;maven-surefire-plugin&lt;/artifactId&gt;
+ *   &lt;configuration&gt;
+ *     &lt;properties&gt;
+ *       &lt;property&gt;
+ *         &lt;name&gt;listener&lt;/name&gt;
+ *         &lt;value&gt;org.junit.contrib.java.lang.system.ConsoleNoiseProfiler&lt;/value&gt;
+ *       &lt;/property&gt;
+ *     &lt;/properties&gt;
+ *     &lt;systemPropertyVariables&gt;
+ *       &lt;systemrules.consoleNoise.report&gt;target/console-noise.json&lt;/systemrules.consoleNoise.report&gt;
+ *     &lt;/systemPropertyVariables&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ * <p>The profiler is configured by system properties.
+ * <dl>
+ * <dt>{@code systemrules.consoleNoise.report}</dt>
+ * <dd>The report file. The report is written as CSV if the name ends with
+ * {@code .csv} and as JSON otherwise. A CSV report consists of two files: the
+ * report file with the tests and a file with the suffix
+ * {@code -lines.csv} with the frequent lines. Default:
+ * {@code target/console-noise.json}</dd>
+ * <dt>{@code systemrules.consoleNoise.frequentLines}</dt>
+ * <dd>The maximal number of frequent lines that are tracked. The counts are
+ * estimates. Each count exceeds the real count by its {@code error} at most.
+ * Default: {@code 100}</dd>
+ * </dl>
+ *
+ * <p>Output is attributed to the test that started most recently. Please
+ * note that every JVM writes its own report. If Surefire forks a JVM for
+ * each test class then use a different report file for each fork, e.g.
+ * {@code target/console-noise-${surefire.forkNumber}.json}.
+ */
+public class ConsoleNoiseProfiler extends RunListener {
+	private static final String REPORT_PROPERTY = "systemrules.consoleNoise.report";
+	private static final String FREQUENT_LINES_PROPERTY = "systemrules.consoleNoise.frequentLines";
+	private static final String DEFAULT_REPORT = "target/console-noise.json";
+	private static final String DEFAULT_FREQUENT_LINES = "100";
+
+	private final File report;
+	private final ConsoleNoise consoleNoise;
+
+	/**
+	 * Creates a {@code ConsoleNoiseProfiler} that is configured by system
+	 * properties.
+	 */
+	public ConsoleNoiseProfiler() {
+		this(
+			new File(getProperty(REPORT_PROPERTY, DEFAULT_REPORT)),
+			parseInt(getProperty(FREQUENT_LINES_PROPERTY, DEFAULT_FREQUENT_LINES)));
+	}
+
+	/**
+	 * Creates a {@code ConsoleNoiseProfiler}.
+	 *
+	 * @param report the report file.
+	 * @param numberOfFrequentLines the maximal number of frequent lines that
+	 * are tracked.
+	 */
+	public ConsoleNoiseProfiler(File report, int numberOfFrequentLines) {
+		this.report = report;
+		this.consoleNoise = new ConsoleNoise(numberOfFrequentLines);
+	}
+
+	@Override
+	public void testRunStarted(Description description) throws Exception {
+		consoleNoise.startCounting();
+	}
+
+	@Override
+	public void testStarted(Description description) {
+		consoleNoise.testStarted(description.getDisplayName());
+	}
+
+	@Override
+	public void testFinished(Description description) {
+		consoleNoise.testFinished();
+	}
+
+	@Override
+	public void testRunFinished(Result result) throws Exception {
+		consoleNoise.stopCounting();
+		if (report.getName().endsWith(".csv"))
+			writeCsvReport();
+		else
+			writeJsonReport();
+	}
+
+	private void writeCsvReport() throws IOException {
+		PrintWriter tests = createWriter(report);
+		try {
+			tests.println("test,bytes,bytesOut,linesOut,bytesErr,linesErr");
+			for (Noise noise: consoleNoise.getNoiseOfTests())
+				tests.println(csv(noise.getTest()) + "," + noise.getBytes()
+					+ "," + noise.getBytesOut() + "," + noise.getLinesOut()
+					+ "," + noise.getBytesErr() + "," + noise.getLinesErr());
+		} finally {
+			tests.close();
+		}
+		String name = report.getName();
+		File linesReport = new File(report.getParentFile(),
+			name.substring(0, name.length() - ".csv".length()) + "-lines.csv");
+		PrintWriter lines = createWriter(linesReport);
+		try {
+			lines.println("line,count,error");
+			for (Counter line: consoleNoise.getFrequentLines())
+				lines.println(csv(line.getItem()) + "," + line.getCount()
+					+ "," + line.getError());
+		} finally {
+			lines.close();
+		}
+	}
+
+	private void writeJsonReport() throws IOException {
+		PrintWriter writer = createWriter(report);
+		try {
+			writer.println("{");
+			writer.println("  \"tests\": [");
+			List<Noise> tests = consoleNoise.getNoiseOfTests();
+			for (int i = 0; i < tests.size(); ++i) {
+				Noise noise = tests.get(i);
+				writer.print("    {\"test\": " + json(noise.getTest())
+					+ ", \"bytes\": " + noise.getBytes()
+					+ ", \"bytesOut\": " + noise.getBytesOut()
+					+ ", \"linesOut\": " + noise.getLinesOut()
+					+ ", \"bytesErr\": " + noise.getBytesErr()
+					+ ", \"linesErr\": " + noise.getLinesErr() + "}");
+				writer.println(i < tests.size() - 1 ? "," : "");
+			}
+			writer.println("  ],");
+			writer.println("  \"frequentLines\": [");
+			List<Counter> lines = consoleNoise.getFrequentLines();
+			for (int i = 0; i < lines.size(); ++i) {
+				Counter line = lines.get(i);
+				writer.print("    {\"line\": " + json(line.getItem())
+					+ ", \"count\": " + line.getCount()
+					+ ", \"error\": " + line.getError() + "}");
+				writer.println(i < lines.size() - 1 ? "," : "");
+			}
+			writer.println("  ]");
+			writer.println("}");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private PrintWriter createWriter(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create directory " + directory + ".");
+		return new PrintWriter(
+			new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+	}
+
+	private String csv(String text) {
+		return "\"" + text.replace("\"", "\"\"") + "\"";
+	}
+
+	private String json(String text) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c: text.toCharArray())
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c < ' ')
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		return sb.append('"').toString();
+	}
+}
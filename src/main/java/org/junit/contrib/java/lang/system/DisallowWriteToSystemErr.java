@@ -26,12 +26,76 @@ import static org.junit.contrib.java.lang.system.internal.PrintStreamHandler.SYS
  * }
  * </pre>
  *
+ * <h2>Report all writes</h2>
+ * <p>By default the test fails as soon as it writes the first byte. If you
+ * want to find all code that writes to {@code System.err} at once then you
+ * can tell the rule to collect the writes. The text is discarded and the
+ * test fails at the end with a list of all call sites that have written to
+ * {@code System.err}.
+ * <pre>
+ * &#064;Rule
+ * public final DisallowWriteToSystemErr disallowWriteToSystemErr
+ *   = new DisallowWriteToSystemErr().collectViolations();
+ * </pre>
+ *
+ * <h2>Allow writes of some libraries</h2>
+ * <p>Third-party libraries sometimes write banners or warnings to
+ * {@code System.err}. You can allow writes of specific packages or classes.
+ * A write is allowed if the class that calls the JDK's write method belongs
+ * to one of them. The allowed text is still written to {@code System.err}
+ * unless you call {@link #discardAllowedWrites()}.
+ * <pre>
+ * &#064;Rule
+ * public final DisallowWriteToSystemErr disallowWriteToSystemErr
+ *   = new DisallowWriteToSystemErr().allowWritesFrom("org.thirdparty", "com.example.Banner");
+ * </pre> *
  * @see DisallowWriteToSystemOut
  * @since 1.14.0
  */
 public class DisallowWriteToSystemErr implements TestRule {
 	private final DisallowWrite disallowWrite = new DisallowWrite(SYSTEM_ERR);
 
+	/**
+	 * Allows the specified packages and classes to write to
+	 * {@code System.err}. The package {@code org.example} allows all classes
+	 * of {@code org.example} and its sub packages. The class
+	 * {@code org.example.Banner} allows the class and its inner classes.
+	 * Whether a class is allowed is only determined once per class.
+	 *
+	 * @param packagesAndClasses the fully qualified names of the packages
+	 * and classes.
+	 * @return the rule itself.
+	 */
+	public DisallowWriteToSystemErr allowWritesFrom(String... packagesAndClasses) {
+		disallowWrite.allowWritesFrom(packagesAndClasses);
+		return this;
+	}
+
+	/**
+	 * Discards the text that is written by the packages and classes that are
+	 * allowed by {@link #allowWritesFrom(String...)} instead of writing it to
+	 * {@code System.err}.
+	 *
+	 * @return the rule itself.
+	 */
+	public DisallowWriteToSystemErr discardAllowedWrites() {
+		disallowWrite.discardAllowedWrites();
+		return this;
+	}
+
+	/**
+	 * Lets the test write to {@code System.err}, but discards the text and
+	 * records the call site of each write. The test fails at the end with a
+	 * list of all call sites and the number of bytes that each of them has
+	 * written.
+	 *
+	 * @return the rule itself.
+	 */
+	public DisallowWriteToSystemErr collectViolations() {
+		disallowWrite.collectViolations();
+		return this;
+	}
+
 	public Statement apply(final Statement base, Description description) {
 		return disallowWrite.createStatement(base);
 	}
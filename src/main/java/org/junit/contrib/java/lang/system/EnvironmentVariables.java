@@ -1,15 +1,17 @@
 package org.junit.contrib.java.lang.system;
 
+import org.junit.contrib.java.lang.system.internal.ThreadLocalEnvironment.Overlay;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 
-import java.lang.reflect.Field;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import static java.lang.Class.forName;
-import static java.lang.System.getenv;
+import static org.junit.contrib.java.lang.system.internal.EnvironmentMaps.getMapOfVariables;
+import static org.junit.contrib.java.lang.system.internal.EnvironmentMaps.getTheCaseInsensitiveEnvironment;
+import static org.junit.contrib.java.lang.system.internal.InstrumentationAgent.redirectEnvironment;
+import static org.junit.contrib.java.lang.system.internal.ThreadLocalEnvironment.openOverlay;
 
 /**
  * The {@code EnvironmentVariables} rule allows you to set environment variables
@@ -29,11 +31,73 @@ import static java.lang.System.getenv;
  * </pre>
  * <p>You can ensure that some environment variables are no set by calling
  * {@link #clear(String...)}.
+ * <p>The rule doesn't copy the environment variables. It records the original
+ * value of every variable that is changed by the rule and restores only these
+ * variables after the test. Several variables can be set at once by
+ * {@link #set(Map)}.
+ * <p>Tests that run in parallel can set different values for the same
+ * variable if their rules are {@link #isolatedPerThread() isolated per
+ * thread}.
  * <p><b>Warning:</b> This rule uses reflection for modifying internals of the
  * environment variables map. It fails if your {@code SecurityManager} forbids
- * such modifications.
+ * such modifications. On Java 16 and later it needs the JVM options
+ * {@code --add-opens java.base/java.util=ALL-UNNAMED} and
+ * {@code --add-opens java.base/java.lang=ALL-UNNAMED} unless the rule
+ * {@link #usingAgent() uses System Rules' agent}.
  */
 public class EnvironmentVariables implements TestRule {
+	private final Map<String, String> originalValues
+		= new LinkedHashMap<String, String>();
+	private boolean isolatedPerThread = false;
+	private boolean usingAgent = false;
+	private volatile Overlay overlay;
+
+	/**
+	 * Isolates the environment variables of tests that run in parallel.
+	 * Changes of environment variables by the rule during the test are only
+	 * visible to the test's thread (and to threads that are created by it)
+	 * and discarded after the test. Other threads don't see them.
+	 *
+	 * <p>The first isolated rule replaces the map of {@code System.getenv()}
+	 * with a map that resolves every variable for the current thread. It
+	 * stays installed after the test. Variables that are set before the test
+	 * starts are not isolated. On Windows {@code System.getenv(String)} is
+	 * not isolated. Please use {@code System.getenv().get(String)} instead.
+	 *
+	 * @return the rule itself.
+	 */
+	public EnvironmentVariables isolatedPerThread() {
+		isolatedPerThread = true;
+		return this;
+	}
+
+	/**
+	 * Lets {@code System.getenv} read the variables from a map that is
+	 * managed by System Rules instead of modifying internals of the JDK.
+	 * The rule attaches System Rules' instrumentation agent to the JVM and
+	 * the agent patches {@code System.getenv()} and
+	 * {@code System.getenv(String)}. This works on every Java version without
+	 * illegal reflection. The changes of a test are stored separately from
+	 * the real environment. Therefore setting, clearing and restoring a
+	 * variable doesn't depend on the size of the environment.
+	 *
+	 * <p>Attaching the agent needs a JDK. On Java 9 and later the JVM must be
+	 * started with {@code -Djdk.attach.allowAttachSelf=true}. Alternatively
+	 * the agent is started by the JVM option
+	 * {@code -javaagent:path/to/system-rules.jar}. Then all
+	 * {@code EnvironmentVariables} rules use it, whether this method is
+	 * called or not. The patched {@code System.getenv} stays installed until
+	 * the JVM exits. It doesn't check the {@code SecurityManager}'s
+	 * permission for reading environment variables and processes that are
+	 * started by the test don't see the changed variables.
+	 *
+	 * @return the rule itself.
+	 */
+	public EnvironmentVariables usingAgent() {
+		usingAgent = true;
+		return this;
+	}
+
 	/**
 	 * Set the value of an environment variable.
 	 *
@@ -41,8 +105,36 @@ public class EnvironmentVariables implements TestRule {
 	 * @param value the environment variable's new value. May be {@code null}.
      */
 	public void set(String name, String value) {
-		set(getEditableMapOfVariables(), name, value);
-		set(getTheCaseInsensitiveEnvironment(), name, value);
+		redirectEnvironmentIfUsingAgent();
+		Map<String, String> variables = getMapOfVariables();
+		Map<String, String> theCaseInsensitiveEnvironment
+			= getTheCaseInsensitiveEnvironment();
+		if (overlay == null) {
+			record(variables, name);
+			set(theCaseInsensitiveEnvironment, name, value);
+		}
+		set(variables, name, value);
+	}
+
+	/**
+	 * Set the values of multiple environment variables.
+	 *
+	 * @param variables the environment variables' names and new values. A
+	 * value may be {@code null}.
+	 */
+	public void set(Map<String, String> variables) {
+		redirectEnvironmentIfUsingAgent();
+		Map<String, String> mapOfVariables = getMapOfVariables();
+		Map<String, String> theCaseInsensitiveEnvironment
+			= getTheCaseInsensitiveEnvironment();
+		for (Map.Entry<String, String> variable: variables.entrySet()) {
+			if (overlay == null) {
+				record(mapOfVariables, variable.getKey());
+				set(theCaseInsensitiveEnvironment, variable.getKey(),
+					variable.getValue());
+			}
+			set(mapOfVariables, variable.getKey(), variable.getValue());
+		}
 	}
 
 	/**
@@ -55,7 +147,18 @@ public class EnvironmentVariables implements TestRule {
 			set(name, null);
 	}
 
-	private void set(Map<String, String> variables, String name, String value) {
+	private void redirectEnvironmentIfUsingAgent() {
+		if (usingAgent)
+			redirectEnvironment();
+	}
+
+	private synchronized void record(Map<String, String> variables, String name) {
+		if (!originalValues.containsKey(name))
+			originalValues.put(name, variables.get(name));
+	}
+
+	private static void set(Map<String, String> variables, String name,
+			String value) {
 		if (variables != null) //theCaseInsensitiveEnvironment may be null
 			if (value == null)
 				variables.remove(name);
@@ -63,13 +166,24 @@ public class EnvironmentVariables implements TestRule {
 				variables.put(name, value);
 	}
 
+	private synchronized void restoreOriginalVariables() {
+		Map<String, String> variables = getMapOfVariables();
+		Map<String, String> theCaseInsensitiveEnvironment
+			= getTheCaseInsensitiveEnvironment();
+		for (Map.Entry<String, String> variable: originalValues.entrySet()) {
+			set(variables, variable.getKey(), variable.getValue());
+			set(theCaseInsensitiveEnvironment, variable.getKey(),
+				variable.getValue());
+		}
+		originalValues.clear();
+	}
+
 	public Statement apply(Statement base, Description description) {
 		return new EnvironmentVariablesStatement(base);
 	}
 
-	private static class EnvironmentVariablesStatement extends Statement {
+	private class EnvironmentVariablesStatement extends Statement {
 		final Statement baseStatement;
-		Map<String, String> originalVariables;
 
 		EnvironmentVariablesStatement(Statement baseStatement) {
 			this.baseStatement = baseStatement;
@@ -77,74 +191,18 @@ public class EnvironmentVariables implements TestRule {
 
 		@Override
 		public void evaluate() throws Throwable {
-			saveCurrentState();
+			redirectEnvironmentIfUsingAgent();
+			if (isolatedPerThread)
+				overlay = openOverlay();
 			try {
 				baseStatement.evaluate();
 			} finally {
+				if (overlay != null) {
+					overlay.close();
+					overlay = null;
+				}
 				restoreOriginalVariables();
 			}
 		}
-
-		void saveCurrentState() {
-			originalVariables = new HashMap<String, String>(getenv());
-		}
-
-		void restoreOriginalVariables() {
-			restoreVariables(getEditableMapOfVariables());
-			Map<String, String> theCaseInsensitiveEnvironment
-				= getTheCaseInsensitiveEnvironment();
-			if (theCaseInsensitiveEnvironment != null)
-				restoreVariables(theCaseInsensitiveEnvironment);
-		}
-
-		void restoreVariables(Map<String, String> variables) {
-			variables.clear();
-			variables.putAll(originalVariables);
-		}
-	}
-
-	private static Map<String, String> getEditableMapOfVariables() {
-		Class<?> classOfMap = getenv().getClass();
-		try {
-			return getFieldValue(classOfMap, getenv(), "m");
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException("System Rules cannot access the field"
-				+ " 'm' of the map System.getenv().", e);
-		} catch (NoSuchFieldException e) {
-			throw new RuntimeException("System Rules expects System.getenv() to"
-				+ " have a field 'm' but it has not.", e);
-		}
-	}
-
-	/*
-	 * The names of environment variables are case-insensitive in Windows.
-	 * Therefore it stores the variables in a TreeMap named
-	 * theCaseInsensitiveEnvironment.
-     */
-	private static Map<String, String> getTheCaseInsensitiveEnvironment() {
-		try {
-			Class<?> processEnvironment = forName("java.lang.ProcessEnvironment");
-			return getFieldValue(
-				processEnvironment, null, "theCaseInsensitiveEnvironment");
-		} catch (ClassNotFoundException e) {
-			throw new RuntimeException("System Rules expects the existence of"
-				+ " the class java.lang.ProcessEnvironment but it does not"
-				+ " exist.", e);
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException("System Rules cannot access the static"
-				+ " field 'theCaseInsensitiveEnvironment' of the class"
-				+ " java.lang.ProcessEnvironment.", e);
-		} catch (NoSuchFieldException e) {
-			//this field is only available for Windows
-			return null;
-		}
-	}
-
-	private static Map<String, String> getFieldValue(Class<?> klass,
-			Object object, String name)
-			throws NoSuchFieldException, IllegalAccessException {
-		Field field = klass.getDeclaredField(name);
-		field.setAccessible(true);
-		return (Map<String, String>) field.get(object);
 	}
 }
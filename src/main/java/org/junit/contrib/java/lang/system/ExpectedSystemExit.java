@@ -1,14 +1,30 @@
 package org.junit.contrib.java.lang.system;
 
 import static java.lang.System.getSecurityManager;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.contrib.java.lang.system.internal.InstrumentationAgent.interceptExit;
+import static org.junit.contrib.java.lang.system.internal.InstrumentationAgent.isExitIntercepted;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.contrib.java.lang.system.internal.CheckExitCalled;
+import org.junit.contrib.java.lang.system.internal.ExitCalls;
+import org.junit.contrib.java.lang.system.internal.ExitInterception;
+import org.junit.contrib.java.lang.system.internal.ExitRecorder;
 import org.junit.contrib.java.lang.system.internal.NoExitSecurityManager;
+import org.junit.contrib.java.lang.system.internal.ShutdownHooks;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
@@ -28,7 +44,18 @@ import org.junit.runners.model.Statement;
  * <p>
  * Some care must be taken if your system under test creates a new thread and
  * this thread calls {@code System.exit()}. In this case you have to ensure that
- * the test does not finish before {@code System.exit()} is called.
+ * the test does not finish before {@code System.exit()} is called. The test
+ * may wait for the thread, e.g. by {@code Thread.join()}. When the thread
+ * calls {@code System.exit()} while the test's thread waits, the test's
+ * thread is interrupted and the test finishes right away. If the test's
+ * thread doesn't wait at this moment (e.g. because it is running or reading
+ * from a channel) then it is interrupted as soon as it starts waiting. It
+ * is not interrupted while it doesn't wait, so that its channels are not
+ * closed.
+ *
+ * <p>
+ * All calls of {@code System.exit()} are recorded with their status, thread
+ * and stack and are provided by {@link #getExitCalls()}.
  *
  * <pre>
  * public class AppWithExit {
@@ -84,8 +111,50 @@ import org.junit.runners.model.Statement;
  *   }
  * }
  * </pre>
+ *
+ * <p>By default the rule installs a {@code SecurityManager} that prevents
+ * {@code System.exit()} from terminating the JVM. This doesn't work on Java
+ * 18 and later unless the JVM is started with
+ * {@code -Djava.security.manager=allow}, and it lets the JVM check
+ * permissions for every file, socket and reflection operation. Therefore
+ * the rule can {@link #usingAgent() use System Rules' agent} instead.
+ *
+ * <p>Used as a {@code ClassRule} the rule prevents {@code System.exit()}
+ * once for all tests of the class or suite instead of installing and
+ * removing its {@code SecurityManager} for every test. The expectations are
+ * specified by a rule for each test. This rule doesn't swap the
+ * {@code SecurityManager}. It only starts a new recording of the
+ * {@link #getExitCalls() calls} and resets its expectations after the
+ * test. Therefore the same rule may be used for both.
+ *
+ * <pre>
+ * public void AppWithExitTest {
+ *   &#064;ClassRule
+ *   public static final ExpectedSystemExit EXIT = ExpectedSystemExit.none();
+ *
+ *   &#064;Rule
+ *   public final ExpectedSystemExit exit = EXIT;
+ *
+ *   &#064;Test
+ *   public void exits() {
+ *     exit.expectSystemExit();
+ *     AppWithExit.doSomethingAndExit();
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>Calls of {@code System.exit()} outside of the tests, e.g. in a
+ * {@code BeforeClass} method, are prevented but not checked. The class
+ * rule is only used by the rules of the tests of its class (respectively
+ * the classes of its suite). Keep in mind that the {@code SecurityManager}
+ * and the agent's interception are shared by the whole JVM. Therefore
+ * tests that expect {@code System.exit()} should not run in parallel.
  */
 public class ExpectedSystemExit implements TestRule {
+	private static final long DEFAULT_SHUTDOWN_HOOK_TIMEOUT_IN_SECONDS = 10;
+	private static final ConcurrentMap<Class<?>, ExitRecorder> RECORDERS_OF_TEST_CLASSES
+		= new ConcurrentHashMap<Class<?>, ExitRecorder>();
+
 	public static ExpectedSystemExit none() {
 		return new ExpectedSystemExit();
 	}
@@ -93,6 +162,9 @@ public class ExpectedSystemExit implements TestRule {
 	private final Collection<Assertion> assertions = new ArrayList<Assertion>();
 	private boolean expectExit = false;
 	private Integer expectedStatus = null;
+	private boolean usingAgent = false;
+	private Long shutdownHookTimeoutInMillis = null;
+	private volatile ExitCalls exitCalls = new ExitCalls();
 
 	private ExpectedSystemExit() {
 	}
@@ -110,7 +182,88 @@ public class ExpectedSystemExit implements TestRule {
 		assertions.add(assertion);
 	}
 
+	/**
+	 * Returns all calls of {@code System.exit()} of the current test in the
+	 * order of their occurrence. The calls may be inspected by an
+	 * {@link Assertion} that is {@link #checkAssertionAfterwards(Assertion)
+	 * checked afterwards}.
+	 *
+	 * @return all calls of {@code System.exit()} of the current test.
+	 */
+	public List<ExitCall> getExitCalls() {
+		List<ExitCall> calls = new ArrayList<ExitCall>();
+		for (ExitCalls.Call call: exitCalls.getCalls())
+			calls.add(new ExitCall(call));
+		return calls;
+	}
+
+	/**
+	 * Runs the shutdown hooks that are registered during the test when
+	 * {@code System.exit()} is called. The rule waits up to ten seconds for
+	 * the hooks.
+	 *
+	 * @return the rule itself.
+	 * @see #runShutdownHooksOnExit(long, TimeUnit)
+	 */
+	public ExpectedSystemExit runShutdownHooksOnExit() {
+		return runShutdownHooksOnExit(
+			DEFAULT_SHUTDOWN_HOOK_TIMEOUT_IN_SECONDS, SECONDS);
+	}
+
+	/**
+	 * Runs the shutdown hooks that are registered during the test when
+	 * {@code System.exit()} is called. The hooks are started at once, like
+	 * the JVM does, after the test has finished and before the assertions
+	 * are checked. The test fails if a hook doesn't finish within the
+	 * timeout. Afterwards all hooks that have been registered during the
+	 * test are deregistered, whether {@code System.exit()} has been called
+	 * or not. Therefore they don't pile up in a JVM that runs many tests.
+	 *
+	 * <p>The JDK doesn't provide the registered hooks. System Rules reads
+	 * them by reflection. On Java 16 and later the JVM must be started with
+	 * {@code --add-opens java.base/java.lang=ALL-UNNAMED}.
+	 *
+	 * @param timeout the maximum time to wait for the hooks.
+	 * @param unit the unit of the {@code timeout}.
+	 * @return the rule itself.
+	 */
+	public ExpectedSystemExit runShutdownHooksOnExit(long timeout,
+			TimeUnit unit) {
+		shutdownHookTimeoutInMillis = unit.toMillis(timeout);
+		return this;
+	}
+
+	/**
+	 * Prevents {@code System.exit()} from terminating the JVM without a
+	 * {@code SecurityManager}. The rule attaches System Rules'
+	 * instrumentation agent to the JVM and the agent patches
+	 * {@code Runtime.exit(int)} and {@code Runtime.halt(int)}. Calls of both
+	 * methods are intercepted during the test. Calls of
+	 * {@code Runtime.halt(int)} are treated like calls of
+	 * {@code System.exit(int)}. The JVM doesn't check any permissions.
+	 *
+	 * <p>Attaching the agent needs a JDK. On Java 9 and later the JVM must be
+	 * started with {@code -Djdk.attach.allowAttachSelf=true}. Alternatively
+	 * the agent is started by the JVM option
+	 * {@code -javaagent:path/to/system-rules.jar}. Then all
+	 * {@code ExpectedSystemExit} rules use it, whether this method is called
+	 * or not.
+	 *
+	 * @return the rule itself.
+	 */
+	public ExpectedSystemExit usingAgent() {
+		usingAgent = true;
+		return this;
+	}
+
 	public Statement apply(final Statement base, Description description) {
+		if (description != null && description.isSuite())
+			return createStatementThatPreventsExitOfAllTests(base, description);
+		ExitRecorder recorder = recorderOfTestClassOf(description);
+		if (recorder != null)
+			return createStatementWithRecorderOfAllTests(base, recorder);
+		if (usingAgent || isExitIntercepted())
+			return createStatementWithAgent(base);
 		ProvideSecurityManager noExitSecurityManagerRule = createNoExitSecurityManagerRule();
 		Statement statement = createStatement(base);
 		return noExitSecurityManagerRule.apply(statement, description);
@@ -122,13 +275,110 @@ public class ExpectedSystemExit implements TestRule {
 		return new ProvideSecurityManager(noExitSecurityManager);
 	}
 
-	private Statement createStatement(final Statement base) {
+	private Statement createStatementThatPreventsExitOfAllTests(
+			final Statement base, final Description description) {
+		if (usingAgent || isExitIntercepted())
+			return new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					interceptExit();
+					ExitInterception interception = new ExitInterception();
+					interception.start();
+					try {
+						evaluateWithRecorderOfAllTests(
+							base, description, interception);
+					} finally {
+						interception.stop();
+					}
+				}
+			};
+		ProvideSecurityManager noExitSecurityManagerRule = createNoExitSecurityManagerRule();
+		Statement statement = new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				evaluateWithRecorderOfAllTests(base, description,
+					(NoExitSecurityManager) getSecurityManager());
+			}
+		};
+		return noExitSecurityManagerRule.apply(statement, description);
+	}
+
+	private static ExitRecorder recorderOfTestClassOf(Description description) {
+		Class<?> testClass = (description == null)
+			? null : description.getTestClass();
+		return (testClass == null)
+			? null : RECORDERS_OF_TEST_CLASSES.get(testClass);
+	}
+
+	private static void evaluateWithRecorderOfAllTests(Statement base,
+			Description description, ExitRecorder recorder) throws Throwable {
+		Set<Class<?>> testClasses = new HashSet<Class<?>>();
+		addTestClasses(description, testClasses);
+		Map<Class<?>, ExitRecorder> previousRecorders
+			= new HashMap<Class<?>, ExitRecorder>();
+		for (Class<?> testClass: testClasses) {
+			ExitRecorder previousRecorder = RECORDERS_OF_TEST_CLASSES.put(
+				testClass, recorder);
+			if (previousRecorder != null)
+				previousRecorders.put(testClass, previousRecorder);
+		}
+		try {
+			base.evaluate();
+		} finally {
+			for (Class<?> testClass: testClasses) {
+				ExitRecorder previousRecorder = previousRecorders.get(testClass);
+				if (previousRecorder == null)
+					RECORDERS_OF_TEST_CLASSES.remove(testClass, recorder);
+				else
+					RECORDERS_OF_TEST_CLASSES.replace(
+						testClass, recorder, previousRecorder);
+			}
+		}
+	}
+
+	private static void addTestClasses(Description description,
+			Set<Class<?>> testClasses) {
+		Class<?> testClass = description.getTestClass();
+		if (testClass != null)
+			testClasses.add(testClass);
+		for (Description child: description.getChildren())
+			addTestClasses(child, testClasses);
+	}
+
+	private Statement createStatementWithRecorderOfAllTests(
+			final Statement base, final ExitRecorder recorder) {
 		return new Statement() {
 			@Override
 			public void evaluate() throws Throwable {
 				try {
-					base.evaluate();
-				} catch (CheckExitCalled ignored) {
+					evaluateAndRecordExitCalls(base, recorder.resetExitCalls());
+					checkSystemExit();
+					checkAssertions();
+				} finally {
+					resetExpectations();
+				}
+			}
+		};
+	}
+
+	private void resetExpectations() {
+		expectExit = false;
+		expectedStatus = null;
+		assertions.clear();
+	}
+
+	private Statement createStatementWithAgent(final Statement base) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				interceptExit();
+				ExitInterception interception = new ExitInterception();
+				interception.start();
+				try {
+					evaluateAndRecordExitCalls(
+						base, interception.getExitCalls());
+				} finally {
+					interception.stop();
 				}
 				checkSystemExit();
 				checkAssertions();
@@ -136,12 +386,94 @@ public class ExpectedSystemExit implements TestRule {
 		};
 	}
 
-	private void checkSystemExit() {
-		NoExitSecurityManager securityManager = (NoExitSecurityManager) getSecurityManager();
-		if (securityManager.isCheckExitCalled())
-			handleSystemExitWithStatus(securityManager.getStatusOfFirstCheckExitCall());
+	private Statement createStatement(final Statement base) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				NoExitSecurityManager securityManager
+					= (NoExitSecurityManager) getSecurityManager();
+				evaluateAndRecordExitCalls(
+					base, securityManager.getExitCalls());
+				checkSystemExit();
+				checkAssertions();
+			}
+		};
+	}
+
+	private void evaluateAndRecordExitCalls(Statement base,
+			ExitCalls exitCalls) throws Throwable {
+		this.exitCalls = exitCalls;
+		if (shutdownHookTimeoutInMillis == null)
+			evaluateWhileWatchingTestThread(base, exitCalls);
 		else
+			evaluateAndHandleShutdownHooks(base, exitCalls);
+	}
+
+	private void evaluateAndHandleShutdownHooks(Statement base,
+			ExitCalls exitCalls) throws Throwable {
+		ShutdownHooks shutdownHooks = new ShutdownHooks();
+		try {
+			evaluateWhileWatchingTestThread(base, exitCalls);
+		} catch (Throwable e) {
+			try {
+				runAndDeregisterAddedHooks(shutdownHooks, exitCalls);
+			} catch (Throwable ignored) {
+				//the test's own failure must not be hidden
+			}
+			throw e;
+		}
+		List<Thread> unfinishedHooks = runAndDeregisterAddedHooks(
+			shutdownHooks, exitCalls);
+		if (!unfinishedHooks.isEmpty())
+			fail("Shutdown hooks have not finished within "
+				+ shutdownHookTimeoutInMillis + " ms: "
+				+ namesOf(unfinishedHooks));
+	}
+
+	private List<Thread> runAndDeregisterAddedHooks(
+			ShutdownHooks shutdownHooks, ExitCalls exitCalls)
+			throws InterruptedException {
+		List<Thread> addedHooks = shutdownHooks.getAddedHooks();
+		try {
+			if (exitCalls.isEmpty())
+				return new ArrayList<Thread>();
+			else
+				return ShutdownHooks.run(addedHooks, shutdownHookTimeoutInMillis);
+		} finally {
+			ShutdownHooks.deregister(addedHooks);
+		}
+	}
+
+	private static String namesOf(List<Thread> threads) {
+		StringBuilder names = new StringBuilder();
+		for (Thread thread: threads) {
+			if (names.length() > 0)
+				names.append(", ");
+			names.append(thread.getName());
+		}
+		return names.toString();
+	}
+
+	private void evaluateWhileWatchingTestThread(Statement base,
+			ExitCalls exitCalls) throws Throwable {
+		exitCalls.watch(currentThread());
+		try {
+			base.evaluate();
+		} catch (CheckExitCalled ignored) {
+		} catch (InterruptedException e) {
+			if (!exitCalls.isWatchedThreadInterrupted())
+				throw e;
+		} finally {
+			exitCalls.stopWatching();
+		}
+	}
+
+	private void checkSystemExit() {
+		ExitCalls.Call firstCall = exitCalls.getFirstCall();
+		if (firstCall == null)
 			handleMissingSystemExit();
+		else
+			handleSystemExitWithStatus(firstCall.getStatus());
 	}
 
 	private void handleMissingSystemExit() {
@@ -160,4 +492,37 @@ public class ExpectedSystemExit implements TestRule {
 		for (Assertion assertion : assertions)
 			assertion.checkAssertion();
 	}
+
+	/**
+	 * A single call of {@code System.exit()}.
+	 */
+	public static class ExitCall {
+		private final int status;
+		private final Thread thread;
+		private final StackTraceElement[] stackTrace;
+
+		ExitCall(ExitCalls.Call call) {
+			this.status = call.getStatus();
+			this.thread = call.getThread();
+			this.stackTrace = call.getStackTrace();
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public Thread getThread() {
+			return thread;
+		}
+
+		/**
+		 * Returns the stack of the thread that called {@code System.exit()}.
+		 * It starts with the frames of the JDK's exit methods.
+		 *
+		 * @return the stack of the thread that called {@code System.exit()}.
+		 */
+		public StackTraceElement[] getStackTrace() {
+			return stackTrace.clone();
+		}
+	}
 }
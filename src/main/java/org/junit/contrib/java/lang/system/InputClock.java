@@ -0,0 +1,25 @@
+package org.junit.contrib.java.lang.system;
+
+/**
+ * An {@code InputClock} is used by {@link TextFromStandardInputStream} for
+ * delaying input. {@link VirtualInputClock} doesn't wait at all.
+ *
+ * @see TextFromStandardInputStream#useClock(InputClock)
+ */
+public interface InputClock {
+	/**
+	 * Returns the current time in nanoseconds. Only differences between two
+	 * values are meaningful.
+	 *
+	 * @return the current time in nanoseconds.
+	 */
+	long nanoTime();
+
+	/**
+	 * Waits until {@code nanos} nanoseconds have elapsed.
+	 *
+	 * @param nanos the time to wait in nanoseconds.
+	 * @throws InterruptedException if the current thread is interrupted.
+	 */
+	void sleep(long nanos) throws InterruptedException;
+}
@@ -0,0 +1,112 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getProperty;
+import static java.nio.charset.Charset.defaultCharset;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * An {@code InputFixture} is an immutable input for {@code System.in}. It is
+ * encoded once and can be shared by many tests, even by tests that run in
+ * parallel. Each test reads the fixture with its own position.
+ *
+ * <pre>
+ *   public class MyTest {
+ *     private static final InputFixture LARGE_INPUT
+ *       = InputFixture.ofLines(createManyLines());
+ *
+ *     &#064;Rule
+ *     public final TextFromStandardInputStream systemInMock
+ *       = emptyStandardInputStream();
+ *
+ *     &#064;Test
+ *     public void readsLargeInput() {
+ *       systemInMock.provideInput(LARGE_INPUT);
+ *       ...
+ *     }
+ *   }
+ * </pre>
+ *
+ * @see TextFromStandardInputStream#provideInput(InputFixture)
+ */
+public final class InputFixture {
+	private final ByteBuffer bytes;
+	private final Charset charset;
+
+	private InputFixture(ByteBuffer bytes, Charset charset) {
+		this.bytes = bytes.asReadOnlyBuffer();
+		this.charset = charset;
+	}
+
+	/**
+	 * Creates a fixture of lines that are encoded with the platform's
+	 * default charset. {@code System.getProperty("line.separator")} is used
+	 * for the end of line.
+	 *
+	 * @param lines the lines.
+	 * @return the fixture.
+	 */
+	public static InputFixture ofLines(String... lines) {
+		return ofLines(defaultCharset(), lines);
+	}
+
+	/**
+	 * Creates a fixture of lines that are encoded with the specified
+	 * charset. {@code System.getProperty("line.separator")} is used for the
+	 * end of line.
+	 *
+	 * @param charset the charset that is used for encoding the lines.
+	 * @param lines the lines.
+	 * @return the fixture.
+	 */
+	public static InputFixture ofLines(Charset charset, String... lines) {
+		StringBuilder sb = new StringBuilder();
+		for (String line: lines)
+			sb.append(line).append(getProperty("line.separator"));
+		return ofText(charset, sb.toString());
+	}
+
+	/**
+	 * Creates a fixture of a text that is encoded with the specified
+	 * charset.
+	 *
+	 * @param charset the charset that is used for encoding the text.
+	 * @param text the text.
+	 * @return the fixture.
+	 */
+	public static InputFixture ofText(Charset charset, String text) {
+		return new InputFixture(ByteBuffer.wrap(text.getBytes(charset)), charset);
+	}
+
+	/**
+	 * Creates a fixture of bytes. The bytes are copied.
+	 *
+	 * @param bytes the bytes.
+	 * @return the fixture.
+	 */
+	public static InputFixture ofBytes(byte[] bytes) {
+		return new InputFixture(
+			ByteBuffer.wrap(bytes.clone()), defaultCharset());
+	}
+
+	/**
+	 * Returns the number of bytes of this fixture.
+	 *
+	 * @return the number of bytes of this fixture.
+	 */
+	public int size() {
+		return bytes.remaining();
+	}
+
+	Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Returns a new read-only view of the fixture with its own position.
+	 */
+	ByteBuffer newBuffer() {
+		return bytes.duplicate();
+	}
+}
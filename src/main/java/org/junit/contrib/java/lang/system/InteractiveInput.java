@@ -0,0 +1,70 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getProperty;
+
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+
+import org.junit.contrib.java.lang.system.internal.RingBufferInputSource;
+
+/**
+ * The {@code InteractiveInput} sends text to {@code System.in} while the code
+ * under test is already reading it. It is created by
+ * {@link TextFromStandardInputStream#provideInteractiveInput()}.
+ * {@code System.in} blocks until text is sent or the input is closed. The
+ * text is stored in a bounded buffer. Therefore {@link #send(String)} blocks
+ * while the buffer is full. Both sides fail if they have to wait longer than
+ * the timeout.
+ *
+ * <p>You can send text from any thread.
+ */
+public class InteractiveInput {
+	private final RingBufferInputSource input;
+	private final Charset charset;
+
+	InteractiveInput(RingBufferInputSource input, Charset charset) {
+		this.input = input;
+		this.charset = charset;
+	}
+
+	/**
+	 * Sends a line to {@code System.in}.
+	 * {@code System.getProperty("line.separator")} is used for the end of
+	 * the line.
+	 *
+	 * @param line the line.
+	 * @throws AssertionError if {@code System.in} has not been read within
+	 * the timeout while the buffer was full.
+	 * @throws IllegalStateException if the input has been closed.
+	 */
+	public void send(String line) {
+		sendText(line + getProperty("line.separator"));
+	}
+
+	/**
+	 * Sends a text to {@code System.in}. No line separator is added.
+	 *
+	 * @param text the text.
+	 * @throws AssertionError if {@code System.in} has not been read within
+	 * the timeout while the buffer was full.
+	 * @throws IllegalStateException if the input has been closed.
+	 */
+	public void sendText(String text) {
+		try {
+			input.write(text.getBytes(charset));
+		} catch (InterruptedIOException e) {
+			AssertionError error = new AssertionError(
+				"Cannot send \"" + text + "\" to System.in. " + e.getMessage());
+			error.initCause(e);
+			throw error;
+		}
+	}
+
+	/**
+	 * Closes the input. {@code System.in} returns the text that has already
+	 * been sent and reaches the end of the input afterwards.
+	 */
+	public void close() {
+		input.close();
+	}
+}
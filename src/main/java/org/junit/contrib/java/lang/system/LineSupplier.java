@@ -0,0 +1,16 @@
+package org.junit.contrib.java.lang.system;
+
+/**
+ * A {@code LineSupplier} provides the lines that are read from
+ * {@code System.in} one after the other.
+ *
+ * @see TextFromStandardInputStream#provideLines(LineSupplier)
+ */
+public interface LineSupplier {
+	/**
+	 * Returns the next line without line separator.
+	 *
+	 * @return the next line or {@code null} if there are no more lines.
+	 */
+	String get();
+}
@@ -0,0 +1,257 @@
+package org.junit.contrib.java.lang.system;
+
+import static org.junit.contrib.java.lang.system.internal.CaptureContext.contextOfCurrentThread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.contrib.java.lang.system.internal.CaptureContext;
+
+/**
+ * {@code OutputCapturePropagation} lets tasks that are executed by other
+ * threads write to the same {@link SystemOutRule} and {@link SystemErrRule}
+ * as the test that submitted them.
+ *
+ * <p>Threads that are created by the test's thread belong to the test
+ * automatically. Threads of pools that already exist (e.g. a shared
+ * {@code ExecutorService}) don't. Their output is written to the rule of the
+ * test that started most recently, which is the wrong one if tests run
+ * concurrently. Decorate the tasks or the executor with
+ * {@code propagateCapture} in the test's thread and the output lands in
+ * the test's log.
+ *
+ * <pre>
+ * public class AsyncTest {
+ *   &#064;Rule
+ *   public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+ *
+ *   &#064;Test
+ *   public void test() throws Exception {
+ *     ExecutorService executor = propagateCapture(sharedExecutor);
+ *     executor.submit(new Runnable() {
+ *       public void run() {
+ *         System.out.print("some text");
+ *       }
+ *     }).get();
+ *     assertEquals("some text", systemOutRule.getLog());
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>A {@code ForkJoinPool} steals tasks between its workers. Therefore
+ * {@link #newForkJoinPoolWithCapture(int)} creates a pool whose workers all
+ * belong to the test that created the pool. Parallel streams that are
+ * started from a task of this pool use the pool, too. Please note that
+ * this method requires Java 7.
+ */
+public final class OutputCapturePropagation {
+	private OutputCapturePropagation() {
+	}
+
+	/**
+	 * Decorates a {@code Runnable} so that it writes to the rules of the
+	 * current test.
+	 *
+	 * @param task the task that is decorated.
+	 * @return a {@code Runnable} that executes {@code task} with the
+	 * current test's capture context.
+	 */
+	public static Runnable propagateCapture(Runnable task) {
+		return new ContextRunnable(contextOfCurrentThread(), task);
+	}
+
+	/**
+	 * Decorates a {@code Callable} so that it writes to the rules of the
+	 * current test.
+	 *
+	 * @param task the task that is decorated.
+	 * @param <T> the result type of the task.
+	 * @return a {@code Callable} that executes {@code task} with the
+	 * current test's capture context.
+	 */
+	public static <T> Callable<T> propagateCapture(Callable<T> task) {
+		return new ContextCallable<T>(contextOfCurrentThread(), task);
+	}
+
+	/**
+	 * Decorates an {@code Executor} so that all tasks that are submitted to
+	 * it write to the rules of the current test.
+	 *
+	 * @param executor the executor that is decorated.
+	 * @return an {@code Executor} that executes the tasks with the current
+	 * test's capture context.
+	 */
+	public static Executor propagateCapture(final Executor executor) {
+		final CaptureContext context = contextOfCurrentThread();
+		return new Executor() {
+			public void execute(Runnable command) {
+				executor.execute(new ContextRunnable(context, command));
+			}
+		};
+	}
+
+	/**
+	 * Decorates an {@code ExecutorService} so that all tasks that are
+	 * submitted to it write to the rules of the current test. Shutting down
+	 * the decorator shuts down {@code executor}.
+	 *
+	 * @param executor the executor that is decorated.
+	 * @return an {@code ExecutorService} that executes the tasks with the
+	 * current test's capture context.
+	 */
+	public static ExecutorService propagateCapture(ExecutorService executor) {
+		return new ContextExecutorService(contextOfCurrentThread(), executor);
+	}
+
+	/**
+	 * Creates a {@code ForkJoinPool} whose workers write to the rules of the
+	 * current test. The pool should be shut down at the end of the test.
+	 *
+	 * @param parallelism the parallelism level of the pool.
+	 * @return a new {@code ForkJoinPool}.
+	 */
+	public static ForkJoinPool newForkJoinPoolWithCapture(int parallelism) {
+		final CaptureContext context = contextOfCurrentThread();
+		return new ForkJoinPool(
+			parallelism,
+			new ForkJoinWorkerThreadFactory() {
+				public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+					return new ContextWorkerThread(pool, context);
+				}
+			},
+			null,
+			false);
+	}
+
+	private static class ContextRunnable implements Runnable {
+		final CaptureContext context;
+		final Runnable task;
+
+		ContextRunnable(CaptureContext context, Runnable task) {
+			this.context = context;
+			this.task = task;
+		}
+
+		public void run() {
+			context.run(task);
+		}
+	}
+
+	private static class ContextCallable<T> implements Callable<T> {
+		final CaptureContext context;
+		final Callable<T> task;
+
+		ContextCallable(CaptureContext context, Callable<T> task) {
+			this.context = context;
+			this.task = task;
+		}
+
+		public T call() throws Exception {
+			return context.call(task);
+		}
+	}
+
+	private static class ContextWorkerThread extends ForkJoinWorkerThread {
+		final CaptureContext context;
+
+		ContextWorkerThread(ForkJoinPool pool, CaptureContext context) {
+			super(pool);
+			this.context = context;
+		}
+
+		@Override
+		protected void onStart() {
+			super.onStart();
+			context.attachToCurrentThread();
+		}
+	}
+
+	private static class ContextExecutorService implements ExecutorService {
+		final CaptureContext context;
+		final ExecutorService executor;
+
+		ContextExecutorService(CaptureContext context, ExecutorService executor) {
+			this.context = context;
+			this.executor = executor;
+		}
+
+		public void execute(Runnable command) {
+			executor.execute(new ContextRunnable(context, command));
+		}
+
+		public Future<?> submit(Runnable task) {
+			return executor.submit(new ContextRunnable(context, task));
+		}
+
+		public <T> Future<T> submit(Runnable task, T result) {
+			return executor.submit(new ContextRunnable(context, task), result);
+		}
+
+		public <T> Future<T> submit(Callable<T> task) {
+			return executor.submit(new ContextCallable<T>(context, task));
+		}
+
+		public <T> List<Future<T>> invokeAll(
+				Collection<? extends Callable<T>> tasks)
+				throws InterruptedException {
+			return executor.invokeAll(decorate(tasks));
+		}
+
+		public <T> List<Future<T>> invokeAll(
+				Collection<? extends Callable<T>> tasks, long timeout,
+				TimeUnit unit) throws InterruptedException {
+			return executor.invokeAll(decorate(tasks), timeout, unit);
+		}
+
+		public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+				throws InterruptedException, ExecutionException {
+			return executor.invokeAny(decorate(tasks));
+		}
+
+		public <T> T invokeAny(Collection<? extends Callable<T>> tasks,
+				long timeout, TimeUnit unit) throws InterruptedException,
+				ExecutionException, TimeoutException {
+			return executor.invokeAny(decorate(tasks), timeout, unit);
+		}
+
+		private <T> List<Callable<T>> decorate(
+				Collection<? extends Callable<T>> tasks) {
+			List<Callable<T>> decoratedTasks = new ArrayList<Callable<T>>();
+			for (Callable<T> task: tasks)
+				decoratedTasks.add(new ContextCallable<T>(context, task));
+			return decoratedTasks;
+		}
+
+		public void shutdown() {
+			executor.shutdown();
+		}
+
+		public List<Runnable> shutdownNow() {
+			return executor.shutdownNow();
+		}
+
+		public boolean isShutdown() {
+			return executor.isShutdown();
+		}
+
+		public boolean isTerminated() {
+			return executor.isTerminated();
+		}
+
+		public boolean awaitTermination(long timeout, TimeUnit unit)
+				throws InterruptedException {
+			return executor.awaitTermination(timeout, unit);
+		}
+	}
+}
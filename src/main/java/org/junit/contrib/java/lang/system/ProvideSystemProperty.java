@@ -1,16 +1,20 @@
 package org.junit.contrib.java.lang.system;
 
 import static java.lang.System.clearProperty;
+import static java.lang.System.getProperties;
+import static org.junit.contrib.java.lang.system.internal.ParsedPropertiesCache.propertiesOfFile;
+import static org.junit.contrib.java.lang.system.internal.ParsedPropertiesCache.propertiesOfResource;
+import static org.junit.contrib.java.lang.system.internal.ThreadLocalProperties.openOverlay;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 
 import org.junit.contrib.java.lang.system.internal.RestoreSpecificSystemProperties;
+import org.junit.contrib.java.lang.system.internal.ThreadLocalProperties.Overlay;
 import org.junit.rules.ExternalResource;
 
 /**
@@ -63,6 +67,9 @@ import org.junit.rules.ExternalResource;
  * public final ProvideSystemProperty properties = ProvideSystemProperty
  * 		.fromResource(&quot;example.properties&quot;);
  * </pre>
+ *
+ * <p>Each file or resource is parsed once per JVM and shared by all rules.
+ * A file is parsed again if its modification time or length changes.
  * <h2>Set property for a single test</h2>
  * <p>If you want to set a property for a single test then you can use
  * {@link org.junit.contrib.java.lang.system.RestoreSystemProperties}
@@ -81,11 +88,12 @@ import org.junit.rules.ExternalResource;
 public class ProvideSystemProperty extends ExternalResource {
 	private final Map<String, String> properties = new LinkedHashMap<String, String>();
 	private final RestoreSpecificSystemProperties restoreSystemProperty = new RestoreSpecificSystemProperties();
+	private boolean isolatedPerThread = false;
+	private Overlay overlay;
 
 	public static ProvideSystemProperty fromFile(String name) {
 		try {
-			FileInputStream fis = new FileInputStream(name);
-			return fromInputStream(fis);
+			return fromProperties(propertiesOfFile(new File(name)));
 		} catch (IOException e) {
 			throw new IllegalArgumentException(
 				"Cannot create ProvideSystemProperty rule because file \""
@@ -95,9 +103,9 @@ public class ProvideSystemProperty extends ExternalResource {
 	}
 
 	public static ProvideSystemProperty fromResource(String name) {
-		InputStream is = ProvideSystemProperty.class.getResourceAsStream(name);
 		try {
-			return fromInputStream(is);
+			return fromProperties(propertiesOfResource(
+				name, ProvideSystemProperty.class));
 		} catch (IOException e) {
 			throw new IllegalArgumentException(
 				"Cannot create ProvideSystemProperty rule because resource \""
@@ -106,14 +114,10 @@ public class ProvideSystemProperty extends ExternalResource {
 		}
 	}
 
-	private static ProvideSystemProperty fromInputStream(InputStream is)
-		throws IOException {
-		Properties p = new Properties();
-		p.load(is);
+	private static ProvideSystemProperty fromProperties(
+			Map<String, String> properties) {
 		ProvideSystemProperty rule = new ProvideSystemProperty();
-		for (Map.Entry<Object, Object> property : p.entrySet())
-			rule.addProperty((String) property.getKey(),
-				(String) property.getValue());
+		rule.properties.putAll(properties);
 		return rule;
 	}
 
@@ -173,25 +177,50 @@ public class ProvideSystemProperty extends ExternalResource {
 		return this;
 	}
 
+	/**
+	 * Provides the properties to the test's thread (and to threads that are
+	 * created by it) only. Other tests that run in parallel don't see them.
+	 *
+	 * @return the rule itself.
+	 * @see RestoreSystemProperties#isolatedPerThread()
+	 */
+	public ProvideSystemProperty isolatedPerThread() {
+		isolatedPerThread = true;
+		return this;
+	}
+
 	private void addProperty(String name, String value) {
 		properties.put(name, value);
 	}
 
 	@Override
 	protected void before() throws Throwable {
+		if (isolatedPerThread)
+			overlay = openOverlay();
 		setProperties();
 	}
 
 	private void setProperties() {
+		Properties values = new Properties();
 		for (Entry<String, String> property : properties.entrySet()) {
 			String name = property.getKey();
 			String value = property.getValue();
-			setProperty(name, value);
+			restoreSystemProperty.add(name);
+			if (value == null)
+				clearProperty(name);
+			else
+				values.put(name, value);
 		}
+		getProperties().putAll(values);
 	}
 
 	@Override
 	protected void after() {
-		restoreSystemProperty.restore();
+		if (overlay == null)
+			restoreSystemProperty.restore();
+		else {
+			overlay.close();
+			overlay = null;
+		}
 	}
 }
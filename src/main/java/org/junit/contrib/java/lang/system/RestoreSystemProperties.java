@@ -2,9 +2,10 @@ package org.junit.contrib.java.lang.system;
 
 import static java.lang.System.getProperties;
 import static java.lang.System.setProperties;
+import static org.junit.contrib.java.lang.system.internal.ThreadLocalProperties.openOverlay;
 
-import java.util.Properties;
-
+import org.junit.contrib.java.lang.system.internal.JournalingProperties;
+import org.junit.contrib.java.lang.system.internal.ThreadLocalProperties.Overlay;
 import org.junit.rules.ExternalResource;
 
 /**
@@ -26,9 +27,16 @@ import org.junit.rules.ExternalResource;
  * </pre>
  * After running the test, the system property {@code YourProperty} has
  * the value {@code YourValue} again.
+ *
+ * <p>The rule doesn't copy the system properties. It records the original
+ * value of every property that is changed during the test and restores
+ * these properties after the test. The original {@code Properties} object
+ * is used for the system properties again after the test.
  */
 public class RestoreSystemProperties extends ExternalResource {
-	private Properties originalProperties;
+	private boolean isolatedPerThread = false;
+	private JournalingProperties journal;
+	private Overlay overlay;
 
 	/**
 	 * Creates a {@code RestoreSystemProperties} rule that restores all
@@ -64,20 +72,45 @@ public class RestoreSystemProperties extends ExternalResource {
 	public void add(String property) {
 	}
 
-	@Override
-	protected void before() throws Throwable {
-		originalProperties = getProperties();
-		setProperties(copyOf(originalProperties));
+	/**
+	 * Isolates the system properties of tests that run in parallel. Changes
+	 * of system properties by the test's thread (and by threads that are
+	 * created by it) are only visible to these threads and discarded after
+	 * the test. Other threads don't see them. Threads of a thread pool that
+	 * has been created before the test don't belong to the test.
+	 *
+	 * <p>The first isolated rule replaces the system properties with
+	 * {@code Properties} that resolve every property for the current
+	 * thread. They stay installed after the test. Threads that don't belong
+	 * to an isolated test still read and write the shared properties. The
+	 * isolated mode is also available for {@link ProvideSystemProperty} and
+	 * {@link ClearSystemProperties}.
+	 *
+	 * @return the rule itself.
+	 */
+	public RestoreSystemProperties isolatedPerThread() {
+		isolatedPerThread = true;
+		return this;
 	}
 
-	private Properties copyOf(Properties source) {
-		Properties copy = new Properties();
-		copy.putAll(source);
-		return copy;
+	@Override
+	protected void before() throws Throwable {
+		if (isolatedPerThread)
+			overlay = openOverlay();
+		else {
+			journal = new JournalingProperties(getProperties());
+			setProperties(journal);
+		}
 	}
 
 	@Override
 	protected void after() {
-		setProperties(originalProperties);
+		if (overlay != null) {
+			overlay.close();
+			overlay = null;
+		} else {
+			journal.restore();
+			setProperties(journal.getOriginal());
+		}
 	}
 }
@@ -0,0 +1,153 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getProperties;
+import static java.lang.System.setProperties;
+import static org.junit.contrib.java.lang.system.internal.EnvironmentMaps.getMapOfVariables;
+import static org.junit.contrib.java.lang.system.internal.EnvironmentMaps.setMapOfVariables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.contrib.java.lang.system.internal.AccessCounter;
+import org.junit.contrib.java.lang.system.internal.AccessCounter.Access;
+import org.junit.contrib.java.lang.system.internal.RecordingMap;
+import org.junit.contrib.java.lang.system.internal.RecordingProperties;
+import org.junit.rules.ExternalResource;
+
+/**
+ * The {@code SystemAccessRecorder} rule records which system properties and
+ * environment variables are read by a test. It counts the reads of each
+ * property and variable and remembers the frame that read it first.
+ * <pre>
+ * public class YourTest {
+ *   &#064;Rule
+ *   public final SystemAccessRecorder recorder = new SystemAccessRecorder();
+ *
+ *   &#064;Test
+ *   public void test() {
+ *     ...
+ *     System.out.println(recorder.getReport());
+ *   }
+ * }
+ * </pre>
+ * <p>The report helps to shrink fixtures. Properties and variables that are
+ * not read don't have to be provided.
+ *
+ * <p>The rule replaces the system properties and the map of
+ * {@code System.getenv()} with views that record every read of a single
+ * property or variable. Iterating over all properties or variables is not
+ * recorded. Counting doesn't lock. Therefore recording hardly slows down
+ * code that reads the same property in a loop. On Windows
+ * {@code System.getenv(String)} is not recorded.
+ *
+ * <p><b>Warning:</b> This rule uses reflection for modifying internals of the
+ * environment variables map. It fails if your {@code SecurityManager} forbids
+ * such modifications.
+ */
+public class SystemAccessRecorder extends ExternalResource {
+	private AccessCounter propertyCounter = new AccessCounter();
+	private AccessCounter variableCounter = new AccessCounter();
+	private RecordingProperties properties;
+	private RecordingMap<String, String> variables;
+
+	/**
+	 * Returns the system properties that have been read by the test. The
+	 * most frequently read property is first.
+	 *
+	 * @return the system properties that have been read.
+	 */
+	public List<Read> getReadSystemProperties() {
+		return readsOf(propertyCounter);
+	}
+
+	/**
+	 * Returns the environment variables that have been read by the test.
+	 * The most frequently read variable is first.
+	 *
+	 * @return the environment variables that have been read.
+	 */
+	public List<Read> getReadEnvironmentVariables() {
+		return readsOf(variableCounter);
+	}
+
+	/**
+	 * Returns a report of the system properties and environment variables
+	 * that have been read by the test.
+	 *
+	 * @return the report.
+	 */
+	public String getReport() {
+		StringBuilder sb = new StringBuilder();
+		appendReads(sb, "System properties:", getReadSystemProperties());
+		appendReads(sb, "Environment variables:", getReadEnvironmentVariables());
+		return sb.toString();
+	}
+
+	private void appendReads(StringBuilder sb, String title, List<Read> reads) {
+		sb.append(title).append('\n');
+		for (Read read: reads)
+			sb.append("  ").append(read.getName())
+				.append(" ").append(read.getCount())
+				.append(" (first read by ").append(read.getFirstCaller())
+				.append(")\n");
+	}
+
+	private List<Read> readsOf(AccessCounter counter) {
+		List<Read> reads = new ArrayList<Read>();
+		for (Access access: counter.getAccesses())
+			reads.add(new Read(access));
+		return reads;
+	}
+
+	@Override
+	protected void before() throws Throwable {
+		propertyCounter = new AccessCounter();
+		variableCounter = new AccessCounter();
+		properties = new RecordingProperties(getProperties(), propertyCounter);
+		setProperties(properties);
+		variables = new RecordingMap<String, String>(
+			getMapOfVariables(), variableCounter);
+		setMapOfVariables(variables);
+	}
+
+	@Override
+	protected void after() {
+		setMapOfVariables(variables.getOriginal());
+		if (getProperties() == properties)
+			setProperties(properties.getOriginal());
+	}
+
+	/**
+	 * The reads of a single system property or environment variable.
+	 */
+	public static class Read {
+		private final String name;
+		private final long count;
+		private final StackTraceElement firstCaller;
+
+		Read(Access access) {
+			this.name = access.getKey();
+			this.count = access.getCount();
+			this.firstCaller = access.getFirstCaller();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the frame that read the property or variable first.
+		 * Frames of the JDK are skipped.
+		 *
+		 * @return the frame that read the property or variable first or
+		 * {@code null} if there is no frame outside of the JDK.
+		 */
+		public StackTraceElement getFirstCaller() {
+			return firstCaller;
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.junit.runner.Runner;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.Suite;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
+import org.junit.runners.model.Statement;
+
+/**
+ * The {@code SystemMatrix} runner runs the tests of a class once for every
+ * combination of system properties and environment variables. All
+ * combinations are run in the same JVM.
+ * <pre>
+ * &#064;RunWith(SystemMatrix.class)
+ * &#064;SystemMatrix.Properties({
+ *   &#064;SystemMatrix.Dimension(name = "mode", values = {"a", "b", "c"})
+ * })
+ * &#064;SystemMatrix.Variables({
+ *   &#064;SystemMatrix.Dimension(name = "ENV", values = {"x", "y"})
+ * })
+ * public class YourTest {
+ *   &#064;Test
+ *   public void test() {
+ *     ...
+ *   }
+ * }
+ * </pre>
+ * <p>The tests of {@code YourTest} are run six times. The combination is
+ * appended to the name of each test, e.g. {@code test[mode=a, ENV=x]}.
+ * A combination is provided by {@link ProvideSystemProperty} and
+ * {@link EnvironmentVariables} for all tests of the class, including the
+ * methods that are annotated with {@code @BeforeClass} and
+ * {@code @AfterClass}. The properties and variables are restored after the
+ * last test of the combination.
+ *
+ * <p>The combinations are run in parallel if the class is annotated with
+ * {@link Parallel}. Every combination is run by a single thread and sees its
+ * own system properties and environment variables only (see
+ * {@link ProvideSystemProperty#isolatedPerThread()} and
+ * {@link EnvironmentVariables#isolatedPerThread()}).
+ *
+ * <p><b>Warning:</b> This runner uses reflection for modifying internals of
+ * the environment variables map if the matrix has environment variables. It
+ * fails if your {@code SecurityManager} forbids such modifications.
+ */
+public class SystemMatrix extends Suite {
+	private final List<Runner> runners;
+
+	/**
+	 * The system properties of the matrix.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface Properties {
+		Dimension[] value();
+	}
+
+	/**
+	 * The environment variables of the matrix.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface Variables {
+		Dimension[] value();
+	}
+
+	/**
+	 * The values of a single system property or environment variable.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({})
+	public @interface Dimension {
+		String name();
+
+		String[] values();
+	}
+
+	/**
+	 * Runs the combinations in parallel.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface Parallel {
+		/**
+		 * The maximal number of combinations that are run at the same
+		 * time. Default: the number of processors.
+		 */
+		int threads() default 0;
+	}
+
+	/**
+	 * Only called reflectively. Do not use programmatically.
+	 */
+	public SystemMatrix(Class<?> klass) throws InitializationError {
+		super(klass, Collections.<Runner>emptyList());
+		Dimension[] properties = dimensionsOf(klass.getAnnotation(Properties.class));
+		Dimension[] variables = dimensionsOf(klass.getAnnotation(Variables.class));
+		Parallel parallel = klass.getAnnotation(Parallel.class);
+		runners = new ArrayList<Runner>();
+		for (Combination combination: combinationsOf(properties, variables))
+			runners.add(new CombinationRunner(
+				klass, combination, parallel != null));
+		if (parallel != null)
+			setScheduler(new ParallelScheduler(threadsOf(parallel)));
+	}
+
+	@Override
+	protected List<Runner> getChildren() {
+		return runners;
+	}
+
+	@Override
+	protected Statement classBlock(RunNotifier notifier) {
+		//the class methods and rules are run by each combination
+		return childrenInvoker(notifier);
+	}
+
+	private static Dimension[] dimensionsOf(Properties properties) {
+		return (properties == null) ? new Dimension[0] : properties.value();
+	}
+
+	private static Dimension[] dimensionsOf(Variables variables) {
+		return (variables == null) ? new Dimension[0] : variables.value();
+	}
+
+	private int threadsOf(Parallel parallel) {
+		int threads = (parallel.threads() > 0) ? parallel.threads()
+			: Runtime.getRuntime().availableProcessors();
+		return Math.max(1, Math.min(threads, runners.size()));
+	}
+
+	private static List<Combination> combinationsOf(Dimension[] properties,
+			Dimension[] variables) {
+		List<Combination> combinations = new ArrayList<Combination>();
+		combinations.add(new Combination());
+		for (Dimension property: properties)
+			combinations = expand(combinations, property, true);
+		for (Dimension variable: variables)
+			combinations = expand(combinations, variable, false);
+		return combinations;
+	}
+
+	private static List<Combination> expand(List<Combination> combinations,
+			Dimension dimension, boolean property) {
+		List<Combination> expanded = new ArrayList<Combination>();
+		for (Combination combination: combinations)
+			for (String value: dimension.values())
+				expanded.add(combination.with(dimension.name(), value, property));
+		return expanded;
+	}
+
+	private static class Combination {
+		final Map<String, String> properties = new LinkedHashMap<String, String>();
+		final Map<String, String> variables = new LinkedHashMap<String, String>();
+
+		Combination with(String name, String value, boolean property) {
+			Combination combination = new Combination();
+			combination.properties.putAll(properties);
+			combination.variables.putAll(variables);
+			if (property)
+				combination.properties.put(name, value);
+			else
+				combination.variables.put(name, value);
+			return combination;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("[");
+			for (Map.Entry<String, String> property: properties.entrySet())
+				append(sb, property);
+			for (Map.Entry<String, String> variable: variables.entrySet())
+				append(sb, variable);
+			return sb.append("]").toString();
+		}
+
+		private void append(StringBuilder sb, Map.Entry<String, String> entry) {
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(entry.getKey()).append("=").append(entry.getValue());
+		}
+	}
+
+	private static class CombinationRunner extends BlockJUnit4ClassRunner {
+		private final Combination combination;
+		private final boolean isolatedPerThread;
+
+		CombinationRunner(Class<?> klass, Combination combination,
+				boolean isolatedPerThread) throws InitializationError {
+			super(klass);
+			this.combination = combination;
+			this.isolatedPerThread = isolatedPerThread;
+		}
+
+		@Override
+		protected String getName() {
+			return combination.toString();
+		}
+
+		@Override
+		protected String testName(FrameworkMethod method) {
+			return method.getName() + combination;
+		}
+
+		@Override
+		protected Statement classBlock(RunNotifier notifier) {
+			Statement statement = super.classBlock(notifier);
+			if (!combination.variables.isEmpty())
+				statement = withVariables(statement);
+			if (!combination.properties.isEmpty())
+				statement = withProperties(statement);
+			return statement;
+		}
+
+		private Statement withProperties(Statement statement) {
+			ProvideSystemProperty provideSystemProperty = null;
+			for (Map.Entry<String, String> property:
+					combination.properties.entrySet())
+				if (provideSystemProperty == null)
+					provideSystemProperty = new ProvideSystemProperty(
+						property.getKey(), property.getValue());
+				else
+					provideSystemProperty.and(
+						property.getKey(), property.getValue());
+			if (isolatedPerThread)
+				provideSystemProperty.isolatedPerThread();
+			return provideSystemProperty.apply(statement, getDescription());
+		}
+
+		private Statement withVariables(final Statement statement) {
+			final EnvironmentVariables environmentVariables
+				= new EnvironmentVariables();
+			if (isolatedPerThread)
+				environmentVariables.isolatedPerThread();
+			return environmentVariables.apply(new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					for (Map.Entry<String, String> variable:
+							combination.variables.entrySet())
+						environmentVariables.set(
+							variable.getKey(), variable.getValue());
+					statement.evaluate();
+				}
+			}, getDescription());
+		}
+	}
+
+	private static class ParallelScheduler implements RunnerScheduler {
+		private final ExecutorService executor;
+		private final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+		ParallelScheduler(int threads) {
+			executor = newFixedThreadPool(threads);
+		}
+
+		public void schedule(Runnable childStatement) {
+			futures.add(executor.submit(childStatement));
+		}
+
+		/**
+		 * Waits for all children and rethrows the first exception of a
+		 * child (e.g. a {@code StoppedByUserException}) like a sequential
+		 * run does.
+		 */
+		public void finished() {
+			executor.shutdown();
+			Throwable firstException = null;
+			try {
+				for (Future<?> future: futures)
+					try {
+						future.get();
+					} catch (ExecutionException e) {
+						if (firstException == null)
+							firstException = e.getCause();
+					}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (firstException instanceof RuntimeException)
+				throw (RuntimeException) firstException;
+			else if (firstException instanceof Error)
+				throw (Error) firstException;
+			else if (firstException != null)
+				throw new RuntimeException(firstException);
+		}
+	}
+}
@@ -149,6 +149,16 @@ import org.junit.runners.model.Statement;
  * }
  * </pre>
  *
+ * <p>Tests that write a lot of text may flood the console when they fail.
+ * You can limit the output of failing tests to the first and last lines.
+ *
+ * <pre>
+ * public class SystemOutTest {
+ *   &#064;Rule
+ *   public final SystemOutRule systemOutRule = new SystemOutRule().muteForSuccessfulTests(100, 100);
+ * }
+ * </pre>
+ *
  * <h2>Combine Logging and Muting</h2>
  *
  * <p>Logging and muting can be combined. No output is actually written to
@@ -167,6 +177,32 @@ import org.junit.runners.model.Statement;
  *   }
  * }
  * </pre>
+ *
+ * <h2>Output of Other Threads</h2>
+ *
+ * <p>Text that is written by threads which have been created by the test's
+ * thread is captured, too. Tasks that are executed by already existing
+ * threads (e.g. a shared {@code ExecutorService} or a {@code ForkJoinPool})
+ * can be decorated by {@link OutputCapturePropagation}. Their text is written
+ * to the rule of the test that submitted them, even if tests run
+ * concurrently.
+ *
+ * <pre>
+ * public class SystemOutTest {
+ *   &#064;Rule
+ *   public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+ *
+ *   &#064;Test
+ *   public void test() throws Exception {
+ *     propagateCapture(sharedExecutor).submit(new Runnable() {
+ *       public void run() {
+ *         System.out.print("some text");
+ *       }
+ *     }).get();
+ *     assertEquals("some text", systemOutRule.getLog());
+ *   }
+ * }
+ * </pre>
  */
 public class SystemOutRule implements TestRule {
 	private LogPrintStream logPrintStream = new LogPrintStream(SYSTEM_OUT);
@@ -192,6 +228,28 @@ public class SystemOutRule implements TestRule {
 		return this;
 	}
 
+	/**
+	 * Suppress the output to {@code System.out} for successful tests only.
+	 * For failing tests only the first {@code headLines} and the last
+	 * {@code tailLines} lines are written to {@code System.out}, separated by a
+	 * line that tells how many lines and bytes have been omitted. The rule
+	 * doesn't store the omitted lines. Lines that are longer than
+	 * {@value org.junit.contrib.java.lang.system.internal.HeadAndTailLog#DEFAULT_MAX_LINE_LENGTH}
+	 * bytes are truncated.
+	 *
+	 * @param headLines the number of lines at the beginning of the output
+	 * that are written for failing tests.
+	 * @param tailLines the number of lines at the end of the output that are
+	 * written for failing tests.
+	 * @return the rule itself.
+	 * @throws IllegalArgumentException if {@code headLines} or
+	 * {@code tailLines} is negative.
+	 */
+	public SystemOutRule muteForSuccessfulTests(int headLines, int tailLines) {
+		logPrintStream.muteForSuccessfulTests(headLines, tailLines);
+		return this;
+	}
+
 	/**
 	 * Clears the current log.
 	 */
@@ -0,0 +1,127 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getProperty;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.contrib.java.lang.system.internal.PropertyLeaks;
+import org.junit.contrib.java.lang.system.internal.PropertyLeaks.Leak;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * The {@code SystemPropertyLeakDetector} is a {@code RunListener} that finds
+ * the tests which change system properties without restoring them. At the
+ * end of the test run it writes a report with the added, changed and removed
+ * properties of each of these tests.
+ *
+ * <p>Add the detector to Surefire's configuration.
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;artifactId&gt;maven-surefire-plugin&lt;/artifactId&gt;
+ *   &lt;configuration&gt;
+ *     &lt;properties&gt;
+ *       &lt;property&gt;
+ *         &lt;name&gt;listener&lt;/name&gt;
+ *         &lt;value&gt;org.junit.contrib.java.lang.system.SystemPropertyLeakDetector&lt;/value&gt;
+ *       &lt;/property&gt;
+ *     &lt;/properties&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ * <p>The report is written to the file that is specified by the system
+ * property {@code systemrules.propertyLeaks.report}. Default:
+ * {@code target/system-property-leaks.txt}
+ *
+ * <p>The detector doesn't copy the system properties for every test. It
+ * replaces them with a view that maintains a fingerprint of the properties.
+ * The properties are only compared with a snapshot if the fingerprint has
+ * been changed by a test. Changes that are made outside of tests (e.g. by
+ * a method that is annotated with {@code @BeforeClass}) are attributed to
+ * the next test with the suffix {@code (before the test)}. Changes by code
+ * that bypasses the view (e.g. by a reference to the properties that has
+ * been obtained before the test run) don't change the fingerprint. They are
+ * reported together with the next change that is made through the view.
+ * Please note that every JVM writes its own report.
+ */
+public class SystemPropertyLeakDetector extends RunListener {
+	private static final String REPORT_PROPERTY = "systemrules.propertyLeaks.report";
+	private static final String DEFAULT_REPORT = "target/system-property-leaks.txt";
+	private static final String BEFORE_TEST = " (before the test)";
+	private static final String AFTER_LAST_TEST = "(after the last test)";
+
+	private final File report;
+	private final PropertyLeaks leaks = new PropertyLeaks();
+
+	/**
+	 * Creates a {@code SystemPropertyLeakDetector} that is configured by
+	 * system properties.
+	 */
+	public SystemPropertyLeakDetector() {
+		this(new File(getProperty(REPORT_PROPERTY, DEFAULT_REPORT)));
+	}
+
+	/**
+	 * Creates a {@code SystemPropertyLeakDetector}.
+	 *
+	 * @param report the report file.
+	 */
+	public SystemPropertyLeakDetector(File report) {
+		this.report = report;
+	}
+
+	@Override
+	public void testRunStarted(Description description) throws Exception {
+		leaks.startWatching();
+	}
+
+	@Override
+	public void testStarted(Description description) {
+		leaks.check(description.getDisplayName() + BEFORE_TEST);
+	}
+
+	@Override
+	public void testFinished(Description description) {
+		leaks.check(description.getDisplayName());
+	}
+
+	@Override
+	public void testRunFinished(Result result) throws Exception {
+		leaks.check(AFTER_LAST_TEST);
+		leaks.stopWatching();
+		writeReport(leaks.getLeaks());
+	}
+
+	private void writeReport(List<Leak> leaks) throws IOException {
+		File directory = report.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create directory " + directory + ".");
+		PrintWriter writer = new PrintWriter(
+			new OutputStreamWriter(new FileOutputStream(report), "UTF-8"));
+		try {
+			for (Leak leak: leaks) {
+				writer.println(leak.getTest());
+				for (Map.Entry<String, String> property: leak.getAdded().entrySet())
+					writer.println("  added " + property.getKey() + "="
+						+ property.getValue());
+				for (Map.Entry<String, String[]> property: leak.getChanged().entrySet())
+					writer.println("  changed " + property.getKey() + "="
+						+ property.getValue()[1] + " (was "
+						+ property.getValue()[0] + ")");
+				for (Map.Entry<String, String> property: leak.getRemoved().entrySet())
+					writer.println("  removed " + property.getKey() + "="
+						+ property.getValue());
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -1,14 +1,28 @@
 package org.junit.contrib.java.lang.system;
 
+import static java.lang.Integer.MAX_VALUE;
 import static java.lang.System.getProperty;
 import static java.lang.System.in;
 import static java.lang.System.setIn;
+import static java.nio.ByteBuffer.wrap;
 import static java.nio.charset.Charset.defaultCharset;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
 
+import org.junit.contrib.java.lang.system.internal.ByteBufferInputSource;
+import org.junit.contrib.java.lang.system.internal.InputSource;
+import org.junit.contrib.java.lang.system.internal.LinesInputSource;
+import org.junit.contrib.java.lang.system.internal.MappedFileInputSource;
+import org.junit.contrib.java.lang.system.internal.RingBufferInputSource;
+import org.junit.contrib.java.lang.system.internal.StreamInputSource;
 import org.junit.rules.ExternalResource;
 
 /**
@@ -32,6 +46,64 @@ import org.junit.rules.ExternalResource;
  *   }
  * </pre>
  *
+ * <h3>Encoding</h3>
+ * <p>The text is encoded once when it is provided. The platform's default
+ * charset is used unless you specify another one.
+ * <pre>
+ *   &#064;Rule
+ *   public final TextFromStandardInputStream systemInMock
+ *     = emptyStandardInputStream().useCharset(Charset.forName("UTF-8"));
+ * </pre>
+ *
+ * <h3>Large Inputs</h3>
+ * <p>{@code System.in.read(byte[], int, int)} returns a single line at most.
+ * This allows tests to create a new {@code Scanner} for every line. If your
+ * code under test reads large inputs with a single reader then
+ * {@link #disableLineByLineReading()} lets {@code System.in} fill the whole
+ * buffer of the reader. {@code System.in} also supports
+ * {@code available()}, {@code skip(long)} and {@code mark(int)}/{@code reset()}.
+ *
+ * <p>Inputs that are too large for memory can be provided lazily by an
+ * {@code InputStream} ({@link #provideInput(InputStream)}), an
+ * {@code Iterator} ({@link #provideLines(Iterator)}) or a
+ * {@link LineSupplier} ({@link #provideLines(LineSupplier)}). Large
+ * recorded inputs can be memory-mapped by {@link #provideFile(File)}.
+ *
+ * <p>Binary input is provided by {@link #provideBytes(byte[])} or
+ * {@link #provideBytes(ByteBuffer)}. An {@link InputFixture} is encoded once
+ * and can be provided to many tests ({@link #provideInput(InputFixture)}).
+ *
+ * <h3>Interactive Programs</h3>
+ * <p>Programs like shells read a line, process it and read the next line
+ * afterwards. You can test them by sending lines while the program is
+ * running.
+ * <pre>
+ *   &#064;Test
+ *   public void readsCommandsUntilExit() throws Exception {
+ *     InteractiveInput input = systemInMock.provideInteractiveInput();
+ *     Thread shell = new Thread(new Shell());
+ *     shell.start();
+ *     input.send("help");
+ *     input.send("exit");
+ *     input.close();
+ *     shell.join();
+ *   }
+ * </pre>
+ *
+ * <h3>Slow Input</h3>
+ * <p>Pipes and network connections deliver their input piece by piece. You
+ * can simulate this by limiting the rate ({@link #deliverAtRate(long)}), the
+ * number of bytes per read ({@link #deliverInChunksOf(int)}) or by delaying
+ * each line ({@link #delayEachLine(long)}). {@code System.in.available()}
+ * always returns {@code 0} for such an input. The delays are real delays
+ * unless you provide a {@link VirtualInputClock} by
+ * {@link #useClock(InputClock)}. It doesn't wait at all and tells you how
+ * long the input would have taken.
+ * <pre>
+ *   VirtualInputClock clock = new VirtualInputClock();
+ *   systemInMock.useClock(clock).deliverAtRate(1024).deliverInChunksOf(16);
+ * </pre>
+ *
  * <h3>Throwing Exceptions</h3>
  * <p>{@code TextFromStandardInputStream} can also simulate a {@code System.in}
  * that throws an {@code IOException} or {@code RuntimeException}. Use
@@ -42,6 +114,8 @@ import org.junit.rules.ExternalResource;
  * exception is thrown after the text has been read from {@code System.in}.
  */
 public class TextFromStandardInputStream extends ExternalResource {
+	private static final int DEFAULT_INTERACTIVE_BUFFER_SIZE = 8192;
+	private static final long DEFAULT_INTERACTIVE_TIMEOUT = 10000;
 	private final SystemInMock systemInMock = new SystemInMock();
 	private InputStream originalIn;
 
@@ -84,6 +158,231 @@ public class TextFromStandardInputStream extends ExternalResource {
 		systemInMock.provideText(joinLines(lines));
 	}
 
+	/**
+	 * Set the lines that are returned by {@code System.in}. The lines are
+	 * taken from the iterator and encoded lazily while {@code System.in} is
+	 * read. Therefore the input can be larger than the available memory.
+	 * {@code System.getProperty("line.separator")} is used for the end
+	 * of line.
+	 *
+	 * @param lines an iterator over the lines.
+	 */
+	public void provideLines(final Iterator<String> lines) {
+		systemInMock.provideLines(new LineSupplier() {
+			public String get() {
+				return lines.hasNext() ? lines.next() : null;
+			}
+		});
+	}
+
+	/**
+	 * Set the lines that are returned by {@code System.in}. The lines are
+	 * requested from the supplier and encoded lazily while {@code System.in}
+	 * is read. Therefore the input can be larger than the available memory.
+	 * {@code System.getProperty("line.separator")} is used for the end
+	 * of line.
+	 *
+	 * @param lines supplies the lines. The input ends when it returns
+	 * {@code null}.
+	 */
+	public void provideLines(LineSupplier lines) {
+		systemInMock.provideLines(lines);
+	}
+
+	/**
+	 * Set the input that is returned by {@code System.in}. The input is read
+	 * lazily while {@code System.in} is read. It is closed after the test.
+	 * Line-by-line reading requires reading byte by byte from arbitrary
+	 * streams. Use {@link #disableLineByLineReading()} for large inputs.
+	 *
+	 * @param input the input stream.
+	 */
+	public void provideInput(InputStream input) {
+		systemInMock.provideInput(new StreamInputSource(input));
+	}
+
+	/**
+	 * Set the bytes that are returned by {@code System.in}. The array is not
+	 * copied. Therefore it must not be modified during the test.
+	 *
+	 * @param bytes the bytes.
+	 */
+	public void provideBytes(byte[] bytes) {
+		provideBytes(wrap(bytes));
+	}
+
+	/**
+	 * Set the bytes that are returned by {@code System.in}. These are the
+	 * bytes between the buffer's position and its limit. The position of
+	 * the buffer is not changed and the bytes are not copied. Therefore the
+	 * same buffer can be provided to many tests.
+	 *
+	 * @param bytes the bytes.
+	 */
+	public void provideBytes(ByteBuffer bytes) {
+		systemInMock.provideInput(
+			new ByteBufferInputSource(bytes.asReadOnlyBuffer()));
+	}
+
+	/**
+	 * Set the input that is returned by {@code System.in}. The fixture has
+	 * already been encoded and is neither encoded nor copied again.
+	 * {@code System.in} reads it line by line according to the fixture's
+	 * charset.
+	 *
+	 * @param fixture the input.
+	 */
+	public void provideInput(InputFixture fixture) {
+		systemInMock.provideInput(
+			new ByteBufferInputSource(fixture.newBuffer()),
+			fixture.getCharset());
+	}
+
+	/**
+	 * Set the file whose content is returned by {@code System.in}. The file
+	 * is memory-mapped and its bytes are returned as they are. They are
+	 * neither loaded into the heap nor decoded. The mapping is released
+	 * after the test.
+	 *
+	 * @param file the file.
+	 * @throws IllegalArgumentException if the file cannot be read.
+	 */
+	public void provideFile(File file) {
+		try {
+			systemInMock.provideInput(new MappedFileInputSource(file));
+		} catch (IOException e) {
+			throw new IllegalArgumentException(
+				"Cannot provide file \"" + file + "\" because it cannot be read.",
+				e);
+		}
+	}
+
+	/**
+	 * Lets the test send text to {@code System.in} while the code under test
+	 * is already reading it. {@code System.in} blocks until text is sent or
+	 * the input is closed. The text is buffered in a buffer of 8 KiB. Both
+	 * {@code System.in} and {@link InteractiveInput#send(String)} fail after
+	 * waiting for 10 seconds.
+	 *
+	 * @return the input that sends the text.
+	 * @see #provideInteractiveInput(int, long)
+	 */
+	public InteractiveInput provideInteractiveInput() {
+		return provideInteractiveInput(
+			DEFAULT_INTERACTIVE_BUFFER_SIZE, DEFAULT_INTERACTIVE_TIMEOUT);
+	}
+
+	/**
+	 * Lets the test send text to {@code System.in} while the code under test
+	 * is already reading it. {@code System.in} blocks until text is sent or
+	 * the input is closed. If no text is sent within the timeout then
+	 * {@code System.in} throws an {@code InterruptedIOException}. If
+	 * {@code System.in} is not read within the timeout while the buffer is
+	 * full then {@link InteractiveInput#send(String)} throws an
+	 * {@code AssertionError}.
+	 *
+	 * @param bufferSize the maximal number of bytes that have been sent but
+	 * not read.
+	 * @param timeoutMillis the maximal time in milliseconds that both sides
+	 * wait for each other.
+	 * @return the input that sends the text.
+	 */
+	public InteractiveInput provideInteractiveInput(int bufferSize,
+			long timeoutMillis) {
+		return systemInMock.provideInteractiveInput(bufferSize, timeoutMillis);
+	}
+
+	/**
+	 * Sets the charset that is used for encoding the text that is provided
+	 * afterwards. The default charset is the platform's default charset.
+	 *
+	 * @param charset the charset that is used for encoding the text.
+	 * @return the rule itself.
+	 */
+	public TextFromStandardInputStream useCharset(Charset charset) {
+		systemInMock.setCharset(charset);
+		return this;
+	}
+
+	/**
+	 * By default {@code System.in.read(byte[], int, int)} reads one line at
+	 * most. This allows you to create a new {@code Scanner} or
+	 * {@code BufferedReader} for every line that is read. After calling this
+	 * method {@code System.in} reads as many bytes as requested and
+	 * available. This is faster for large inputs but a reader that buffers
+	 * input may consume more than a single line.
+	 *
+	 * @return the rule itself.
+	 */
+	public TextFromStandardInputStream disableLineByLineReading() {
+		systemInMock.disableLineByLineReading();
+		return this;
+	}
+
+	/**
+	 * Limits the rate of the input. {@code System.in} returns the bytes
+	 * not earlier than they would arrive at the specified rate. A single read
+	 * returns the bytes of 100 milliseconds at most.
+	 *
+	 * @param bytesPerSecond the rate in bytes per second.
+	 * @return the rule itself.
+	 * @throws IllegalArgumentException if {@code bytesPerSecond} is not
+	 * positive.
+	 */
+	public TextFromStandardInputStream deliverAtRate(long bytesPerSecond) {
+		if (bytesPerSecond < 1)
+			throw new IllegalArgumentException(
+				"The rate must be at least 1 byte per second.");
+		systemInMock.setBytesPerSecond(bytesPerSecond);
+		return this;
+	}
+
+	/**
+	 * Limits the number of bytes that are returned by a single read of
+	 * {@code System.in}.
+	 *
+	 * @param numberOfBytes the maximal number of bytes per read.
+	 * @return the rule itself.
+	 * @throws IllegalArgumentException if {@code numberOfBytes} is not
+	 * positive.
+	 */
+	public TextFromStandardInputStream deliverInChunksOf(int numberOfBytes) {
+		if (numberOfBytes < 1)
+			throw new IllegalArgumentException(
+				"The chunks must have at least 1 byte.");
+		systemInMock.setChunkSize(numberOfBytes);
+		return this;
+	}
+
+	/**
+	 * Delays each line. {@code System.in} waits before it returns the first
+	 * byte of a line. A single read returns a single line at most.
+	 *
+	 * @param millis the delay in milliseconds.
+	 * @return the rule itself.
+	 * @throws IllegalArgumentException if {@code millis} is negative.
+	 */
+	public TextFromStandardInputStream delayEachLine(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException(
+				"The delay must not be negative.");
+		systemInMock.setLineDelayNanos(MILLISECONDS.toNanos(millis));
+		return this;
+	}
+
+	/**
+	 * Sets the clock that is used for delaying the input. By default the
+	 * input is delayed in real time.
+	 *
+	 * @param clock the clock.
+	 * @return the rule itself.
+	 * @see VirtualInputClock
+	 */
+	public TextFromStandardInputStream useClock(InputClock clock) {
+		systemInMock.setClock(clock);
+		return this;
+	}
+
 	/**
 	 * Specify an {@code IOException} that is thrown by {@code System.in}. If
 	 * you call {@link #provideLines(String...)} or
@@ -137,15 +436,87 @@ public class TextFromStandardInputStream extends ExternalResource {
 	@Override
 	protected void after() {
 		setIn(originalIn);
+		systemInMock.closeInput();
 	}
 
 	private static class SystemInMock extends InputStream {
-		private StringReader currentReader;
+		private InputSource input;
+		private Charset charset = defaultCharset();
+		private boolean lineByLine = true;
+		private byte[] lineSeparator;
 		private IOException ioException;
 		private RuntimeException runtimeException;
+		private int chunkSize = MAX_VALUE;
+		private long bytesPerSecond = 0;
+		private long lineDelayNanos = 0;
+		private InputClock clock = new SystemInputClock();
+		private long endOfLastDelivery = Long.MIN_VALUE;
+		private boolean atStartOfLine = true;
 
 		void provideText(String text) {
-			currentReader = new StringReader(text);
+			provideInput(new ByteBufferInputSource(wrap(text.getBytes(charset))));
+		}
+
+		void provideLines(final LineSupplier lines) {
+			provideInput(new LinesInputSource(
+					charset, getProperty("line.separator")) {
+				@Override
+				protected String nextLine() {
+					return lines.get();
+				}
+			});
+		}
+
+		InteractiveInput provideInteractiveInput(int bufferSize,
+				long timeoutMillis) {
+			RingBufferInputSource buffer = new RingBufferInputSource(
+				bufferSize, timeoutMillis);
+			provideInput(buffer);
+			return new InteractiveInput(buffer, charset);
+		}
+
+		void provideInput(InputSource input) {
+			provideInput(input, charset);
+		}
+
+		void provideInput(InputSource input, Charset charsetOfInput) {
+			lineSeparator = getProperty("line.separator").getBytes(charsetOfInput);
+			closeInput();
+			this.input = input;
+		}
+
+		void closeInput() {
+			if (input != null)
+				try {
+					input.close();
+				} catch (IOException e) {
+					throw new RuntimeException(
+						"The input of System.in cannot be closed.", e);
+				}
+		}
+
+		void setCharset(Charset charset) {
+			this.charset = charset;
+		}
+
+		void disableLineByLineReading() {
+			lineByLine = false;
+		}
+
+		void setBytesPerSecond(long bytesPerSecond) {
+			this.bytesPerSecond = bytesPerSecond;
+		}
+
+		void setChunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		void setLineDelayNanos(long lineDelayNanos) {
+			this.lineDelayNanos = lineDelayNanos;
+		}
+
+		void setClock(InputClock clock) {
+			this.clock = clock;
 		}
 
 		void throwExceptionOnInputEnd(IOException exception) {
@@ -168,7 +539,11 @@ public class TextFromStandardInputStream extends ExternalResource {
 
 		@Override
 		public int read() throws IOException {
-			int character = currentReader.read();
+			if (isShaped()) {
+				byte[] b = new byte[1];
+				return (read(b, 0, 1) == -1) ? -1 : b[0] & 0xff;
+			}
+			int character = input.read();
 			if (character == -1)
 				handleEmptyReader();
 			return character;
@@ -189,43 +564,100 @@ public class TextFromStandardInputStream extends ExternalResource {
 				throw new IndexOutOfBoundsException();
 			else if (len == 0)
 				return 0;
-			else
-				return readNextLine(buffer, offset, len);
-		}
-
-		private int readNextLine(byte[] buffer, int offset, int len)
-				throws IOException {
-			int c = read();
-			if (c == -1)
-				return -1;
-			buffer[offset] = (byte) c;
-
-			int i = 1;
-			for (; (i < len) && !isCompleteLineWritten(buffer, i - 1); ++i) {
-				byte read = (byte) read();
-				if (read == -1)
-					break;
-				else
-					buffer[offset + i] = read;
-			}
-			return i;
+			int maxLength = maxBytesPerRead(len);
+			int numberOfBytes = (lineByLine || lineDelayNanos > 0)
+				? input.readLine(buffer, offset, maxLength, lineSeparator)
+				: input.read(buffer, offset, maxLength);
+			if (numberOfBytes == -1)
+				handleEmptyReader();
+			else if (isShaped())
+				delay(buffer, offset, numberOfBytes);
+			return numberOfBytes;
+		}
+
+		private boolean isShaped() {
+			return chunkSize != MAX_VALUE || bytesPerSecond > 0
+				|| lineDelayNanos > 0;
 		}
 
-		private boolean isCompleteLineWritten(byte[] buffer,
-				int indexLastByteWritten) {
-			byte[] separator = getProperty("line.separator")
-				.getBytes(defaultCharset());
-			int indexFirstByteOfSeparator = indexLastByteWritten
-				- separator.length + 1;
-			return indexFirstByteOfSeparator >= 0
-				&& contains(buffer, separator, indexFirstByteOfSeparator);
+		private int maxBytesPerRead(int len) {
+			int maxLength = Math.min(len, chunkSize);
+			if (bytesPerSecond > 0)
+				maxLength = (int) Math.min(maxLength,
+					Math.max(1, bytesPerSecond / 10));
+			return maxLength;
 		}
 
-		private boolean contains(byte[] array, byte[] pattern, int indexStart) {
-			for (int i = 0; i < pattern.length; ++i)
-                if (array[indexStart + i] != pattern[i])
-                    return false;
+		private void delay(byte[] buffer, int offset, int numberOfBytes)
+				throws InterruptedIOException {
+			try {
+				if (atStartOfLine && lineDelayNanos > 0)
+					clock.sleep(lineDelayNanos);
+				if (bytesPerSecond > 0) {
+					long now = clock.nanoTime();
+					endOfLastDelivery = Math.max(now, endOfLastDelivery)
+						+ numberOfBytes * 1000000000L / bytesPerSecond;
+					clock.sleep(endOfLastDelivery - now);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+					"Interrupted while delaying the input.");
+			}
+			atStartOfLine = endsWithLineSeparator(buffer, offset, numberOfBytes);
+		}
+
+		private boolean endsWithLineSeparator(byte[] buffer, int offset,
+				int numberOfBytes) {
+			if (numberOfBytes < lineSeparator.length)
+				return false;
+			int start = offset + numberOfBytes - lineSeparator.length;
+			for (int i = 0; i < lineSeparator.length; ++i)
+				if (buffer[start + i] != lineSeparator[i])
+					return false;
 			return true;
 		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			return input.skip(n);
+		}
+
+		@Override
+		public int available() throws IOException {
+			//readers like InputStreamReader continue reading as long as bytes
+			//are available.
+			if (isShaped())
+				return 0;
+			return lineByLine
+				? input.availableInLine(lineSeparator)
+				: input.available();
+		}
+
+		@Override
+		public boolean markSupported() {
+			return input.markSupported();
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			input.mark(readlimit);
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			input.reset();
+		}
+	}
+
+	private static class SystemInputClock implements InputClock {
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+
+		public void sleep(long nanos) throws InterruptedException {
+			if (nanos > 0)
+				NANOSECONDS.sleep(nanos);
+		}
 	}
 }
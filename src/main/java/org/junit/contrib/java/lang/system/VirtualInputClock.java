@@ -0,0 +1,27 @@
+package org.junit.contrib.java.lang.system;
+
+/**
+ * A {@code VirtualInputClock} doesn't wait. It only advances its time when
+ * {@link #sleep(long)} is called. It keeps tests with slow input fast and
+ * lets them check how long the input would have taken.
+ *
+ * <pre>
+ *   VirtualInputClock clock = new VirtualInputClock();
+ *   systemInMock.useClock(clock).deliverAtRate(10);
+ *   systemInMock.provideLines("123456789");
+ *   //code under test reads System.in
+ *   assertEquals(1000000000L, clock.nanoTime());
+ * </pre>
+ */
+public class VirtualInputClock implements InputClock {
+	private long nanoTime = 0;
+
+	public synchronized long nanoTime() {
+		return nanoTime;
+	}
+
+	public synchronized void sleep(long nanos) {
+		if (nanos > 0)
+			nanoTime += nanos;
+	}
+}
@@ -0,0 +1,91 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.junit.contrib.java.lang.system.internal.CallSites.callingFrame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code AccessCounter} counts how often each key is read. It doesn't
+ * lock. Reading a key that has been read before only increments an atomic
+ * counter. The calling frame is only determined for the first read of a
+ * key.
+ */
+public class AccessCounter {
+	private final ConcurrentMap<String, Access> accesses
+		= new ConcurrentHashMap<String, Access>();
+
+	/**
+	 * Records a read of the given key. Keys that are not strings are
+	 * ignored.
+	 *
+	 * @param key the key that is read.
+	 */
+	public void record(Object key) {
+		if (!(key instanceof String))
+			return;
+		Access access = accesses.get(key);
+		if (access == null) {
+			Access newAccess = new Access((String) key, callingFrame());
+			access = accesses.putIfAbsent((String) key, newAccess);
+			if (access == null)
+				access = newAccess;
+		}
+		access.count.incrementAndGet();
+	}
+
+	/**
+	 * Returns the keys that have been read. The most frequently read key is
+	 * first.
+	 *
+	 * @return the keys that have been read.
+	 */
+	public List<Access> getAccesses() {
+		List<Access> list = new ArrayList<Access>(accesses.values());
+		Collections.sort(list, new Comparator<Access>() {
+			public int compare(Access first, Access second) {
+				long firstCount = first.getCount();
+				long secondCount = second.getCount();
+				return (firstCount == secondCount)
+					? first.getKey().compareTo(second.getKey())
+					: (firstCount > secondCount) ? -1 : 1;
+			}
+		});
+		return list;
+	}
+
+	public static class Access {
+		private final String key;
+		private final StackTraceElement firstCaller;
+		private final AtomicLong count = new AtomicLong();
+
+		Access(String key, StackTraceElement firstCaller) {
+			this.key = key;
+			this.firstCaller = firstCaller;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * Returns the frame that read the key first. Frames of the JDK are
+		 * skipped.
+		 *
+		 * @return the frame that read the key first or {@code null} if
+		 * there is no frame outside of the JDK.
+		 */
+		public StackTraceElement getFirstCaller() {
+			return firstCaller;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An {@code AllowList} decides whether a class is allowed to write to
+ * {@code System.out} or {@code System.err}. A class is allowed if it or
+ * its package is in the list. The decision is cached for every class, so
+ * that the list is only searched once per class.
+ */
+class AllowList {
+	private final List<String> packagesAndClasses = new ArrayList<String>();
+	private final ConcurrentMap<String, Boolean> decisions
+		= new ConcurrentHashMap<String, Boolean>();
+
+	void add(String packageOrClass) {
+		packagesAndClasses.add(packageOrClass);
+		decisions.clear();
+	}
+
+	boolean isEmpty() {
+		return packagesAndClasses.isEmpty();
+	}
+
+	boolean allows(StackTraceElement callSite) {
+		if (callSite == null)
+			return false;
+		String className = callSite.getClassName();
+		Boolean decision = decisions.get(className);
+		if (decision == null) {
+			decision = isInList(className);
+			decisions.put(className, decision);
+		}
+		return decision;
+	}
+
+	private boolean isInList(String className) {
+		for (String packageOrClass: packagesAndClasses)
+			if (className.equals(packageOrClass)
+					|| className.startsWith(packageOrClass + ".")
+					|| className.startsWith(packageOrClass + "$"))
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,123 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code ByteBufferInputSource} reads the bytes between the position and
+ * the limit of a {@code ByteBuffer}. It reads bulks of bytes and supports
+ * {@link #skip(long)}, {@link #available()} and {@link #mark(int)}. The
+ * buffer's position is changed by reading.
+ *
+ * <p>The end of the current line is cached until the position moves past
+ * the end of the line separator. Therefore reading a long line in small chunks scans
+ * the line only once.
+ */
+public class ByteBufferInputSource extends InputSource {
+	private final ByteBuffer buffer;
+	private int mark;
+	private byte[] separatorOfCachedLine;
+	private int startOfCachedLine;
+	private int separatorIndexOfCachedLine;
+	private int endOfCachedLine;
+
+	public ByteBufferInputSource(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.mark = buffer.position();
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0)
+			return 0;
+		else if (!buffer.hasRemaining())
+			return -1;
+		int n = Math.min(len, buffer.remaining());
+		buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int readLine(byte[] b, int off, int len, byte[] lineSeparator) {
+		if (!buffer.hasRemaining())
+			return -1;
+		int endOfLine = indexAfterLineSeparator(lineSeparator);
+		return read(b, off, Math.min(len, endOfLine - buffer.position()));
+	}
+
+	@Override
+	public int availableInLine(byte[] lineSeparator) {
+		int position = buffer.position();
+		int startOfPreviousSeparator = position - lineSeparator.length;
+		if (startOfPreviousSeparator >= 0
+				&& isLineSeparatorAt(startOfPreviousSeparator, lineSeparator))
+			return 0; //the current line has been read completely
+		else
+			return indexAfterLineSeparator(lineSeparator) - position;
+	}
+
+	private int indexAfterLineSeparator(byte[] lineSeparator) {
+		int position = buffer.position();
+		if (lineSeparator != separatorOfCachedLine
+				|| position < startOfCachedLine
+				|| position >= endOfCachedLine)
+			cacheLineStartingAt(position, lineSeparator);
+		return endOfCachedLine;
+	}
+
+	private void cacheLineStartingAt(int position, byte[] lineSeparator) {
+		separatorOfCachedLine = lineSeparator;
+		startOfCachedLine = position;
+		//the position may be inside of a line separator that has been read
+		//partially. Its remaining bytes are the rest of the line.
+		int start = Math.max(0, position - lineSeparator.length + 1);
+		int limit = buffer.limit() - lineSeparator.length;
+		for (int i = start; i <= limit; ++i)
+			if (isLineSeparatorAt(i, lineSeparator)) {
+				separatorIndexOfCachedLine = i;
+				endOfCachedLine = i + lineSeparator.length;
+				return;
+			}
+		//there is no line separator until the end of the buffer
+		separatorIndexOfCachedLine = buffer.limit();
+		endOfCachedLine = buffer.limit();
+	}
+
+	private boolean isLineSeparatorAt(int index, byte[] lineSeparator) {
+		for (int i = 0; i < lineSeparator.length; ++i)
+			if (buffer.get(index + i) != lineSeparator[i])
+				return false;
+		return true;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readlimit) {
+		mark = buffer.position();
+	}
+
+	@Override
+	public void reset() {
+		buffer.position(mark);
+	}
+}
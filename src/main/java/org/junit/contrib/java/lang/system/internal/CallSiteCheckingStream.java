@@ -0,0 +1,75 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.junit.contrib.java.lang.system.internal.CallSites.callingFrame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@code CallSiteCheckingStream} forwards the writes of allowed call sites
+ * to the original stream (or discards them). Writes of all other call sites
+ * are either recorded as {@link WriteViolations} or let the
+ * test fail immediately.
+ *
+ * <p>The call site of every write is determined by reading the stack,
+ * including writes of call sites that are already known to be allowed.
+ * This is intentional. The call site cannot be cached per thread or per
+ * stream because the same thread may write from an allowed class and
+ * from a forbidden class one after the other, and only the stack tells
+ * them apart. Therefore only the decision whether a class is allowed is
+ * cached by the {@link AllowList}. The stack is read once per write call
+ * (not per byte) and not at all if it is not needed: without allowed call
+ * sites and without collecting violations every write fails.
+ */
+class CallSiteCheckingStream extends OutputStream {
+	private final AllowList allowList;
+	private final OutputStream streamForAllowedWrites;
+	private final WriteViolations violations;
+
+	/**
+	 * @param allowList the call sites that are allowed to write.
+	 * @param streamForAllowedWrites receives the allowed writes. They are
+	 * discarded if it is {@code null}.
+	 * @param violations collects the writes that are not allowed. The test
+	 * fails on the first write that is not allowed if it is {@code null}.
+	 */
+	CallSiteCheckingStream(AllowList allowList,
+			OutputStream streamForAllowedWrites,
+			WriteViolations violations) {
+		this.allowList = allowList;
+		this.streamForAllowedWrites = streamForAllowedWrites;
+		this.violations = violations;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return;
+		if (allowList.isEmpty() && violations == null)
+			failBecauseWriteIsNotAllowed(b[off]);
+		StackTraceElement callSite = callingFrame();
+		if (allowList.allows(callSite)) {
+			if (streamForAllowedWrites != null)
+				streamForAllowedWrites.write(b, off, len);
+		} else if (violations != null)
+			violations.record(callSite, b, off, len);
+		else
+			failBecauseWriteIsNotAllowed(b[off]);
+	}
+
+	private void failBecauseWriteIsNotAllowed(byte b) {
+		throw new AssertionError("Tried to write '" + (char) b
+			+ "' although this is not allowed.");
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (streamForAllowedWrites != null)
+			streamForAllowedWrites.flush();
+	}
+}
@@ -0,0 +1,105 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+
+/**
+ * Determines the frame of the code that calls System Rules, e.g. the code
+ * that writes to {@code System.out} or reads a system property. Frames of
+ * the JDK and of System Rules are skipped.
+ *
+ * <p>On Java 9 and later the frames are read one after the other by a
+ * {@code StackWalker}. This avoids creating {@code StackTraceElement}s for
+ * the whole stack on every call. The {@code StackWalker} is looked up by
+ * reflection once because System Rules is compiled for Java 5. On older
+ * JVMs the whole stack is created once per call.
+ */
+class CallSites {
+	private static final String[] SKIPPED_PACKAGES = {
+		"java.", "javax.", "sun.", "jdk.",
+		CallSites.class.getPackage().getName() + "."
+	};
+	private static final FrameReader FRAME_READER = createFrameReader();
+
+	static StackTraceElement callingFrame() {
+		return FRAME_READER.firstFrameNotSkipped();
+	}
+
+	private static boolean isSkipped(String className) {
+		for (String skippedPackage: SKIPPED_PACKAGES)
+			if (className.startsWith(skippedPackage))
+				return true;
+		return false;
+	}
+
+	private static FrameReader createFrameReader() {
+		try {
+			return new StackWalkerFrameReader();
+		} catch (Exception e) {
+			return new FrameReader();
+		}
+	}
+
+	private static class FrameReader {
+		StackTraceElement firstFrameNotSkipped() {
+			for (StackTraceElement frame: new Throwable().getStackTrace())
+				if (!isSkipped(frame.getClassName()))
+					return frame;
+			return null;
+		}
+	}
+
+	private static class StackWalkerFrameReader extends FrameReader
+			implements InvocationHandler {
+		final Object stackWalker;
+		final Method walk;
+		final Method iterator;
+		final Method getClassName;
+		final Method toStackTraceElement;
+		final Object walkFunction;
+
+		StackWalkerFrameReader() throws Exception {
+			Class<?> stackWalkerClass = Class.forName("java.lang.StackWalker");
+			Class<?> function = Class.forName("java.util.function.Function");
+			Class<?> stackFrame = Class.forName("java.lang.StackWalker$StackFrame");
+			stackWalker = stackWalkerClass.getMethod("getInstance").invoke(null);
+			walk = stackWalkerClass.getMethod("walk", function);
+			iterator = Class.forName("java.util.stream.BaseStream")
+				.getMethod("iterator");
+			getClassName = stackFrame.getMethod("getClassName");
+			toStackTraceElement = stackFrame.getMethod("toStackTraceElement");
+			walkFunction = Proxy.newProxyInstance(
+				CallSites.class.getClassLoader(), new Class<?>[] { function },
+				this);
+			firstFrameNotSkipped(); //fail fast if the stack cannot be walked
+		}
+
+		@Override
+		StackTraceElement firstFrameNotSkipped() {
+			try {
+				return (StackTraceElement) walk.invoke(stackWalker, walkFunction);
+			} catch (Exception e) {
+				throw new IllegalStateException("Cannot walk the stack.", e);
+			}
+		}
+
+		/**
+		 * Implements {@code Function<Stream<StackFrame>, StackTraceElement>}
+		 * for {@code StackWalker.walk}.
+		 */
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			if (!method.getName().equals("apply"))
+				throw new UnsupportedOperationException(method.getName());
+			Iterator<?> frames = (Iterator<?>) iterator.invoke(args[0]);
+			while (frames.hasNext()) {
+				Object frame = frames.next();
+				if (!isSkipped((String) getClassName.invoke(frame)))
+					return toStackTraceElement.invoke(frame);
+			}
+			return null;
+		}
+	}
+}
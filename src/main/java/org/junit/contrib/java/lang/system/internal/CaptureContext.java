@@ -0,0 +1,56 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.junit.contrib.java.lang.system.internal.PrintStreamHandler.SYSTEM_ERR;
+import static org.junit.contrib.java.lang.system.internal.PrintStreamHandler.SYSTEM_OUT;
+
+import java.util.concurrent.Callable;
+
+import org.junit.contrib.java.lang.system.internal.StreamRouter.Sink;
+
+/**
+ * A {@code CaptureContext} is a snapshot of the sinks for {@code System.out}
+ * and {@code System.err} that are used by a thread. It can be attached to
+ * other threads so that their output is written to the same sinks.
+ */
+public class CaptureContext {
+	private final Sink sinkForSystemOut;
+	private final Sink sinkForSystemErr;
+
+	public static CaptureContext contextOfCurrentThread() {
+		return new CaptureContext(
+			SYSTEM_OUT.getRouter().getSinkOfCurrentThread(),
+			SYSTEM_ERR.getRouter().getSinkOfCurrentThread());
+	}
+
+	private CaptureContext(Sink sinkForSystemOut, Sink sinkForSystemErr) {
+		this.sinkForSystemOut = sinkForSystemOut;
+		this.sinkForSystemErr = sinkForSystemErr;
+	}
+
+	public void attachToCurrentThread() {
+		SYSTEM_OUT.getRouter().attach(sinkForSystemOut);
+		SYSTEM_ERR.getRouter().attach(sinkForSystemErr);
+	}
+
+	public void run(Runnable task) {
+		Sink previousSinkForSystemOut = SYSTEM_OUT.getRouter().attach(sinkForSystemOut);
+		Sink previousSinkForSystemErr = SYSTEM_ERR.getRouter().attach(sinkForSystemErr);
+		try {
+			task.run();
+		} finally {
+			SYSTEM_OUT.getRouter().attach(previousSinkForSystemOut);
+			SYSTEM_ERR.getRouter().attach(previousSinkForSystemErr);
+		}
+	}
+
+	public <T> T call(Callable<T> task) throws Exception {
+		Sink previousSinkForSystemOut = SYSTEM_OUT.getRouter().attach(sinkForSystemOut);
+		Sink previousSinkForSystemErr = SYSTEM_ERR.getRouter().attach(sinkForSystemErr);
+		try {
+			return task.call();
+		} finally {
+			SYSTEM_OUT.getRouter().attach(previousSinkForSystemOut);
+			SYSTEM_ERR.getRouter().attach(previousSinkForSystemErr);
+		}
+	}
+}
@@ -0,0 +1,376 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ClassFilePatcher} changes the code of methods in a class file.
+ * It is used by the {@link InstrumentationAgent} for redirecting methods of
+ * the JDK to hooks. It doesn't add or remove methods or fields. Therefore
+ * the patched class file can be used for retransforming a class that has
+ * already been loaded.
+ *
+ * <p>The patcher only supports two changes that don't need a bytecode
+ * library:
+ * <ul>
+ * <li>{@link #replaceBody(String, String, byte[], int) Replacing} the
+ * code of a method with code without branches.</li>
+ * <li>{@link #prependToBody(String, String, byte[], int) Prepending} code
+ * without branches whose length is a multiple of four. The offsets of the
+ * original code are shifted accordingly. The alignment of switch
+ * instructions is preserved.</li>
+ * </ul>
+ */
+public class ClassFilePatcher {
+	private static final int UTF8 = 1;
+	private static final int CLASS = 7;
+	private static final int METHODREF = 10;
+	private static final int NAME_AND_TYPE = 12;
+
+	private final byte[] header = new byte[8];
+	private int constantPoolCount;
+	private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+	private final Map<Integer, String> utf8Constants = new HashMap<Integer, String>();
+	private final Map<String, Integer> addedUtf8Constants = new HashMap<String, Integer>();
+	private byte[] classInfo;
+	private byte[] fields;
+	private final List<Method> methods = new ArrayList<Method>();
+	private byte[] attributes;
+
+	public ClassFilePatcher(byte[] classFile) throws IOException {
+		DataInputStream in = new DataInputStream(
+			new ByteArrayInputStream(classFile));
+		in.readFully(header);
+		readConstantPool(in);
+		classInfo = readClassInfo(in);
+		fields = readMembers(in, null);
+		readMembers(in, methods);
+		attributes = readRemainder(in);
+	}
+
+	private void readConstantPool(DataInputStream in) throws IOException {
+		constantPoolCount = in.readUnsignedShort();
+		DataOutputStream out = new DataOutputStream(constantPool);
+		for (int i = 1; i < constantPoolCount; ++i) {
+			int tag = in.readUnsignedByte();
+			out.writeByte(tag);
+			switch (tag) {
+			case UTF8:
+				String value = in.readUTF();
+				utf8Constants.put(i, value);
+				out.writeUTF(value);
+				break;
+			case 7: case 8: case 16: case 19: case 20:
+				copy(in, out, 2);
+				break;
+			case 15:
+				copy(in, out, 3);
+				break;
+			case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+				copy(in, out, 4);
+				break;
+			case 5: case 6:
+				copy(in, out, 8);
+				++i; //long and double use two entries
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag + ".");
+			}
+		}
+	}
+
+	private byte[] readClassInfo(DataInputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		copy(in, out, 6); //access flags, this class, super class
+		int interfacesCount = in.readUnsignedShort();
+		out.writeShort(interfacesCount);
+		copy(in, out, 2 * interfacesCount);
+		return bytes.toByteArray();
+	}
+
+	private byte[] readMembers(DataInputStream in, List<Method> methods)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int count = in.readUnsignedShort();
+		out.writeShort(count);
+		for (int i = 0; i < count; ++i) {
+			Method method = new Method();
+			method.accessFlags = in.readUnsignedShort();
+			method.nameIndex = in.readUnsignedShort();
+			method.descriptorIndex = in.readUnsignedShort();
+			int attributesCount = in.readUnsignedShort();
+			for (int j = 0; j < attributesCount; ++j) {
+				Attribute attribute = new Attribute();
+				attribute.nameIndex = in.readUnsignedShort();
+				attribute.info = new byte[in.readInt()];
+				in.readFully(attribute.info);
+				method.attributes.add(attribute);
+			}
+			if (methods == null)
+				method.write(out);
+			else
+				methods.add(method);
+		}
+		return bytes.toByteArray();
+	}
+
+	private byte[] readRemainder(DataInputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int n = in.read(buffer); n != -1; n = in.read(buffer))
+			bytes.write(buffer, 0, n);
+		return bytes.toByteArray();
+	}
+
+	private static void copy(DataInputStream in, DataOutputStream out,
+			int length) throws IOException {
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		out.write(bytes);
+	}
+
+	/**
+	 * Adds a reference to a static method to the constant pool.
+	 *
+	 * @param owner the internal name of the method's class, e.g.
+	 * {@code java/lang/String}.
+	 * @param name the name of the method.
+	 * @param descriptor the descriptor of the method.
+	 * @return the index of the reference in the constant pool.
+	 */
+	public int addMethodref(String owner, String name, String descriptor) {
+		int classIndex = addConstant(CLASS, addUtf8(owner));
+		int nameAndTypeIndex = addConstant(
+			NAME_AND_TYPE, addUtf8(name), addUtf8(descriptor));
+		return addConstant(METHODREF, classIndex, nameAndTypeIndex);
+	}
+
+	private int addUtf8(String value) {
+		Integer index = addedUtf8Constants.get(value);
+		if (index == null) {
+			DataOutputStream out = new DataOutputStream(constantPool);
+			try {
+				out.writeByte(UTF8);
+				out.writeUTF(value);
+			} catch (IOException e) {
+				throw new IllegalStateException(e); //cannot happen
+			}
+			index = constantPoolCount++;
+			utf8Constants.put(index, value);
+			addedUtf8Constants.put(value, index);
+		}
+		return index;
+	}
+
+	private int addConstant(int tag, int... indices) {
+		constantPool.write(tag);
+		for (int index: indices) {
+			constantPool.write(index >> 8);
+			constantPool.write(index);
+		}
+		return constantPoolCount++;
+	}
+
+	/**
+	 * Replaces the code of a method. The new code must not have branches
+	 * and must not throw checked exceptions that are handled by the method.
+	 *
+	 * @param name the name of the method.
+	 * @param descriptor the descriptor of the method.
+	 * @param code the new code.
+	 * @param maxStack the maximal depth of the operand stack of the new
+	 * code.
+	 * @throws IOException if the class has no such method.
+	 */
+	public void replaceBody(String name, String descriptor, byte[] code,
+			int maxStack) throws IOException {
+		Attribute attribute = codeOf(name, descriptor);
+		DataInputStream in = new DataInputStream(
+			new ByteArrayInputStream(attribute.info));
+		in.readUnsignedShort(); //max stack
+		int maxLocals = in.readUnsignedShort();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0); //exception table
+		out.writeShort(0); //attributes
+		attribute.info = bytes.toByteArray();
+	}
+
+	/**
+	 * Prepends code to the code of a method. The prepended code must not
+	 * have branches, must leave the operand stack empty and its length must
+	 * be a multiple of four.
+	 *
+	 * @param name the name of the method.
+	 * @param descriptor the descriptor of the method.
+	 * @param code the code that is prepended.
+	 * @param maxStack the maximal depth of the operand stack of the
+	 * prepended code.
+	 * @throws IOException if the class has no such method.
+	 */
+	public void prependToBody(String name, String descriptor, byte[] code,
+			int maxStack) throws IOException {
+		if (code.length % 4 != 0)
+			throw new IllegalArgumentException(
+				"The length of the code must be a multiple of four.");
+		Attribute attribute = codeOf(name, descriptor);
+		int shift = code.length;
+		DataInputStream in = new DataInputStream(
+			new ByteArrayInputStream(attribute.info));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeShort(Math.max(maxStack, in.readUnsignedShort()));
+		out.writeShort(in.readUnsignedShort()); //max locals
+		byte[] originalCode = new byte[in.readInt()];
+		in.readFully(originalCode);
+		out.writeInt(code.length + originalCode.length);
+		out.write(code);
+		out.write(originalCode);
+		int exceptionTableLength = in.readUnsignedShort();
+		out.writeShort(exceptionTableLength);
+		for (int i = 0; i < exceptionTableLength; ++i) {
+			for (int j = 0; j < 3; ++j) //start, end, handler
+				out.writeShort(in.readUnsignedShort() + shift);
+			out.writeShort(in.readUnsignedShort()); //catch type
+		}
+		int attributesCount = in.readUnsignedShort();
+		out.writeShort(attributesCount);
+		for (int i = 0; i < attributesCount; ++i) {
+			int nameIndex = in.readUnsignedShort();
+			byte[] info = new byte[in.readInt()];
+			in.readFully(info);
+			byte[] shiftedInfo = shift(utf8Constants.get(nameIndex), info, shift);
+			out.writeShort(nameIndex);
+			out.writeInt(shiftedInfo.length);
+			out.write(shiftedInfo);
+		}
+		attribute.info = bytes.toByteArray();
+	}
+
+	private byte[] shift(String attribute, byte[] info, int shift)
+			throws IOException {
+		if ("LineNumberTable".equals(attribute))
+			return shiftTable(info, 4, shift);
+		else if ("LocalVariableTable".equals(attribute)
+				|| "LocalVariableTypeTable".equals(attribute))
+			return shiftTable(info, 10, shift);
+		else if ("StackMapTable".equals(attribute))
+			return shiftStackMapTable(info, shift);
+		else
+			return info;
+	}
+
+	private byte[] shiftTable(byte[] info, int entryLength, int shift) {
+		byte[] shifted = info.clone();
+		int length = ((info[0] & 0xff) << 8) | (info[1] & 0xff);
+		for (int i = 0; i < length; ++i) {
+			int offset = 2 + i * entryLength;
+			int startPc = (((shifted[offset] & 0xff) << 8)
+				| (shifted[offset + 1] & 0xff)) + shift;
+			shifted[offset] = (byte) (startPc >> 8);
+			shifted[offset + 1] = (byte) startPc;
+		}
+		return shifted;
+	}
+
+	/*
+	 * The offsets of stack map frames are deltas. Only the delta of the
+	 * first frame has to be shifted.
+	 */
+	private byte[] shiftStackMapTable(byte[] info, int shift)
+			throws IOException {
+		DataInputStream in = new DataInputStream(
+			new ByteArrayInputStream(info));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int numberOfEntries = in.readUnsignedShort();
+		out.writeShort(numberOfEntries);
+		if (numberOfEntries > 0) {
+			int frameType = in.readUnsignedByte();
+			if (frameType < 64) //same frame
+				if (frameType + shift < 64)
+					out.writeByte(frameType + shift);
+				else {
+					out.writeByte(251); //same frame extended
+					out.writeShort(frameType + shift);
+				}
+			else if (frameType < 128) //same locals 1 stack item frame
+				if (frameType + shift < 128)
+					out.writeByte(frameType + shift);
+				else {
+					out.writeByte(247); //... extended
+					out.writeShort(frameType - 64 + shift);
+				}
+			else {
+				out.writeByte(frameType);
+				out.writeShort(in.readUnsignedShort() + shift);
+			}
+		}
+		out.write(readRemainder(in));
+		return bytes.toByteArray();
+	}
+
+	private Attribute codeOf(String name, String descriptor)
+			throws IOException {
+		for (Method method: methods)
+			if (name.equals(utf8Constants.get(method.nameIndex))
+					&& descriptor.equals(utf8Constants.get(method.descriptorIndex)))
+				for (Attribute attribute: method.attributes)
+					if ("Code".equals(utf8Constants.get(attribute.nameIndex)))
+						return attribute;
+		throw new IOException("The class has no method " + name + descriptor
+			+ " with code.");
+	}
+
+	public byte[] toByteArray() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(header);
+		out.writeShort(constantPoolCount);
+		constantPool.writeTo(out);
+		out.write(classInfo);
+		out.write(fields);
+		out.writeShort(methods.size());
+		for (Method method: methods)
+			method.write(out);
+		out.write(attributes);
+		return bytes.toByteArray();
+	}
+
+	private static class Method {
+		int accessFlags;
+		int nameIndex;
+		int descriptorIndex;
+		final List<Attribute> attributes = new ArrayList<Attribute>();
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeShort(accessFlags);
+			out.writeShort(nameIndex);
+			out.writeShort(descriptorIndex);
+			out.writeShort(attributes.size());
+			for (Attribute attribute: attributes) {
+				out.writeShort(attribute.nameIndex);
+				out.writeInt(attribute.info.length);
+				out.write(attribute.info);
+			}
+		}
+	}
+
+	private static class Attribute {
+		int nameIndex;
+		byte[] info;
+	}
+}
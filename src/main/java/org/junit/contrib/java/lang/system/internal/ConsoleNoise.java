@@ -0,0 +1,185 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.junit.contrib.java.lang.system.internal.PrintStreamHandler.SYSTEM_ERR;
+import static org.junit.contrib.java.lang.system.internal.PrintStreamHandler.SYSTEM_OUT;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code ConsoleNoise} counts the bytes and lines that are written to
+ * {@code System.out} and {@code System.err} and attributes them to the
+ * current test. It wraps the original streams. Therefore it only counts text
+ * that actually reaches the console, not text that is muted by a
+ * {@code SystemOutRule} or {@code SystemErrRule}.
+ */
+public class ConsoleNoise {
+	public static final String OUTSIDE_OF_TESTS = "(outside of tests)";
+	private static final int MAX_LENGTH_OF_COUNTED_LINE = 200;
+
+	private final Map<String, Noise> noiseOfTests = new LinkedHashMap<String, Noise>();
+	private final HeavyHitters frequentLines;
+	private volatile Noise noiseOfCurrentTest;
+	private PrintStream originalOut;
+	private PrintStream originalErr;
+
+	public ConsoleNoise(int numberOfFrequentLines) {
+		frequentLines = new HeavyHitters(numberOfFrequentLines);
+		noiseOfCurrentTest = noiseOf(OUTSIDE_OF_TESTS);
+	}
+
+	public void startCounting() throws UnsupportedEncodingException {
+		originalOut = SYSTEM_OUT.getStream();
+		originalErr = SYSTEM_ERR.getStream();
+		SYSTEM_OUT.replaceCurrentStreamWithOutputStream(
+			new CountingStream(originalOut, false));
+		SYSTEM_ERR.replaceCurrentStreamWithOutputStream(
+			new CountingStream(originalErr, true));
+	}
+
+	public void stopCounting() {
+		SYSTEM_OUT.replaceCurrentStreamWithPrintStream(originalOut);
+		SYSTEM_ERR.replaceCurrentStreamWithPrintStream(originalErr);
+	}
+
+	public void testStarted(String name) {
+		noiseOfCurrentTest = noiseOf(name);
+	}
+
+	public void testFinished() {
+		noiseOfCurrentTest = noiseOf(OUTSIDE_OF_TESTS);
+	}
+
+	private synchronized Noise noiseOf(String test) {
+		Noise noise = noiseOfTests.get(test);
+		if (noise == null) {
+			noise = new Noise(test);
+			noiseOfTests.put(test, noise);
+		}
+		return noise;
+	}
+
+	/**
+	 * Returns the noise of all tests that wrote to the console. The test
+	 * that wrote the most bytes is first.
+	 *
+	 * @return the noise of all tests that wrote to the console.
+	 */
+	public synchronized List<Noise> getNoiseOfTests() {
+		List<Noise> list = new ArrayList<Noise>();
+		for (Noise noise: noiseOfTests.values())
+			if (noise.getBytes() > 0)
+				list.add(noise);
+		Collections.sort(list, new Comparator<Noise>() {
+			public int compare(Noise first, Noise second) {
+				return (first.getBytes() == second.getBytes()) ? 0
+					: (first.getBytes() > second.getBytes()) ? -1 : 1;
+			}
+		});
+		return list;
+	}
+
+	public List<HeavyHitters.Counter> getFrequentLines() {
+		return frequentLines.getCounters();
+	}
+
+	public static class Noise {
+		private final String test;
+		private long bytesOut;
+		private long linesOut;
+		private long bytesErr;
+		private long linesErr;
+
+		Noise(String test) {
+			this.test = test;
+		}
+
+		public String getTest() {
+			return test;
+		}
+
+		public synchronized long getBytes() {
+			return bytesOut + bytesErr;
+		}
+
+		public synchronized long getBytesOut() {
+			return bytesOut;
+		}
+
+		public synchronized long getLinesOut() {
+			return linesOut;
+		}
+
+		public synchronized long getBytesErr() {
+			return bytesErr;
+		}
+
+		public synchronized long getLinesErr() {
+			return linesErr;
+		}
+
+		synchronized void add(boolean err, long bytes, long lines) {
+			if (err) {
+				bytesErr += bytes;
+				linesErr += lines;
+			} else {
+				bytesOut += bytes;
+				linesOut += lines;
+			}
+		}
+	}
+
+	private class CountingStream extends OutputStream {
+		final OutputStream originalStream;
+		final boolean err;
+		final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+
+		CountingStream(OutputStream originalStream, boolean err) {
+			this.originalStream = originalStream;
+			this.err = err;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len)
+				throws IOException {
+			originalStream.write(b, off, len);
+			int lines = 0;
+			for (int i = off; i < off + len; ++i)
+				if (b[i] == '\n') {
+					++lines;
+					frequentLines.add(textOfCurrentLine());
+					currentLine.reset();
+				} else if (currentLine.size() < MAX_LENGTH_OF_COUNTED_LINE)
+					currentLine.write(b[i]);
+			noiseOfCurrentTest.add(err, len, lines);
+		}
+
+		private String textOfCurrentLine() {
+			String line = new String(
+				currentLine.toByteArray(), Charset.defaultCharset());
+			//a line that has been written with a CRLF line separator
+			return line.endsWith("\r")
+				? line.substring(0, line.length() - 1) : line;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			originalStream.flush();
+		}
+	}
+}
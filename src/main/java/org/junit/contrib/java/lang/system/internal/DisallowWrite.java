@@ -4,25 +4,60 @@ import org.junit.runners.model.Statement;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
 
 public class DisallowWrite {
 	private final PrintStreamHandler printStreamHandler;
+	private final AllowList allowList = new AllowList();
+	private boolean discardAllowedWrites = false;
+	private boolean collectViolations = false;
 
 	public DisallowWrite(PrintStreamHandler printStreamHandler) {
 		this.printStreamHandler = printStreamHandler;
 	}
 
+	public void allowWritesFrom(String... packagesAndClasses) {
+		for (String packageOrClass: packagesAndClasses)
+			allowList.add(packageOrClass);
+	}
+
+	public void discardAllowedWrites() {
+		discardAllowedWrites = true;
+	}
+
+	public void collectViolations() {
+		collectViolations = true;
+	}
+
 	public Statement createStatement(final Statement base) {
 		return printStreamHandler.createRestoreStatement(new Statement() {
 			@Override
 			public void evaluate() throws Throwable {
-				printStreamHandler.replaceCurrentStreamWithOutputStream(
-					new DisallowWriteStream());
-				base.evaluate();
+				if (collectViolations || !allowList.isEmpty())
+					evaluateWithCheckedCallSites(base);
+				else {
+					printStreamHandler.replaceCurrentStreamWithOutputStream(
+						new DisallowWriteStream());
+					base.evaluate();
+				}
 			}
 		});
 	}
 
+	private void evaluateWithCheckedCallSites(Statement base) throws Throwable {
+		PrintStream originalStream = printStreamHandler.getStream();
+		WriteViolations violations = collectViolations
+			? new WriteViolations() : null;
+		printStreamHandler.replaceCurrentStreamWithOutputStream(
+			new CallSiteCheckingStream(
+				allowList,
+				discardAllowedWrites ? null : originalStream,
+				violations));
+		base.evaluate();
+		if (violations != null)
+			violations.verifyNoViolations(printStreamHandler.getName());
+	}
+
 	private static class DisallowWriteStream extends OutputStream {
 		@Override
 		public void write(int b) throws IOException {
@@ -0,0 +1,124 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.lang.Class.forName;
+import static java.lang.System.getenv;
+import static org.junit.contrib.java.lang.system.internal.InstrumentationAgent.isEnvironmentRedirected;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.junit.contrib.java.lang.system.internal.hook.EnvironmentHook;
+
+/**
+ * {@code EnvironmentMaps} provides access to the maps that store the
+ * environment variables. {@code System.getenv()} returns an unmodifiable
+ * view of a map. This map is stored in the view's field {@code m}. The
+ * fields are looked up once per JVM.
+ *
+ * <p>If {@code System.getenv} has been patched by the
+ * {@link InstrumentationAgent} then the map of the {@link EnvironmentHook}
+ * is used and no reflection is needed.
+ */
+public class EnvironmentMaps {
+	private static Field fieldOfMapOfVariables;
+	private static Map<String, String> theCaseInsensitiveEnvironment;
+	private static boolean theCaseInsensitiveEnvironmentResolved = false;
+
+	/**
+	 * Returns the map that is wrapped by {@code System.getenv()}.
+	 *
+	 * @return the map of environment variables.
+	 */
+	public static Map<String, String> getMapOfVariables() {
+		if (isEnvironmentRedirected())
+			return EnvironmentHook.getMap();
+		try {
+			return asMapOfVariables(getFieldOfMapOfVariables().get(getenv()));
+		} catch (IllegalAccessException e) {
+			throw cannotAccessMapOfVariables(e);
+		}
+	}
+
+	/**
+	 * Replaces the map that is wrapped by {@code System.getenv()}.
+	 * {@code System.getenv()} and (except on Windows)
+	 * {@code System.getenv(String)} read the new map afterwards.
+	 *
+	 * @param variables the new map.
+	 */
+	public static void setMapOfVariables(Map<String, String> variables) {
+		if (isEnvironmentRedirected()) {
+			EnvironmentHook.setMap(variables);
+			return;
+		}
+		try {
+			getFieldOfMapOfVariables().set(getenv(), variables);
+		} catch (IllegalAccessException e) {
+			throw cannotAccessMapOfVariables(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, String> asMapOfVariables(Object map) {
+		return (Map<String, String>) map;
+	}
+
+	private static RuntimeException cannotAccessMapOfVariables(
+			IllegalAccessException e) {
+		return new RuntimeException("System Rules cannot access the field"
+			+ " 'm' of the map System.getenv().", e);
+	}
+
+	private static synchronized Field getFieldOfMapOfVariables() {
+		if (fieldOfMapOfVariables == null)
+			try {
+				Field field = getenv().getClass().getDeclaredField("m");
+				field.setAccessible(true);
+				fieldOfMapOfVariables = field;
+			} catch (NoSuchFieldException e) {
+				throw new RuntimeException("System Rules expects System.getenv() to"
+					+ " have a field 'm' but it has not.", e);
+			}
+		return fieldOfMapOfVariables;
+	}
+
+	/**
+	 * The names of environment variables are case-insensitive in Windows.
+	 * Therefore it stores the variables in a TreeMap named
+	 * theCaseInsensitiveEnvironment.
+	 *
+	 * @return the map {@code theCaseInsensitiveEnvironment} or {@code null}
+	 * if it doesn't exist or is not read by the patched
+	 * {@code System.getenv(String)}.
+	 */
+	public static synchronized Map<String, String> getTheCaseInsensitiveEnvironment() {
+		if (isEnvironmentRedirected())
+			return null;
+		if (!theCaseInsensitiveEnvironmentResolved) {
+			theCaseInsensitiveEnvironment = resolveTheCaseInsensitiveEnvironment();
+			theCaseInsensitiveEnvironmentResolved = true;
+		}
+		return theCaseInsensitiveEnvironment;
+	}
+
+	private static Map<String, String> resolveTheCaseInsensitiveEnvironment() {
+		try {
+			Class<?> processEnvironment = forName("java.lang.ProcessEnvironment");
+			Field field = processEnvironment.getDeclaredField(
+				"theCaseInsensitiveEnvironment");
+			field.setAccessible(true);
+			return asMapOfVariables(field.get(null));
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("System Rules expects the existence of"
+				+ " the class java.lang.ProcessEnvironment but it does not"
+				+ " exist.", e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("System Rules cannot access the static"
+				+ " field 'theCaseInsensitiveEnvironment' of the class"
+				+ " java.lang.ProcessEnvironment.", e);
+		} catch (NoSuchFieldException e) {
+			//this field is only available for Windows
+			return null;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.lang.String.CASE_INSENSITIVE_ORDER;
+import static java.lang.System.getProperty;
+import static java.util.Collections.synchronizedMap;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code EnvironmentOverrides} are the environment variables that are read
+ * by {@code System.getenv} after it has been patched by the
+ * {@link InstrumentationAgent}. They store changes of variables in a
+ * separate map. The real environment is never modified. A change that
+ * restores the real value of a variable removes its entry from the separate
+ * map.
+ *
+ * <p>The names of environment variables are case-insensitive in Windows.
+ * Therefore the real environment is copied to a case-insensitive map once
+ * and the changes are stored case-insensitive, too.
+ *
+ * <p>Single variables are resolved without copying. Methods that need all
+ * variables (e.g. {@link #size()}) work on a snapshot.
+ */
+public class EnvironmentOverrides extends AbstractMap<String, String> {
+	private static final Object REMOVED = new Object();
+
+	private final boolean caseInsensitive;
+	private final Map<String, String> realEnvironment;
+	private final Map<String, Object> overrides;
+
+	public EnvironmentOverrides(Map<String, String> realEnvironment) {
+		this(realEnvironment, getProperty("os.name").startsWith("Windows"));
+	}
+
+	EnvironmentOverrides(Map<String, String> realEnvironment,
+			boolean caseInsensitive) {
+		this.caseInsensitive = caseInsensitive;
+		if (caseInsensitive) {
+			this.realEnvironment = newMap();
+			this.realEnvironment.putAll(realEnvironment);
+			this.overrides = synchronizedMap(new TreeMap<String, Object>(
+				CASE_INSENSITIVE_ORDER));
+		} else {
+			this.realEnvironment = realEnvironment;
+			this.overrides = new ConcurrentHashMap<String, Object>();
+		}
+	}
+
+	private Map<String, String> newMap() {
+		return caseInsensitive
+			? new TreeMap<String, String>(CASE_INSENSITIVE_ORDER)
+			: new HashMap<String, String>();
+	}
+
+	@Override
+	public String get(Object name) {
+		if (caseInsensitive && !(name instanceof String))
+			return null; //TreeMap cannot compare other objects
+		Object value = overrides.get(name);
+		if (value == null)
+			return realEnvironment.get(name);
+		else
+			return (value == REMOVED) ? null : (String) value;
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		return get(name) != null;
+	}
+
+	@Override
+	public synchronized String put(String name, String value) {
+		if (name == null || value == null)
+			throw new NullPointerException();
+		String previous = get(name);
+		if (value.equals(realEnvironment.get(name)))
+			overrides.remove(name);
+		else
+			overrides.put(name, value);
+		return previous;
+	}
+
+	@Override
+	public synchronized String remove(Object name) {
+		if (caseInsensitive && !(name instanceof String))
+			return null; //TreeMap cannot compare other objects
+		String previous = get(name);
+		if (realEnvironment.containsKey(name))
+			overrides.put((String) name, REMOVED);
+		else
+			overrides.remove(name);
+		return previous;
+	}
+
+	@Override
+	public synchronized void clear() {
+		for (String name: keySet())
+			remove(name);
+	}
+
+	@Override
+	public int size() {
+		return snapshot().size();
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return snapshot().entrySet();
+	}
+
+	private Map<String, String> snapshot() {
+		Map<String, String> snapshot = newMap();
+		snapshot.putAll(realEnvironment);
+		synchronized (overrides) {
+			for (Map.Entry<String, Object> override: overrides.entrySet())
+				if (override.getValue() == REMOVED)
+					snapshot.remove(override.getKey());
+				else
+					snapshot.put(override.getKey(), (String) override.getValue());
+		}
+		return snapshot;
+	}
+}
@@ -0,0 +1,165 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@code ExitCalls} records every call of {@code System.exit} together with
+ * the calling thread and its stack. Calls may be recorded by any thread.
+ *
+ * <p>While a thread is {@link #watch(Thread) watched} it is interrupted when
+ * another thread calls {@code System.exit} and the watched thread waits
+ * (e.g. by {@code Thread.join()} or {@code Thread.sleep()}). This wakes up
+ * a test that waits for a background thread. A thread that doesn't wait is
+ * not interrupted because an interrupt would close an
+ * {@code InterruptibleChannel} that it is using. Instead a daemon thread
+ * interrupts it as soon as it starts waiting.
+ */
+public class ExitCalls {
+	private static final String INTERNAL_PACKAGE = ExitCalls.class.getPackage()
+		.getName() + ".";
+	private static final long POLLING_INTERVAL_IN_MILLIS = 10;
+
+	private final List<Call> calls = new CopyOnWriteArrayList<Call>();
+	private Thread watchedThread;
+	private boolean watchedThreadInterrupted;
+	private boolean interruptPending;
+
+	public void record(int status) {
+		Thread thread = currentThread();
+		calls.add(new Call(status, thread, stackOfCaller()));
+		interruptWatchedThreadIfOtherThan(thread);
+	}
+
+	private StackTraceElement[] stackOfCaller() {
+		StackTraceElement[] stack = new Throwable().getStackTrace();
+		int first = 0;
+		while (first < stack.length - 1
+				&& stack[first].getClassName().startsWith(INTERNAL_PACKAGE))
+			++first;
+		StackTraceElement[] stackOfCaller = new StackTraceElement[stack.length - first];
+		System.arraycopy(stack, first, stackOfCaller, 0, stackOfCaller.length);
+		return stackOfCaller;
+	}
+
+	private synchronized void interruptWatchedThreadIfOtherThan(Thread thread) {
+		if (watchedThread == null || watchedThread == thread
+				|| watchedThreadInterrupted || interruptPending)
+			return;
+		if (!interruptWatchedThreadIfWaiting()) {
+			interruptPending = true;
+			startInterrupter(watchedThread);
+		}
+	}
+
+	private boolean interruptWatchedThreadIfWaiting() {
+		if (isWaiting(watchedThread)) {
+			watchedThreadInterrupted = true;
+			watchedThread.interrupt();
+			return true;
+		} else
+			return false;
+	}
+
+	private void startInterrupter(final Thread thread) {
+		Thread interrupter = new Thread("System Rules exit interrupter") {
+			@Override
+			public void run() {
+				try {
+					while (!interruptIfWaiting(thread))
+						sleep(POLLING_INTERVAL_IN_MILLIS);
+				} catch (InterruptedException ignored) {
+				}
+			}
+		};
+		interrupter.setDaemon(true);
+		interrupter.start();
+	}
+
+	/**
+	 * @return {@code true} if the interrupter is done because the thread is
+	 * no longer watched or has been interrupted.
+	 */
+	private synchronized boolean interruptIfWaiting(Thread thread) {
+		if (watchedThread != thread || !interruptPending)
+			return true;
+		else if (interruptWatchedThreadIfWaiting()) {
+			interruptPending = false;
+			return true;
+		} else
+			return false;
+	}
+
+	private boolean isWaiting(Thread thread) {
+		Thread.State state = thread.getState();
+		return state == Thread.State.WAITING
+			|| state == Thread.State.TIMED_WAITING;
+	}
+
+	public synchronized void watch(Thread thread) {
+		watchedThread = thread;
+		watchedThreadInterrupted = false;
+		interruptPending = false;
+	}
+
+	/**
+	 * Stops watching the thread. If it has been interrupted by
+	 * {@link #record(int)} then its interrupted status is cleared. Must be
+	 * called by the watched thread.
+	 *
+	 * @return whether the thread has been interrupted by {@link #record(int)}.
+	 */
+	public synchronized boolean stopWatching() {
+		watchedThread = null;
+		interruptPending = false;
+		if (watchedThreadInterrupted)
+			Thread.interrupted();
+		return watchedThreadInterrupted;
+	}
+
+	public synchronized boolean isWatchedThreadInterrupted() {
+		return watchedThreadInterrupted;
+	}
+
+	public boolean isEmpty() {
+		return calls.isEmpty();
+	}
+
+	public List<Call> getCalls() {
+		return unmodifiableList(calls);
+	}
+
+	public Call getFirstCall() {
+		return calls.isEmpty() ? null : calls.get(0);
+	}
+
+	/**
+	 * A single call of {@code System.exit}.
+	 */
+	public static class Call {
+		private final int status;
+		private final Thread thread;
+		private final StackTraceElement[] stackTrace;
+
+		Call(int status, Thread thread, StackTraceElement[] stackTrace) {
+			this.status = status;
+			this.thread = thread;
+			this.stackTrace = stackTrace;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public Thread getThread() {
+			return thread;
+		}
+
+		public StackTraceElement[] getStackTrace() {
+			return stackTrace.clone();
+		}
+	}
+}
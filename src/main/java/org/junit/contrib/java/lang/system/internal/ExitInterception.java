@@ -0,0 +1,48 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import org.junit.contrib.java.lang.system.internal.hook.ExitHook;
+
+/**
+ * The {@code ExitInterception} prevents {@code System.exit} from
+ * terminating the JVM while it is started. It is an alternative to the
+ * {@link NoExitSecurityManager} that doesn't need a {@code SecurityManager}.
+ * Every call of {@code Runtime.exit(int)} and {@code Runtime.halt(int)} is
+ * recorded by its {@link ExitCalls} and throws a {@link CheckExitCalled}
+ * exception.
+ *
+ * <p>The {@code ExitInterception} must not be loaded before
+ * {@link InstrumentationAgent#interceptExit()} has been called because it
+ * uses the {@link ExitHook}, which is loaded by the bootstrap class loader.
+ */
+public class ExitInterception implements ExitRecorder {
+	private final Recorder recorder = new Recorder();
+	private ExitHook.Handler previousHandler;
+
+	public void start() {
+		previousHandler = ExitHook.getHandler();
+		ExitHook.setHandler(recorder);
+	}
+
+	public void stop() {
+		ExitHook.setHandler(previousHandler);
+	}
+
+	public ExitCalls getExitCalls() {
+		return recorder.exitCalls;
+	}
+
+	public ExitCalls resetExitCalls() {
+		recorder.exitCalls = new ExitCalls();
+		return recorder.exitCalls;
+	}
+
+	private static class Recorder extends ExitHook.Handler {
+		volatile ExitCalls exitCalls = new ExitCalls();
+
+		@Override
+		public void exitCalled(int status, boolean halt) {
+			exitCalls.record(status);
+			throw new CheckExitCalled(status);
+		}
+	}
+}
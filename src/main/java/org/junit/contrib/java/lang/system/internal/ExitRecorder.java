@@ -0,0 +1,17 @@
+package org.junit.contrib.java.lang.system.internal;
+
+/**
+ * An {@code ExitRecorder} prevents {@code System.exit} from terminating the
+ * JVM and records the calls by its current {@link ExitCalls}.
+ */
+public interface ExitRecorder {
+	ExitCalls getExitCalls();
+
+	/**
+	 * Replaces the current {@link ExitCalls} with new ones, that record
+	 * the subsequent calls.
+	 *
+	 * @return the new {@code ExitCalls}.
+	 */
+	ExitCalls resetExitCalls();
+}
@@ -0,0 +1,67 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * {@code FingerprintingProperties} is a view of other {@code Properties} that
+ * maintains a fingerprint of their entries. The fingerprint is the sum of
+ * the hashes of all entries. Therefore it is updated by every change in
+ * constant time and doesn't depend on the order of the entries. Equal
+ * properties have the same fingerprint. Different properties have different
+ * fingerprints with a very high probability.
+ */
+public class FingerprintingProperties extends ForwardingProperties {
+	private static final long serialVersionUID = 1L;
+
+	private long fingerprint;
+
+	public FingerprintingProperties(Properties original) {
+		super(original);
+		fingerprint = fingerprintOf(original);
+	}
+
+	/**
+	 * Computes the fingerprint of a map by iterating over all its entries.
+	 *
+	 * @param map the map.
+	 * @return the fingerprint of the map.
+	 */
+	public static long fingerprintOf(Map<?, ?> map) {
+		long fingerprint = 0;
+		synchronized (map) {
+			for (Map.Entry<?, ?> entry: map.entrySet())
+				fingerprint += hash(entry.getKey(), entry.getValue());
+		}
+		return fingerprint;
+	}
+
+	private static long hash(Object key, Object value) {
+		long h = key.hashCode() * 0x9E3779B97F4A7C15L + value.hashCode();
+		//finalizer of MurmurHash3
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	public synchronized long getFingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	synchronized void beforeChange(Object key) {
+		Object value = original.get(key);
+		if (value != null)
+			fingerprint -= hash(key, value);
+	}
+
+	@Override
+	synchronized void afterChange(Object key) {
+		Object value = original.get(key);
+		if (value != null)
+			fingerprint += hash(key, value);
+	}
+}
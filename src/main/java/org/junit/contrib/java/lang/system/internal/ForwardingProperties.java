@@ -0,0 +1,319 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * {@code ForwardingProperties} is a view of other {@code Properties}. All
+ * reads and writes go to the original properties. Subclasses are notified
+ * before and after a property is changed.
+ *
+ * <p>Creating the view doesn't copy the original properties. Only
+ * {@link #clear()} and {@code replaceAll} notify about every property.
+ */
+abstract class ForwardingProperties extends PropertiesView {
+	private static final long serialVersionUID = 1L;
+
+	final Properties original;
+
+	ForwardingProperties(Properties original) {
+		this.original = original;
+	}
+
+	public Properties getOriginal() {
+		return original;
+	}
+
+	/**
+	 * Called before the property with the given key is changed.
+	 *
+	 * @param key the key of the property.
+	 */
+	abstract void beforeChange(Object key);
+
+	/**
+	 * Called after the property with the given key has been changed.
+	 *
+	 * @param key the key of the property.
+	 */
+	void afterChange(Object key) {
+	}
+
+	private void beforeChangeOfAll(Collection<Object> keys) {
+		for (Object key: keys)
+			beforeChange(key);
+	}
+
+	private void afterChangeOfAll(Collection<Object> keys) {
+		for (Object key: keys)
+			afterChange(key);
+	}
+
+	@Override
+	public synchronized Object setProperty(String key, String value) {
+		return put(key, value);
+	}
+
+	@Override
+	public synchronized Object put(Object key, Object value) {
+		beforeChange(key);
+		try {
+			return original.put(key, value);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	@Override
+	public synchronized void putAll(Map<?, ?> t) {
+		for (Map.Entry<?, ?> entry: t.entrySet())
+			put(entry.getKey(), entry.getValue());
+	}
+
+	@Override
+	public synchronized Object remove(Object key) {
+		beforeChange(key);
+		try {
+			return original.remove(key);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		Collection<Object> keys = new ArrayList<Object>(original.keySet());
+		beforeChangeOfAll(keys);
+		original.clear();
+		afterChangeOfAll(keys);
+	}
+
+	@Override
+	public synchronized void load(Reader reader) throws IOException {
+		Properties loaded = new Properties();
+		loaded.load(reader);
+		putAll(loaded);
+	}
+
+	@Override
+	public synchronized void load(InputStream inStream) throws IOException {
+		Properties loaded = new Properties();
+		loaded.load(inStream);
+		putAll(loaded);
+	}
+
+	@Override
+	public synchronized void loadFromXML(InputStream in) throws IOException {
+		Properties loaded = new Properties();
+		loaded.loadFromXML(in);
+		putAll(loaded);
+	}
+
+	@Override
+	public String getProperty(String key) {
+		return original.getProperty(key);
+	}
+
+	@Override
+	public String getProperty(String key, String defaultValue) {
+		return original.getProperty(key, defaultValue);
+	}
+
+	@Override
+	public Enumeration<?> propertyNames() {
+		return original.propertyNames();
+	}
+
+	@Override
+	public Set<String> stringPropertyNames() {
+		return original.stringPropertyNames();
+	}
+
+	@Override
+	public void list(PrintStream out) {
+		original.list(out);
+	}
+
+	@Override
+	public void list(PrintWriter out) {
+		original.list(out);
+	}
+
+	@Override
+	public Object get(Object key) {
+		return original.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return original.containsKey(key);
+	}
+
+	@Override
+	public boolean contains(Object value) {
+		return original.contains(value);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return original.containsValue(value);
+	}
+
+	@Override
+	public int size() {
+		return original.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return original.isEmpty();
+	}
+
+	@Override
+	public Enumeration<Object> keys() {
+		return original.keys();
+	}
+
+	@Override
+	public Enumeration<Object> elements() {
+		return original.elements();
+	}
+
+	@Override
+	Collection<Map.Entry<Object, Object>> entries() {
+		synchronized (original) {
+			return new ArrayList<Map.Entry<Object, Object>>(original.entrySet());
+		}
+	}
+
+	@Override
+	public synchronized boolean equals(Object o) {
+		return original.equals(o);
+	}
+
+	@Override
+	public synchronized int hashCode() {
+		return original.hashCode();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return original.toString();
+	}
+
+	@Override
+	public synchronized Object clone() {
+		Properties copy = new Properties();
+		copy.putAll(original);
+		return copy;
+	}
+
+	/*
+	 * Java 8 added the following methods of Map. Hashtable implements them
+	 * by accessing its own table, which is empty for this view. They are
+	 * never called on older JVMs.
+	 */
+
+	public Object getOrDefault(Object key, Object defaultValue) {
+		return original.getOrDefault(key, defaultValue);
+	}
+
+	public synchronized void forEach(
+			java.util.function.BiConsumer<? super Object, ? super Object> action) {
+		original.forEach(action);
+	}
+
+	public synchronized void replaceAll(
+			java.util.function.BiFunction<? super Object, ? super Object, ?> function) {
+		Collection<Object> keys = new ArrayList<Object>(original.keySet());
+		beforeChangeOfAll(keys);
+		original.replaceAll(function);
+		afterChangeOfAll(keys);
+	}
+
+	public synchronized Object putIfAbsent(Object key, Object value) {
+		beforeChange(key);
+		try {
+			return original.putIfAbsent(key, value);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	public synchronized boolean remove(Object key, Object value) {
+		beforeChange(key);
+		try {
+			return original.remove(key, value);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	public synchronized boolean replace(Object key, Object oldValue,
+			Object newValue) {
+		beforeChange(key);
+		try {
+			return original.replace(key, oldValue, newValue);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	public synchronized Object replace(Object key, Object value) {
+		beforeChange(key);
+		try {
+			return original.replace(key, value);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	public synchronized Object computeIfAbsent(Object key,
+			java.util.function.Function<? super Object, ?> mappingFunction) {
+		beforeChange(key);
+		try {
+			return original.computeIfAbsent(key, mappingFunction);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	public synchronized Object computeIfPresent(Object key,
+			java.util.function.BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+		beforeChange(key);
+		try {
+			return original.computeIfPresent(key, remappingFunction);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	public synchronized Object compute(Object key,
+			java.util.function.BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+		beforeChange(key);
+		try {
+			return original.compute(key, remappingFunction);
+		} finally {
+			afterChange(key);
+		}
+	}
+
+	public synchronized Object merge(Object key, Object value,
+			java.util.function.BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+		beforeChange(key);
+		try {
+			return original.merge(key, value, remappingFunction);
+		} finally {
+			afterChange(key);
+		}
+	}
+}
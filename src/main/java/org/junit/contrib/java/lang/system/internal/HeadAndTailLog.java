@@ -0,0 +1,128 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.lang.System.getProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+
+/**
+ * A {@code HeadAndTailLog} stores the first {@code headLines} and the last
+ * {@code tailLines} lines that are written to it. The lines in between are
+ * only counted. Therefore its memory consumption does not depend on the
+ * number of lines that are written. Lines that are longer than
+ * {@code maxLineLength} bytes are truncated. The log stores a marker that
+ * tells how many bytes of the line have been truncated instead of them.
+ */
+public class HeadAndTailLog extends OutputStream {
+	public static final int DEFAULT_MAX_LINE_LENGTH = 8192;
+	private static final int NEW_LINE = '\n';
+
+	private final int headLines;
+	private final int tailLines;
+	private final int maxLineLength;
+	private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+	private final LinkedList<byte[]> tail = new LinkedList<byte[]>();
+	private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+	private int linesInHead = 0;
+	private long omittedLines = 0;
+	private long omittedBytes = 0;
+	private int lengthOfCurrentLine = 0;
+	private long truncatedBytes = 0;
+
+	public HeadAndTailLog(int headLines, int tailLines) {
+		this(headLines, tailLines, DEFAULT_MAX_LINE_LENGTH);
+	}
+
+	public HeadAndTailLog(int headLines, int tailLines, int maxLineLength) {
+		if (headLines < 0 || tailLines < 0)
+			throw new IllegalArgumentException(
+				"The number of lines must not be negative.");
+		if (maxLineLength < 0)
+			throw new IllegalArgumentException(
+				"The maximum line length must not be negative.");
+		this.headLines = headLines;
+		this.tailLines = tailLines;
+		this.maxLineLength = maxLineLength;
+	}
+
+	@Override
+	public void write(int b) {
+		if (b == NEW_LINE) {
+			if (truncatedBytes > 0)
+				append(truncationMarker());
+			lengthOfCurrentLine = 0;
+			truncatedBytes = 0;
+			append(b);
+		} else if (lengthOfCurrentLine < maxLineLength) {
+			++lengthOfCurrentLine;
+			append(b);
+		} else
+			++truncatedBytes;
+	}
+
+	private void append(byte[] bytes) {
+		for (byte b: bytes)
+			append(b);
+	}
+
+	private void append(int b) {
+		if (linesInHead < headLines)
+			writeToHead(b);
+		else
+			writeToTail(b);
+	}
+
+	private void writeToHead(int b) {
+		head.write(b);
+		if (b == NEW_LINE)
+			++linesInHead;
+	}
+
+	private void writeToTail(int b) {
+		currentLine.write(b);
+		if (b == NEW_LINE) {
+			tail.addLast(currentLine.toByteArray());
+			currentLine.reset();
+			if (tail.size() > tailLines)
+				omit(tail.removeFirst());
+		}
+	}
+
+	private void omit(byte[] line) {
+		++omittedLines;
+		omittedBytes += line.length;
+	}
+
+	public void reset() {
+		head.reset();
+		tail.clear();
+		currentLine.reset();
+		linesInHead = 0;
+		omittedLines = 0;
+		omittedBytes = 0;
+		lengthOfCurrentLine = 0;
+		truncatedBytes = 0;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		head.writeTo(out);
+		if (omittedLines > 0)
+			out.write(omissionMarker().getBytes());
+		for (byte[] line: tail)
+			out.write(line);
+		currentLine.writeTo(out);
+		if (truncatedBytes > 0)
+			out.write(truncationMarker());
+	}
+
+	private byte[] truncationMarker() {
+		return (" ... " + truncatedBytes + " bytes truncated ...").getBytes();
+	}
+
+	private String omissionMarker() {
+		return "... " + omittedLines + " lines / " + omittedBytes
+			+ " bytes omitted ..." + getProperty("line.separator");
+	}
+}
@@ -0,0 +1,98 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code HeavyHitters} finds the most frequent items of a stream with bounded
+ * memory. It implements the Space-Saving algorithm: at most {@code capacity}
+ * items are counted. A new item replaces the item with the lowest count and
+ * inherits its count. That count is the maximal overestimation of the new
+ * item's count. Every item that occurs more often than {@code n / capacity}
+ * times in a stream of {@code n} items is guaranteed to be counted.
+ */
+public class HeavyHitters {
+	private final int capacity;
+	private final Map<String, Counter> counters;
+
+	public HeavyHitters(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException(
+				"The capacity must be at least 1.");
+		this.capacity = capacity;
+		this.counters = new HashMap<String, Counter>(2 * capacity);
+	}
+
+	public synchronized void add(String item) {
+		Counter counter = counters.get(item);
+		if (counter != null)
+			++counter.count;
+		else if (counters.size() < capacity)
+			counters.put(item, new Counter(item, 1, 0));
+		else
+			replaceItemWithLowestCount(item);
+	}
+
+	private void replaceItemWithLowestCount(String item) {
+		Counter lowest = null;
+		for (Counter counter: counters.values())
+			if (lowest == null || counter.count < lowest.count)
+				lowest = counter;
+		counters.remove(lowest.item);
+		counters.put(item, new Counter(item, lowest.count + 1, lowest.count));
+	}
+
+	/**
+	 * Returns the counted items, the most frequent item first. Items with
+	 * the same count are ordered alphabetically.
+	 *
+	 * @return the counted items, the most frequent item first.
+	 */
+	public synchronized List<Counter> getCounters() {
+		List<Counter> list = new ArrayList<Counter>();
+		for (Counter counter: counters.values())
+			list.add(new Counter(counter.item, counter.count, counter.error));
+		Collections.sort(list, new Comparator<Counter>() {
+			public int compare(Counter first, Counter second) {
+				return (first.count == second.count)
+					? first.item.compareTo(second.item)
+					: (first.count > second.count) ? -1 : 1;
+			}
+		});
+		return list;
+	}
+
+	public static class Counter {
+		private final String item;
+		private long count;
+		private final long error;
+
+		Counter(String item, long count, long error) {
+			this.item = item;
+			this.count = count;
+			this.error = error;
+		}
+
+		public String getItem() {
+			return item;
+		}
+
+		/**
+		 * Returns the estimated number of occurrences. It exceeds the real
+		 * number of occurrences by {@link #getError()} at most.
+		 *
+		 * @return the estimated number of occurrences.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		public long getError() {
+			return error;
+		}
+	}
+}
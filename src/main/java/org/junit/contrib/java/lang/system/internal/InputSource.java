@@ -0,0 +1,62 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@code InputSource} provides the bytes that are read from a mocked
+ * {@code System.in}. In addition to the methods of an {@code InputStream}
+ * it can read a single line.
+ */
+public abstract class InputSource extends InputStream {
+	/**
+	 * Reads up to {@code len} bytes but stops after the first line separator.
+	 * This implementation reads byte by byte. Subclasses should override it
+	 * if they can find the line separator more efficiently.
+	 *
+	 * @param b the buffer into which the data is read.
+	 * @param off the start offset in {@code b}.
+	 * @param len the maximum number of bytes to read. Must be positive.
+	 * @param lineSeparator the encoded line separator.
+	 * @return the number of bytes that have been read or {@code -1} if the
+	 * end of the input has been reached.
+	 * @throws IOException if the input cannot be read.
+	 */
+	public int readLine(byte[] b, int off, int len, byte[] lineSeparator)
+			throws IOException {
+		int n = 0;
+		while (n < len && !endsWith(b, off, n, lineSeparator)) {
+			int c = read();
+			if (c == -1)
+				break;
+			b[off + n++] = (byte) c;
+		}
+		return (n == 0) ? -1 : n;
+	}
+
+	/**
+	 * Returns the number of bytes that can be read without blocking until
+	 * the end of the current line (including the line separator). It returns
+	 * {@code 0} if the last byte that has been read is the end of a line.
+	 * This implementation always returns {@code 0} because it cannot look
+	 * ahead.
+	 *
+	 * @param lineSeparator the encoded line separator.
+	 * @return an estimate of the number of bytes until the end of the
+	 * current line.
+	 * @throws IOException if the input cannot be read.
+	 */
+	public int availableInLine(byte[] lineSeparator) throws IOException {
+		return 0;
+	}
+
+	static boolean endsWith(byte[] b, int off, int n, byte[] suffix) {
+		if (n < suffix.length)
+			return false;
+		int start = off + n - suffix.length;
+		for (int i = 0; i < suffix.length; ++i)
+			if (b[start + i] != suffix[i])
+				return false;
+		return true;
+	}
+}
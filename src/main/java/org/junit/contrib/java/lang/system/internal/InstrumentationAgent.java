@@ -0,0 +1,349 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.ProtectionDomain;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.contrib.java.lang.system.internal.hook.EnvironmentHook;
+import org.junit.contrib.java.lang.system.internal.hook.ExitHook;
+
+/**
+ * The {@code InstrumentationAgent} patches methods of the JDK so that they
+ * call hooks of System Rules. It is an optional alternative to modifying
+ * internals of the JDK by reflection, which needs {@code --add-opens} on
+ * Java 16 and later.
+ *
+ * <p>The agent is either started by the JVM's option
+ * {@code -javaagent:path/to/system-rules.jar} or attached to the running JVM
+ * by {@link #getInstrumentation()}. Attaching needs the Attach API of the
+ * JDK. On Java 9 and later the JVM must be started with
+ * {@code -Djdk.attach.allowAttachSelf=true}.
+ *
+ * <p>The hooks are loaded by the bootstrap class loader because they are
+ * called by classes of the JDK. Therefore they are added to the bootstrap
+ * class path before they are used for the first time.
+ */
+public class InstrumentationAgent {
+	private static final String[] HOOKS = {
+		"org/junit/contrib/java/lang/system/internal/hook/EnvironmentHook.class",
+		"org/junit/contrib/java/lang/system/internal/hook/ExitHook.class",
+		"org/junit/contrib/java/lang/system/internal/hook/ExitHook$Handler.class"
+	};
+	private static final String ENVIRONMENT_HOOK
+		= "org/junit/contrib/java/lang/system/internal/hook/EnvironmentHook";
+	private static final String EXIT_HOOK
+		= "org/junit/contrib/java/lang/system/internal/hook/ExitHook";
+
+	private static volatile Instrumentation instrumentation;
+	private static boolean hooksAvailable = false;
+	private static volatile boolean environmentRedirected = false;
+	private static volatile boolean exitIntercepted = false;
+
+	/**
+	 * Called by the JVM if the agent is started by {@code -javaagent}. The
+	 * agent redirects {@code System.getenv} and intercepts
+	 * {@code System.exit} immediately.
+	 *
+	 * @param args the agent's arguments. Not used.
+	 * @param instrumentation the JVM's instrumentation.
+	 */
+	public static void premain(String args, Instrumentation instrumentation) {
+		InstrumentationAgent.instrumentation = instrumentation;
+		redirectEnvironment();
+		interceptExit();
+	}
+
+	/**
+	 * Called by the JVM if the agent is attached to the running JVM.
+	 *
+	 * @param args the agent's arguments. Not used.
+	 * @param instrumentation the JVM's instrumentation.
+	 */
+	public static void agentmain(String args, Instrumentation instrumentation) {
+		InstrumentationAgent.instrumentation = instrumentation;
+	}
+
+	/**
+	 * Returns the JVM's instrumentation. The agent is attached to the JVM if
+	 * it has not been started by {@code -javaagent}.
+	 *
+	 * @return the JVM's instrumentation.
+	 */
+	public static synchronized Instrumentation getInstrumentation() {
+		if (instrumentation == null)
+			attach();
+		return instrumentation;
+	}
+
+	private static void attach() {
+		try {
+			File agentJar = createJar(agentManifest(), new String[0]);
+			String nameOfJvm = ManagementFactory.getRuntimeMXBean().getName();
+			String pid = nameOfJvm.substring(0, nameOfJvm.indexOf('@'));
+			Class<?> virtualMachine = loadVirtualMachineClass();
+			Object jvm = virtualMachine.getMethod("attach", String.class)
+				.invoke(null, pid);
+			try {
+				virtualMachine.getMethod("loadAgent", String.class)
+					.invoke(jvm, agentJar.getAbsolutePath());
+			} finally {
+				virtualMachine.getMethod("detach").invoke(jvm);
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("System Rules cannot attach its"
+				+ " agent to the JVM. Please start the JVM with"
+				+ " -javaagent:path/to/system-rules.jar or, on Java 9 and"
+				+ " later, with -Djdk.attach.allowAttachSelf=true.", e);
+		}
+		if (instrumentation == null)
+			throw new IllegalStateException("System Rules has attached its"
+				+ " agent to the JVM but the agent has not been started.");
+	}
+
+	private static Manifest agentManifest() {
+		Manifest manifest = new Manifest();
+		Attributes attributes = manifest.getMainAttributes();
+		attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		attributes.putValue("Agent-Class", InstrumentationAgent.class.getName());
+		attributes.putValue("Can-Redefine-Classes", "true");
+		attributes.putValue("Can-Retransform-Classes", "true");
+		return manifest;
+	}
+
+	/*
+	 * The Attach API is part of the JDK's tools.jar on Java 8 and earlier.
+	 */
+	private static Class<?> loadVirtualMachineClass() throws Exception {
+		String name = "com.sun.tools.attach.VirtualMachine";
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			File toolsJar = new File(
+				System.getProperty("java.home"), "../lib/tools.jar");
+			ClassLoader loader = new URLClassLoader(
+				new URL[] { toolsJar.toURI().toURL() });
+			return loader.loadClass(name);
+		}
+	}
+
+	/**
+	 * Patches {@code System.getenv()} and {@code System.getenv(String)} so
+	 * that they read {@link EnvironmentOverrides} instead of the real
+	 * environment. Does nothing if they are already patched.
+	 */
+	public static synchronized void redirectEnvironment() {
+		if (environmentRedirected)
+			return;
+		Instrumentation instrumentation = getInstrumentation();
+		makeHooksAvailable(instrumentation);
+		Map<String, String> realEnvironment = System.getenv();
+		EnvironmentHook.initialize(realEnvironment,
+			new EnvironmentOverrides(realEnvironment));
+		retransform(instrumentation, System.class, new Patch() {
+			@Override
+			void apply(ClassFilePatcher patcher) throws IOException {
+				int getenvOfName = patcher.addMethodref(ENVIRONMENT_HOOK,
+					"getenv", "(Ljava/lang/String;)Ljava/lang/String;");
+				patcher.replaceBody("getenv",
+					"(Ljava/lang/String;)Ljava/lang/String;",
+					new byte[] {
+						0x2a, //aload_0
+						(byte) 0xb8, (byte) (getenvOfName >> 8),
+						(byte) getenvOfName, //invokestatic
+						(byte) 0xb0 //areturn
+					},
+					1);
+				int getenv = patcher.addMethodref(ENVIRONMENT_HOOK,
+					"getenv", "()Ljava/util/Map;");
+				patcher.replaceBody("getenv", "()Ljava/util/Map;",
+					new byte[] {
+						(byte) 0xb8, (byte) (getenv >> 8), (byte) getenv,
+						(byte) 0xb0 //areturn
+					},
+					1);
+			}
+		});
+		environmentRedirected = true;
+	}
+
+	/**
+	 * Tells whether {@code System.getenv} reads
+	 * {@link EnvironmentHook#getMap()}.
+	 *
+	 * @return {@code true} if {@code System.getenv} has been patched.
+	 */
+	public static boolean isEnvironmentRedirected() {
+		return environmentRedirected;
+	}
+
+	/**
+	 * Patches {@code Runtime.exit(int)} and {@code Runtime.halt(int)} so
+	 * that they call the {@link ExitHook} before the JVM is terminated. Does
+	 * nothing if they are already patched. The JVM is still terminated as
+	 * long as the hook has no handler.
+	 */
+	public static synchronized void interceptExit() {
+		if (exitIntercepted)
+			return;
+		Instrumentation instrumentation = getInstrumentation();
+		makeHooksAvailable(instrumentation);
+		retransform(instrumentation, Runtime.class, new Patch() {
+			@Override
+			void apply(ClassFilePatcher patcher) throws IOException {
+				prependCallOfHook(patcher, "exit");
+				prependCallOfHook(patcher, "halt");
+			}
+
+			private void prependCallOfHook(ClassFilePatcher patcher,
+					String method) throws IOException {
+				int hook = patcher.addMethodref(EXIT_HOOK, method, "(I)V");
+				patcher.prependToBody(method, "(I)V",
+					new byte[] {
+						0x1b, //iload_1
+						(byte) 0xb8, (byte) (hook >> 8), (byte) hook //invokestatic
+					},
+					1);
+			}
+		});
+		exitIntercepted = true;
+	}
+
+	/**
+	 * Tells whether {@code Runtime.exit(int)} and {@code Runtime.halt(int)}
+	 * call the {@link ExitHook}.
+	 *
+	 * @return {@code true} if {@code Runtime.exit(int)} and
+	 * {@code Runtime.halt(int)} have been patched.
+	 */
+	public static boolean isExitIntercepted() {
+		return exitIntercepted;
+	}
+
+	private static void makeHooksAvailable(Instrumentation instrumentation) {
+		if (hooksAvailable)
+			return;
+		try {
+			instrumentation.appendToBootstrapClassLoaderSearch(
+				new JarFile(createJar(new Manifest(), HOOKS)));
+		} catch (IOException e) {
+			throw new IllegalStateException(
+				"System Rules cannot provide its hooks to the JDK.", e);
+		}
+		letJavaBaseReadHooks(instrumentation);
+		hooksAvailable = true;
+	}
+
+	/*
+	 * On Java 9 and later the module java.base must read the unnamed module
+	 * of the bootstrap class loader. Otherwise the patched classes cannot
+	 * call the hooks. The methods are called by reflection because System
+	 * Rules is compiled for Java 5.
+	 */
+	private static void letJavaBaseReadHooks(Instrumentation instrumentation) {
+		Method getModule;
+		try {
+			getModule = Class.class.getMethod("getModule");
+		} catch (NoSuchMethodException e) {
+			return; //Java 8 and earlier have no modules
+		}
+		try {
+			Object javaBase = getModule.invoke(Object.class);
+			Object hooks = getModule.invoke(EnvironmentHook.class);
+			Method redefineModule = Instrumentation.class.getMethod(
+				"redefineModule", getModule.getReturnType(), Set.class,
+				Map.class, Map.class, Set.class, Map.class);
+			redefineModule.invoke(instrumentation, javaBase, singleton(hooks),
+				emptyMap(), emptyMap(), emptySet(), emptyMap());
+		} catch (Exception e) {
+			throw new IllegalStateException("System Rules cannot let the"
+				+ " module java.base read its hooks.", e);
+		}
+	}
+
+	private static File createJar(Manifest manifest, String[] resources)
+			throws IOException {
+		File jar = File.createTempFile("system-rules-", ".jar");
+		jar.deleteOnExit();
+		JarOutputStream out = new JarOutputStream(
+			new FileOutputStream(jar), manifest);
+		try {
+			for (String resource: resources) {
+				out.putNextEntry(new JarEntry(resource));
+				InputStream in = InstrumentationAgent.class
+					.getClassLoader().getResourceAsStream(resource);
+				try {
+					byte[] buffer = new byte[4096];
+					for (int n = in.read(buffer); n != -1; n = in.read(buffer))
+						out.write(buffer, 0, n);
+				} finally {
+					in.close();
+				}
+				out.closeEntry();
+			}
+		} finally {
+			out.close();
+		}
+		return jar;
+	}
+
+	private static void retransform(Instrumentation instrumentation,
+			final Class<?> type, final Patch patch) {
+		final String name = type.getName().replace('.', '/');
+		ClassFileTransformer transformer = new ClassFileTransformer() {
+			public byte[] transform(ClassLoader loader, String className,
+					Class<?> classBeingRedefined,
+					ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+				if (!name.equals(className))
+					return null;
+				try {
+					ClassFilePatcher patcher = new ClassFilePatcher(classfileBuffer);
+					patch.apply(patcher);
+					return patcher.toByteArray();
+				} catch (Throwable e) {
+					patch.failure = e;
+					return null;
+				}
+			}
+		};
+		//The transformer is only needed for this retransformation. Otherwise
+		//every class that is loaded later would be passed to it.
+		instrumentation.addTransformer(transformer, true);
+		Throwable failure;
+		try {
+			instrumentation.retransformClasses(type);
+			failure = patch.failure;
+		} catch (Exception e) {
+			failure = e;
+		} finally {
+			instrumentation.removeTransformer(transformer);
+		}
+		if (failure != null)
+			throw new IllegalStateException("System Rules cannot patch the"
+				+ " class " + type.getName() + ".", failure);
+	}
+
+	private static abstract class Patch {
+		volatile Throwable failure;
+
+		abstract void apply(ClassFilePatcher patcher) throws IOException;
+	}
+}
@@ -0,0 +1,55 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * {@code JournalingProperties} is a view of other {@code Properties}. All
+ * reads and writes go to the original properties. Before a property is
+ * changed for the first time its original value is recorded. Therefore
+ * {@link #restore()} only has to restore the changed properties.
+ *
+ * <p>Creating the view doesn't copy the original properties. Only
+ * {@link #clear()} has to record every property.
+ */
+public class JournalingProperties extends ForwardingProperties {
+	private static final long serialVersionUID = 1L;
+	private static final Object ABSENT = new Object();
+
+	private final Map<Object, Object> journal = new LinkedHashMap<Object, Object>();
+
+	public JournalingProperties(Properties original) {
+		super(original);
+	}
+
+	/**
+	 * Restores the original values of all properties that have been changed
+	 * and clears the journal.
+	 */
+	public synchronized void restore() {
+		for (Map.Entry<Object, Object> entry: journal.entrySet())
+			if (entry.getValue() == ABSENT)
+				original.remove(entry.getKey());
+			else
+				original.put(entry.getKey(), entry.getValue());
+		journal.clear();
+	}
+
+	/**
+	 * Returns the number of properties that have been changed.
+	 *
+	 * @return the number of properties that have been changed.
+	 */
+	public synchronized int getNumberOfChanges() {
+		return journal.size();
+	}
+
+	@Override
+	synchronized void beforeChange(Object key) {
+		if (!journal.containsKey(key)) {
+			Object value = original.get(key);
+			journal.put(key, (value == null) ? ABSENT : value);
+		}
+	}
+}
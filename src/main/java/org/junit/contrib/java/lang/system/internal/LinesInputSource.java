@@ -0,0 +1,77 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A {@code LinesInputSource} encodes the lines of a text lazily. Only a
+ * single line is held in memory. Therefore the input can be arbitrarily
+ * large.
+ */
+public abstract class LinesInputSource extends InputSource {
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final Charset charset;
+	private final String lineSeparator;
+	private ByteBuffer currentLine = EMPTY;
+	private boolean endReached = false;
+
+	public LinesInputSource(Charset charset, String lineSeparator) {
+		this.charset = charset;
+		this.lineSeparator = lineSeparator;
+	}
+
+	/**
+	 * Returns the next line without line separator.
+	 *
+	 * @return the next line or {@code null} if there are no more lines.
+	 */
+	protected abstract String nextLine();
+
+	@Override
+	public int read() {
+		return hasCurrentLine() ? currentLine.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		int n = 0;
+		while (n < len && hasCurrentLine()) {
+			int bytesOfLine = Math.min(len - n, currentLine.remaining());
+			currentLine.get(b, off + n, bytesOfLine);
+			n += bytesOfLine;
+		}
+		return (n == 0 && len > 0) ? -1 : n;
+	}
+
+	@Override
+	public int readLine(byte[] b, int off, int len, byte[] lineSeparator) {
+		if (!hasCurrentLine())
+			return -1;
+		int n = Math.min(len, currentLine.remaining());
+		currentLine.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return currentLine.remaining();
+	}
+
+	@Override
+	public int availableInLine(byte[] lineSeparator) {
+		return currentLine.remaining();
+	}
+
+	private boolean hasCurrentLine() {
+		if (!currentLine.hasRemaining() && !endReached) {
+			String line = nextLine();
+			if (line == null)
+				endReached = true;
+			else
+				currentLine = ByteBuffer.wrap(
+					(line + lineSeparator).getBytes(charset));
+		}
+		return currentLine.hasRemaining();
+	}
+}
@@ -7,6 +7,7 @@ import java.io.UnsupportedEncodingException;
 
 import org.junit.runners.model.Statement;
 
+import static java.lang.Integer.MAX_VALUE;
 import static java.lang.System.getProperty;
 
 public class LogPrintStream {
@@ -15,24 +16,26 @@ public class LogPrintStream {
 
 	public LogPrintStream(PrintStreamHandler printStreamHandler) {
 		this.printStreamHandler = printStreamHandler;
-		this.muteableLogStream = new MuteableLogStream(printStreamHandler.getStream());
+		this.muteableLogStream = new MuteableLogStream();
 	}
 
 	public Statement createStatement(final Statement base) {
 		return new Statement() {
 			@Override
 			public void evaluate() throws Throwable {
+				StreamRouter router = printStreamHandler.getRouter();
+				StreamRouter.Sink sink;
+				synchronized (router) {
+					muteableLogStream.originalStream = router.getEnclosingStream();
+					sink = router.install(muteableLogStream);
+				}
 				try {
-					printStreamHandler.createRestoreStatement(new Statement() {
-						@Override
-						public void evaluate() throws Throwable {
-							printStreamHandler.replaceCurrentStreamWithOutputStream(muteableLogStream);
-							base.evaluate();
-						}
-					}).evaluate();
+					base.evaluate();
 				} catch (Throwable e) {
-					muteableLogStream.failureLog.writeTo(printStreamHandler.getStream());
+					muteableLogStream.writeFailureLogToOriginalStream();
 					throw e;
+				} finally {
+					router.uninstall(sink);
 				}
 			}
 		};
@@ -75,16 +78,29 @@ public class LogPrintStream {
 		muteableLogStream.failureLogMuted = false;
 	}
 
+	public void muteForSuccessfulTests(int headLines, int tailLines) {
+		muteableLogStream.replaceFailureLog(
+			new HeadAndTailLog(headLines, tailLines));
+		muteForSuccessfulTests();
+	}
+
 	private static class MuteableLogStream extends OutputStream {
-		final OutputStream originalStream;
-		final ByteArrayOutputStream failureLog = new ByteArrayOutputStream();
+		volatile OutputStream originalStream;
+		//replaced under the lock of the stream because other threads may be
+		//writing to the log.
+		volatile HeadAndTailLog failureLog
+			= new HeadAndTailLog(MAX_VALUE, 0, MAX_VALUE);
 		final ByteArrayOutputStream log = new ByteArrayOutputStream();
 		boolean originalStreamMuted = false;
 		boolean failureLogMuted = true;
 		boolean logMuted = true;
 
-		MuteableLogStream(OutputStream originalStream) {
-			this.originalStream = originalStream;
+		synchronized void replaceFailureLog(HeadAndTailLog failureLog) {
+			this.failureLog = failureLog;
+		}
+
+		synchronized void writeFailureLogToOriginalStream() throws IOException {
+			failureLog.writeTo(originalStream);
 		}
 
 		@Override
@@ -92,7 +108,9 @@ public class LogPrintStream {
 			if (!originalStreamMuted)
 				originalStream.write(b);
 			if (!failureLogMuted)
-				failureLog.write(b);
+				synchronized (this) {
+					failureLog.write(b);
+				}
 			if (!logMuted)
 				log.write(b);
 		}
@@ -100,13 +118,13 @@ public class LogPrintStream {
 		@Override
 		public void flush() throws IOException {
 			originalStream.flush();
-			//ByteArrayOutputStreams don't have to be closed
+			//the logs don't have to be closed
 		}
 
 		@Override
 		public void close() throws IOException {
 			originalStream.close();
-			//ByteArrayOutputStreams don't have to be closed
+			//the logs don't have to be closed
 		}
 	}
 }
@@ -0,0 +1,187 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@code MappedFileInputSource} reads a file through memory mappings. The
+ * file's bytes are neither copied to the heap nor decoded. Files that are
+ * larger than a single mapping are mapped segment by segment. Only one
+ * segment is mapped at a time and {@link #close()} releases the mapping
+ * immediately (if the JVM allows it). A segment starts a few bytes before
+ * the position that it is mapped for, so that a line separator that spans
+ * two segments is still found.
+ *
+ * <p>All methods are synchronized because accessing a mapping that has
+ * been released by another thread crashes the JVM. Reading after
+ * {@code close()} throws an {@code IOException}.
+ */
+public class MappedFileInputSource extends InputSource {
+	private static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+	//longer than the line separator of any charset
+	private static final int LOOK_BEHIND = 16;
+
+	private final FileInputStream stream;
+	private final FileChannel channel;
+	private final long size;
+	private final int segmentSize;
+	private long startOfSegment;
+	private MappedByteBuffer segment;
+	private ByteBufferInputSource input;
+	private long mark = 0;
+	private boolean closed = false;
+
+	public MappedFileInputSource(File file) throws IOException {
+		this(file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public MappedFileInputSource(File file, int segmentSize) throws IOException {
+		this.stream = new FileInputStream(file);
+		this.channel = stream.getChannel();
+		this.size = channel.size();
+		this.segmentSize = segmentSize;
+		mapSegmentAt(0);
+	}
+
+	private void mapSegmentAt(long position) throws IOException {
+		unmapSegment();
+		startOfSegment = Math.max(0, position - LOOK_BEHIND);
+		segment = channel.map(READ_ONLY, startOfSegment,
+			Math.min(segmentSize + position - startOfSegment,
+				size - startOfSegment));
+		segment.position((int) (position - startOfSegment));
+		input = new ByteBufferInputSource(segment);
+	}
+
+	private boolean hasRemaining() throws IOException {
+		ensureOpen();
+		if (input.available() == 0 && position() < size)
+			mapSegmentAt(position());
+		return input.available() > 0;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+	}
+
+	private long position() {
+		return startOfSegment + segment.position();
+	}
+
+	@Override
+	public synchronized int read() throws IOException {
+		return hasRemaining() ? input.read() : -1;
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len)
+			throws IOException {
+		ensureOpen();
+		if (len == 0)
+			return 0;
+		return hasRemaining() ? input.read(b, off, len) : -1;
+	}
+
+	@Override
+	public synchronized int readLine(byte[] b, int off, int len,
+			byte[] lineSeparator) throws IOException {
+		return hasRemaining()
+			? input.readLine(b, off, len, lineSeparator) : -1;
+	}
+
+	@Override
+	public synchronized int availableInLine(byte[] lineSeparator)
+			throws IOException {
+		return hasRemaining() ? input.availableInLine(lineSeparator) : 0;
+	}
+
+	@Override
+	public synchronized int available() throws IOException {
+		ensureOpen();
+		return (int) Math.min(Integer.MAX_VALUE, size - position());
+	}
+
+	@Override
+	public synchronized long skip(long n) throws IOException {
+		ensureOpen();
+		long skipped = Math.max(0, Math.min(n, size - position()));
+		if (skipped <= input.available())
+			input.skip(skipped);
+		else
+			mapSegmentAt(position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		if (!closed)
+			mark = position();
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		ensureOpen();
+		if (mark >= startOfSegment && mark <= startOfSegment + segment.limit())
+			segment.position((int) (mark - startOfSegment));
+		else
+			mapSegmentAt(mark);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		unmapSegment();
+		stream.close();
+	}
+
+	private void unmapSegment() {
+		if (segment != null)
+			unmap(segment);
+		segment = null;
+		input = null;
+	}
+
+	/*
+	 * A MappedByteBuffer is unmapped when it is garbage collected. The JDK
+	 * has no public API for unmapping it earlier. Therefore we call the
+	 * buffer's cleaner by reflection. If this fails, the mapping is released
+	 * by the garbage collector.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod(
+				"invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+		} catch (NoSuchMethodException e) {
+			unmapBeforeJava9(buffer);
+		} catch (Exception ignored) {
+		}
+	}
+
+	private static void unmapBeforeJava9(ByteBuffer buffer) {
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			cleaner.getClass().getMethod("clean").invoke(cleaner);
+		} catch (Exception ignored) {
+		}
+	}
+}
@@ -6,12 +6,14 @@ import java.security.Permission;
 
 /**
  * A {@code NoExitSecurityManager} throws a {@link CheckExitCalled} exception
- * whenever {@link #checkExit(int)} is called. All other method calls are
- * delegated to the original security manager.
+ * whenever {@link #checkExit(int)} is called. Every call is recorded by its
+ * {@link ExitCalls}. All other method calls are delegated to the original
+ * security manager.
  */
-public class NoExitSecurityManager extends SecurityManager {
+public class NoExitSecurityManager extends SecurityManager
+		implements ExitRecorder {
 	private final SecurityManager originalSecurityManager;
-	private Integer statusOfFirstExitCall = null;
+	private volatile ExitCalls exitCalls = new ExitCalls();
 
 	public NoExitSecurityManager(SecurityManager originalSecurityManager) {
 		this.originalSecurityManager = originalSecurityManager;
@@ -19,18 +21,26 @@ public class NoExitSecurityManager extends SecurityManager {
 
 	@Override
 	public void checkExit(int status) {
-		if (statusOfFirstExitCall == null)
-			statusOfFirstExitCall = status;
+		exitCalls.record(status);
 		throw new CheckExitCalled(status);
 	}
 
+	public ExitCalls getExitCalls() {
+		return exitCalls;
+	}
+
+	public ExitCalls resetExitCalls() {
+		exitCalls = new ExitCalls();
+		return exitCalls;
+	}
+
 	public boolean isCheckExitCalled() {
-		return statusOfFirstExitCall != null;
+		return !exitCalls.isEmpty();
 	}
 
 	public int getStatusOfFirstCheckExitCall() {
 		if (isCheckExitCalled())
-			return statusOfFirstExitCall;
+			return getExitCalls().getFirstCall().getStatus();
 		else
 			throw new IllegalStateException(
 				"checkExit(int) has not been called.");
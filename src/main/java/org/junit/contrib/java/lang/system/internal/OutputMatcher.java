@@ -0,0 +1,173 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.nio.charset.CodingErrorAction.REPLACE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.runners.model.Statement;
+
+/**
+ * An {@code OutputMatcher} captures a stream and lets a test wait until a
+ * text or pattern appears in the output. The bytes are decoded as soon as
+ * they are written and a waiting thread is woken up immediately. Every
+ * search starts after the end of the previous match. A search for a text
+ * only looks at output that has not been searched before.
+ */
+public class OutputMatcher extends OutputStream {
+	private final PrintStreamHandler printStreamHandler;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition newOutput = lock.newCondition();
+	private final CharsetDecoder decoder;
+	private final StringBuilder output = new StringBuilder();
+	private byte[] undecodedBytes = new byte[0];
+	private int endOfLastMatch = 0;
+
+	public OutputMatcher(PrintStreamHandler printStreamHandler, Charset charset) {
+		this.printStreamHandler = printStreamHandler;
+		this.decoder = charset.newDecoder()
+			.onMalformedInput(REPLACE)
+			.onUnmappableCharacter(REPLACE);
+	}
+
+	public Statement createStatement(final Statement base) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				StreamRouter router = printStreamHandler.getRouter();
+				StreamRouter.Sink sink = router.install(OutputMatcher.this);
+				try {
+					base.evaluate();
+				} finally {
+					router.uninstall(sink);
+				}
+			}
+		};
+	}
+
+	@Override
+	public void write(int b) {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		lock.lock();
+		try {
+			decode(b, off, len);
+			newOutput.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void decode(byte[] b, int off, int len) {
+		ByteBuffer bytes = ByteBuffer.allocate(undecodedBytes.length + len);
+		bytes.put(undecodedBytes).put(b, off, len).flip();
+		CharBuffer chars = CharBuffer.allocate(bytes.remaining());
+		decoder.decode(bytes, chars, false);
+		chars.flip();
+		output.append(chars);
+		undecodedBytes = new byte[bytes.remaining()];
+		bytes.get(undecodedBytes);
+	}
+
+	/**
+	 * Waits until the text appears in the output after the previous match.
+	 *
+	 * @param text the expected text.
+	 * @param timeoutMillis the maximal time to wait.
+	 * @return {@code true} if the text appeared within the timeout.
+	 * @throws InterruptedException if the current thread is interrupted.
+	 */
+	public boolean awaitText(final String text, long timeoutMillis)
+			throws InterruptedException {
+		return await(new Search() {
+			int startOfUnsearchedOutput = endOfLastMatch;
+
+			@Override
+			int find() {
+				int index = output.indexOf(text, startOfUnsearchedOutput);
+				startOfUnsearchedOutput = Math.max(startOfUnsearchedOutput,
+					output.length() - text.length() + 1);
+				return (index == -1) ? -1 : index + text.length();
+			}
+		}, timeoutMillis);
+	}
+
+	/**
+	 * Waits until the pattern matches the output after the previous match.
+	 *
+	 * @param pattern the expected pattern.
+	 * @param timeoutMillis the maximal time to wait.
+	 * @return {@code true} if the pattern matched within the timeout.
+	 * @throws InterruptedException if the current thread is interrupted.
+	 */
+	public boolean awaitPattern(final Pattern pattern, long timeoutMillis)
+			throws InterruptedException {
+		return await(new Search() {
+			@Override
+			int find() {
+				Matcher matcher = pattern.matcher(output);
+				matcher.region(endOfLastMatch, output.length());
+				return matcher.find() ? matcher.end() : -1;
+			}
+		}, timeoutMillis);
+	}
+
+	private boolean await(Search search, long timeoutMillis)
+			throws InterruptedException {
+		long remaining = MILLISECONDS.toNanos(timeoutMillis);
+		lock.lock();
+		try {
+			int endOfMatch;
+			while ((endOfMatch = search.find()) == -1)
+				if (remaining <= 0)
+					return false;
+				else
+					remaining = newOutput.awaitNanos(remaining);
+			endOfLastMatch = endOfMatch;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the output after the previous match.
+	 *
+	 * @return the output after the previous match.
+	 */
+	public String getUnmatchedOutput() {
+		lock.lock();
+		try {
+			return output.substring(endOfLastMatch);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public String getOutput() {
+		lock.lock();
+		try {
+			return output.toString();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static abstract class Search {
+		/**
+		 * Returns the end of the match or {@code -1}.
+		 */
+		abstract int find();
+	}
+}
@@ -0,0 +1,111 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code ParsedPropertiesCache} parses properties files once per JVM.
+ * A file is identified by its absolute path and parsed again if its
+ * modification time or length has changed. A resource is identified by its
+ * URL. The parsed properties are immutable and shared by all callers.
+ */
+public class ParsedPropertiesCache {
+	private static final Map<String, ParsedProperties> CACHE
+		= new ConcurrentHashMap<String, ParsedProperties>();
+
+	/**
+	 * Returns the properties of a file.
+	 *
+	 * @param file the properties file.
+	 * @return an immutable map of the properties.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static Map<String, String> propertiesOfFile(File file)
+			throws IOException {
+		String key = "file:" + file.getAbsolutePath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+		ParsedProperties cached = CACHE.get(key);
+		if (cached != null && cached.lastModified == lastModified
+				&& cached.length == length)
+			return cached.properties;
+		ParsedProperties parsed = new ParsedProperties(
+			parse(new FileInputStream(file)), lastModified, length);
+		CACHE.put(key, parsed);
+		return parsed.properties;
+	}
+
+	/**
+	 * Returns the properties of a resource.
+	 *
+	 * @param url the URL of the resource.
+	 * @return an immutable map of the properties.
+	 * @throws IOException if the resource cannot be read.
+	 */
+	public static Map<String, String> propertiesOfResource(URL url)
+			throws IOException {
+		String key = "resource:" + url;
+		ParsedProperties cached = CACHE.get(key);
+		if (cached != null)
+			return cached.properties;
+		ParsedProperties parsed = new ParsedProperties(
+			parse(url.openStream()), 0, 0);
+		CACHE.put(key, parsed);
+		return parsed.properties;
+	}
+
+	/**
+	 * Returns the properties of a resource.
+	 *
+	 * @param name the name of the resource.
+	 * @param clazz the class that is used for finding the resource.
+	 * @return an immutable map of the properties.
+	 * @throws IOException if the resource cannot be read.
+	 */
+	public static Map<String, String> propertiesOfResource(String name,
+			Class<?> clazz) throws IOException {
+		URL url = clazz.getResource(name);
+		if (url == null)
+			throw new FileNotFoundException(
+				"The resource \"" + name + "\" does not exist.");
+		return propertiesOfResource(url);
+	}
+
+	private static Map<String, String> parse(InputStream is)
+			throws IOException {
+		Properties p = new Properties();
+		try {
+			p.load(is);
+		} finally {
+			is.close();
+		}
+		Map<String, String> properties = new LinkedHashMap<String, String>();
+		for (Map.Entry<Object, Object> property : p.entrySet())
+			properties.put((String) property.getKey(),
+				(String) property.getValue());
+		return unmodifiableMap(properties);
+	}
+
+	private static class ParsedProperties {
+		final Map<String, String> properties;
+		final long lastModified;
+		final long length;
+
+		ParsedProperties(Map<String, String> properties, long lastModified,
+				long length) {
+			this.properties = properties;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+}
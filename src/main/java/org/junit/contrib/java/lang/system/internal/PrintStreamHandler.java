@@ -13,7 +13,7 @@ import java.nio.charset.Charset;
 import org.junit.runners.model.Statement;
 
 public enum PrintStreamHandler {
-	SYSTEM_OUT {
+	SYSTEM_OUT("System.out") {
 		@Override
 		PrintStream getStream() {
 			return out;
@@ -24,7 +24,7 @@ public enum PrintStreamHandler {
 			setOut(stream);
 		}
 	},
-	SYSTEM_ERR {
+	SYSTEM_ERR("System.err") {
 		@Override
 		PrintStream getStream() {
 			return err;
@@ -39,6 +39,13 @@ public enum PrintStreamHandler {
 	private static final boolean AUTO_FLUSH = true;
 	private static final String DEFAULT_ENCODING = Charset.defaultCharset().name();
 
+	private final String name;
+	private final StreamRouter router = new StreamRouter(this);
+
+	PrintStreamHandler(String name) {
+		this.name = name;
+	}
+
 	Statement createRestoreStatement(final Statement base) {
 		return new Statement() {
 			@Override
@@ -53,11 +60,20 @@ public enum PrintStreamHandler {
 		};
 	}
 
-	void replaceCurrentStreamWithOutputStream(OutputStream outputStream)
+	PrintStream replaceCurrentStreamWithOutputStream(OutputStream outputStream)
 			throws UnsupportedEncodingException {
 		PrintStream printStream = new PrintStream(
 			outputStream, AUTO_FLUSH, DEFAULT_ENCODING);
 		replaceCurrentStreamWithPrintStream(printStream);
+		return printStream;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	StreamRouter getRouter() {
+		return router;
 	}
 
 	abstract PrintStream getStream();
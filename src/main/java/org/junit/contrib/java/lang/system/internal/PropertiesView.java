@@ -0,0 +1,174 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * A {@code PropertiesView} is a {@code Properties} object that doesn't store
+ * the properties itself. Its {@link #keySet()}, {@link #values()} and
+ * {@link #entrySet()} iterate over the entries that are provided by
+ * {@link #entries()}. Changes by these collections are written through
+ * {@link #put(Object, Object)} and {@link #remove(Object)}.
+ */
+abstract class PropertiesView extends Properties {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Returns the current entries. The returned collection must not be
+	 * affected by changes of the properties.
+	 *
+	 * @return the current entries.
+	 */
+	abstract Collection<Map.Entry<Object, Object>> entries();
+
+	@Override
+	public Set<Object> keySet() {
+		return new AbstractSet<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				final Iterator<Map.Entry<Object, Object>> entries
+					= entrySet().iterator();
+				return new Iterator<Object>() {
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					public Object next() {
+						return entries.next().getKey();
+					}
+
+					public void remove() {
+						entries.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return PropertiesView.this.size();
+			}
+
+			@Override
+			public boolean contains(Object key) {
+				return containsKey(key);
+			}
+
+			@Override
+			public boolean remove(Object key) {
+				return PropertiesView.this.remove(key) != null;
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				final Iterator<Map.Entry<Object, Object>> entries
+					= entrySet().iterator();
+				return new Iterator<Object>() {
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					public Object next() {
+						return entries.next().getValue();
+					}
+
+					public void remove() {
+						entries.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return PropertiesView.this.size();
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<Object, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<Object, Object>>() {
+			@Override
+			public Iterator<Map.Entry<Object, Object>> iterator() {
+				final Iterator<Map.Entry<Object, Object>> entries
+					= entries().iterator();
+				return new Iterator<Map.Entry<Object, Object>>() {
+					private Map.Entry<Object, Object> current;
+
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					public Map.Entry<Object, Object> next() {
+						current = entries.next();
+						return new WriteThroughEntry(current);
+					}
+
+					public void remove() {
+						if (current == null)
+							throw new IllegalStateException();
+						PropertiesView.this.remove(current.getKey());
+						current = null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return PropertiesView.this.size();
+			}
+		};
+	}
+
+	private class WriteThroughEntry implements Map.Entry<Object, Object> {
+		private final Object key;
+		private Object value;
+
+		WriteThroughEntry(Map.Entry<Object, Object> entry) {
+			this.key = entry.getKey();
+			this.value = entry.getValue();
+		}
+
+		public Object getKey() {
+			return key;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		public Object setValue(Object value) {
+			Object previous = this.value;
+			put(key, value);
+			this.value = value;
+			return previous;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+			return key.equals(other.getKey()) && value.equals(other.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode() ^ value.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.lang.System.getProperties;
+import static java.lang.System.setProperties;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static org.junit.contrib.java.lang.system.internal.FingerprintingProperties.fingerprintOf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * {@code PropertyLeaks} finds changes of the system properties that are not
+ * undone. It installs {@link FingerprintingProperties} as system properties.
+ * A check compares the fingerprint with the fingerprint of the previous
+ * check. Only if they differ the properties are compared with a snapshot
+ * that has been taken by the previous check.
+ *
+ * <p>If the system properties have been replaced by other properties (e.g.
+ * by {@code ThreadLocalProperties}) then the fingerprint of the current
+ * properties is computed by iterating over them.
+ */
+public class PropertyLeaks {
+	private final List<Leak> leaks = new ArrayList<Leak>();
+	private FingerprintingProperties properties;
+	private Map<Object, Object> snapshot;
+	private long fingerprint;
+
+	public synchronized void startWatching() {
+		properties = new FingerprintingProperties(getProperties());
+		setProperties(properties);
+		fingerprint = properties.getFingerprint();
+		snapshot = copyOf(properties);
+	}
+
+	public synchronized void stopWatching() {
+		if (getProperties() == properties)
+			setProperties(properties.getOriginal());
+	}
+
+	/**
+	 * Checks whether the system properties have been changed since the
+	 * previous check and attributes the changes to the given test.
+	 *
+	 * @param test the test that is responsible for changes.
+	 * @return the leak or {@code null} if the properties have not been
+	 * changed.
+	 */
+	public synchronized Leak check(String test) {
+		Properties current = getProperties();
+		long currentFingerprint = (current == properties)
+			? properties.getFingerprint() : fingerprintOf(current);
+		if (currentFingerprint == fingerprint)
+			return null;
+		Map<Object, Object> currentSnapshot = copyOf(current);
+		Leak leak = new Leak(test, snapshot, currentSnapshot);
+		fingerprint = currentFingerprint;
+		snapshot = currentSnapshot;
+		if (leak.isEmpty())
+			return null;
+		leaks.add(leak);
+		return leak;
+	}
+
+	public synchronized List<Leak> getLeaks() {
+		return unmodifiableList(new ArrayList<Leak>(leaks));
+	}
+
+	private Map<Object, Object> copyOf(Properties properties) {
+		synchronized (properties) {
+			return new HashMap<Object, Object>(properties);
+		}
+	}
+
+	/**
+	 * The changes of system properties that are made by a test.
+	 */
+	public static class Leak {
+		private final String test;
+		private final Map<String, String> added = new TreeMap<String, String>();
+		private final Map<String, String[]> changed = new TreeMap<String, String[]>();
+		private final Map<String, String> removed = new TreeMap<String, String>();
+
+		Leak(String test, Map<Object, Object> before, Map<Object, Object> after) {
+			this.test = test;
+			for (Map.Entry<Object, Object> entry: after.entrySet()) {
+				Object previous = before.get(entry.getKey());
+				String key = String.valueOf(entry.getKey());
+				String value = String.valueOf(entry.getValue());
+				if (previous == null)
+					added.put(key, value);
+				else if (!previous.equals(entry.getValue()))
+					changed.put(key,
+						new String[] { String.valueOf(previous), value });
+			}
+			for (Map.Entry<Object, Object> entry: before.entrySet())
+				if (!after.containsKey(entry.getKey()))
+					removed.put(String.valueOf(entry.getKey()),
+						String.valueOf(entry.getValue()));
+		}
+
+		public String getTest() {
+			return test;
+		}
+
+		/**
+		 * Returns the properties that have been added.
+		 *
+		 * @return the keys and values of the added properties.
+		 */
+		public Map<String, String> getAdded() {
+			return unmodifiableMap(added);
+		}
+
+		/**
+		 * Returns the properties that have been changed.
+		 *
+		 * @return the keys, the previous values and the new values of the
+		 * changed properties.
+		 */
+		public Map<String, String[]> getChanged() {
+			return unmodifiableMap(changed);
+		}
+
+		/**
+		 * Returns the properties that have been removed.
+		 *
+		 * @return the keys and the previous values of the removed
+		 * properties.
+		 */
+		public Map<String, String> getRemoved() {
+			return unmodifiableMap(removed);
+		}
+
+		boolean isEmpty() {
+			return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@code RecordingMap} is a view of another map that records every read
+ * of a single value by an {@link AccessCounter}. All reads and writes go to
+ * the original map.
+ */
+public class RecordingMap<K, V> extends AbstractMap<K, V> {
+	private final Map<K, V> original;
+	private final AccessCounter counter;
+
+	public RecordingMap(Map<K, V> original, AccessCounter counter) {
+		this.original = original;
+		this.counter = counter;
+	}
+
+	public Map<K, V> getOriginal() {
+		return original;
+	}
+
+	@Override
+	public V get(Object key) {
+		counter.record(key);
+		return original.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		counter.record(key);
+		return original.containsKey(key);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		return original.put(key, value);
+	}
+
+	@Override
+	public V remove(Object key) {
+		return original.remove(key);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return original.entrySet();
+	}
+
+	@Override
+	public int size() {
+		return original.size();
+	}
+}
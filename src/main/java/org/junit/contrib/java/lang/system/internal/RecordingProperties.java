@@ -0,0 +1,55 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.util.Properties;
+
+/**
+ * {@code RecordingProperties} is a view of other {@code Properties} that
+ * records every read of a property by an {@link AccessCounter}.
+ */
+public class RecordingProperties extends ForwardingProperties {
+	private static final long serialVersionUID = 1L;
+
+	private final transient AccessCounter counter;
+
+	public RecordingProperties(Properties original, AccessCounter counter) {
+		super(original);
+		this.counter = counter;
+	}
+
+	@Override
+	void beforeChange(Object key) {
+	}
+
+	@Override
+	public String getProperty(String key) {
+		counter.record(key);
+		return super.getProperty(key);
+	}
+
+	@Override
+	public String getProperty(String key, String defaultValue) {
+		counter.record(key);
+		return super.getProperty(key, defaultValue);
+	}
+
+	@Override
+	public Object get(Object key) {
+		counter.record(key);
+		return super.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		counter.record(key);
+		return super.containsKey(key);
+	}
+
+	/*
+	 * Java 8 added getOrDefault to Map. It is never called on older JVMs.
+	 */
+
+	public Object getOrDefault(Object key, Object defaultValue) {
+		counter.record(key);
+		return super.getOrDefault(key, defaultValue);
+	}
+}
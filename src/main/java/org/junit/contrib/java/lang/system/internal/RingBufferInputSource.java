@@ -0,0 +1,217 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@code RingBufferInputSource} connects a producer that writes bytes with
+ * a consumer that reads them. The bytes are stored in a bounded ring buffer.
+ * A read blocks until bytes are available or the source is closed. A write
+ * blocks while the buffer is full. Both sides give up after a timeout.
+ *
+ * <p>Bytes are copied in bulk and the lock is only held for copying. A side
+ * is only signalled if the other side may be waiting for it.
+ */
+public class RingBufferInputSource extends InputSource {
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final byte[] buffer;
+	private final long timeoutMillis;
+	private int head = 0;
+	private int size = 0;
+	private boolean closed = false;
+	private boolean endOfLineRead = false;
+
+	public RingBufferInputSource(int capacity, long timeoutMillis) {
+		if (capacity < 1)
+			throw new IllegalArgumentException(
+				"The capacity must be at least 1.");
+		this.buffer = new byte[capacity];
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Writes all bytes of {@code b}. Waits for free space if the buffer is
+	 * full.
+	 *
+	 * @param b the bytes.
+	 * @throws InterruptedIOException if the buffer has not been read within
+	 * the timeout or if the current thread has been interrupted.
+	 * @throws IllegalStateException if the source has been closed.
+	 */
+	public void write(byte[] b) throws InterruptedIOException {
+		long deadline = deadline();
+		int written = 0;
+		lock.lock();
+		try {
+			while (written < b.length) {
+				if (closed)
+					throw new IllegalStateException(
+						"Cannot write to the input because it has been closed.");
+				else if (size == buffer.length)
+					await(notFull, deadline, written,
+						"The input has not been read for " + timeoutMillis
+							+ " ms and its buffer is full.");
+				else {
+					boolean wasEmpty = size == 0;
+					written += copyToBuffer(b, written, b.length - written);
+					if (wasEmpty)
+						notEmpty.signalAll();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int copyToBuffer(byte[] b, int off, int len) {
+		int tail = (head + size) % buffer.length;
+		int n = Math.min(len, buffer.length - size);
+		int first = Math.min(n, buffer.length - tail);
+		System.arraycopy(b, off, buffer, tail, first);
+		System.arraycopy(b, off + first, buffer, 0, n - first);
+		size += n;
+		return n;
+	}
+
+	@Override
+	public int read() throws InterruptedIOException {
+		byte[] b = new byte[1];
+		return (read(b, 0, 1) == -1) ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws InterruptedIOException {
+		return read(b, off, len, null);
+	}
+
+	@Override
+	public int readLine(byte[] b, int off, int len, byte[] lineSeparator)
+			throws InterruptedIOException {
+		return read(b, off, len, lineSeparator);
+	}
+
+	private int read(byte[] b, int off, int len, byte[] lineSeparator)
+			throws InterruptedIOException {
+		if (len == 0)
+			return 0;
+		long deadline = deadline();
+		lock.lock();
+		try {
+			while (size == 0)
+				if (closed)
+					return -1;
+				else
+					await(notEmpty, deadline, 0,
+						"No input has been provided within " + timeoutMillis
+							+ " ms.");
+			int n = Math.min(len, size);
+			if (lineSeparator != null)
+				n = Math.min(n, lengthOfLine(lineSeparator));
+			boolean wasFull = size == buffer.length;
+			copyFromBuffer(b, off, n);
+			if (wasFull)
+				notFull.signalAll();
+			if (lineSeparator != null)
+				endOfLineRead = endsWith(b, off, n, lineSeparator);
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void copyFromBuffer(byte[] b, int off, int n) {
+		int first = Math.min(n, buffer.length - head);
+		System.arraycopy(buffer, head, b, off, first);
+		System.arraycopy(buffer, 0, b, off + first, n - first);
+		head = (head + n) % buffer.length;
+		size -= n;
+	}
+
+	private int lengthOfLine(byte[] lineSeparator) {
+		int limit = size - lineSeparator.length;
+		for (int i = 0; i <= limit; ++i)
+			if (isLineSeparatorAt(i, lineSeparator))
+				return i + lineSeparator.length;
+		return size;
+	}
+
+	private boolean isLineSeparatorAt(int index, byte[] lineSeparator) {
+		for (int i = 0; i < lineSeparator.length; ++i)
+			if (buffer[(head + index + i) % buffer.length] != lineSeparator[i])
+				return false;
+		return true;
+	}
+
+	@Override
+	public int availableInLine(byte[] lineSeparator) {
+		lock.lock();
+		try {
+			return endOfLineRead ? 0 : lengthOfLine(lineSeparator);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int available() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the source. Bytes that have already been written can still be
+	 * read. Afterwards reads return {@code -1}.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private long deadline() {
+		return System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis);
+	}
+
+	private void await(Condition condition, long deadline,
+			int bytesTransferred, String timeoutMessage)
+			throws InterruptedIOException {
+		long remaining = deadline - System.nanoTime();
+		try {
+			if (remaining <= 0 || condition.awaitNanos(remaining) <= 0)
+				if (!isSatisfied(condition))
+					throw interruptedIOException(timeoutMessage,
+						bytesTransferred);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw interruptedIOException(
+				"Interrupted while waiting for the input.", bytesTransferred);
+		}
+	}
+
+	private boolean isSatisfied(Condition condition) {
+		return closed || ((condition == notEmpty)
+			? size > 0 : size < buffer.length);
+	}
+
+	private InterruptedIOException interruptedIOException(String message,
+			int bytesTransferred) {
+		InterruptedIOException exception = new InterruptedIOException(message);
+		exception.bytesTransferred = bytesTransferred;
+		return exception;
+	}
+}
@@ -0,0 +1,133 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.lang.Class.forName;
+import static java.lang.System.currentTimeMillis;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code ShutdownHooks} determines the shutdown hooks that have been
+ * registered after it has been created. The JDK stores the hooks in the
+ * static field {@code hooks} of the class
+ * {@code java.lang.ApplicationShutdownHooks}. The field is looked up once
+ * per JVM. On Java 16 and later it can only be accessed if the JVM is
+ * started with {@code --add-opens java.base/java.lang=ALL-UNNAMED}.
+ */
+public class ShutdownHooks {
+	private static Class<?> applicationShutdownHooks;
+	private static Field fieldOfHooks;
+
+	private final Map<Thread, Thread> hooksBefore = getRegisteredHooks();
+
+	/**
+	 * Returns the hooks that have been registered since this object has
+	 * been created and that are still registered.
+	 *
+	 * @return the hooks that have been registered since this object has
+	 * been created.
+	 */
+	public List<Thread> getAddedHooks() {
+		List<Thread> addedHooks = new ArrayList<Thread>();
+		for (Thread hook: getRegisteredHooks().keySet())
+			if (!hooksBefore.containsKey(hook))
+				addedHooks.add(hook);
+		return addedHooks;
+	}
+
+	/**
+	 * Starts all hooks at once, like the JVM does, and waits until they
+	 * have finished or the timeout has elapsed.
+	 *
+	 * @param hooks the hooks.
+	 * @param timeoutInMillis the maximum time to wait for all hooks.
+	 * @return the hooks that have not finished within the timeout.
+	 * @throws InterruptedException if the current thread is interrupted
+	 * while it waits for the hooks.
+	 */
+	public static List<Thread> run(List<Thread> hooks, long timeoutInMillis)
+			throws InterruptedException {
+		for (Thread hook: hooks)
+			if (hook.getState() == Thread.State.NEW)
+				hook.start();
+		long deadline = currentTimeMillis() + timeoutInMillis;
+		List<Thread> unfinishedHooks = new ArrayList<Thread>();
+		for (Thread hook: hooks) {
+			long remaining = deadline - currentTimeMillis();
+			if (remaining > 0)
+				hook.join(remaining);
+			if (hook.isAlive())
+				unfinishedHooks.add(hook);
+		}
+		return unfinishedHooks;
+	}
+
+	public static void deregister(List<Thread> hooks) {
+		for (Thread hook: hooks)
+			Runtime.getRuntime().removeShutdownHook(hook);
+	}
+
+	private static Map<Thread, Thread> getRegisteredHooks() {
+		Map<Thread, Thread> hooks = new IdentityHashMap<Thread, Thread>();
+		Class<?> lock = getApplicationShutdownHooks();
+		synchronized (lock) {
+			Map<Thread, Thread> registeredHooks = readHooks();
+			if (registeredHooks != null) //null if the JVM is shutting down
+				hooks.putAll(registeredHooks);
+		}
+		return hooks;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<Thread, Thread> readHooks() {
+		try {
+			return (Map<Thread, Thread>) getFieldOfHooks().get(null);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("System Rules cannot access the static"
+				+ " field 'hooks' of the class"
+				+ " java.lang.ApplicationShutdownHooks.", e);
+		}
+	}
+
+	private static synchronized Class<?> getApplicationShutdownHooks() {
+		if (applicationShutdownHooks == null)
+			try {
+				applicationShutdownHooks = forName(
+					"java.lang.ApplicationShutdownHooks");
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException("System Rules expects the existence"
+					+ " of the class java.lang.ApplicationShutdownHooks but it"
+					+ " does not exist.", e);
+			}
+		return applicationShutdownHooks;
+	}
+
+	private static synchronized Field getFieldOfHooks() {
+		if (fieldOfHooks == null)
+			try {
+				Field field = getApplicationShutdownHooks()
+					.getDeclaredField("hooks");
+				makeAccessible(field);
+				fieldOfHooks = field;
+			} catch (NoSuchFieldException e) {
+				throw new RuntimeException("System Rules expects the class"
+					+ " java.lang.ApplicationShutdownHooks to have a field"
+					+ " 'hooks' but it has not.", e);
+			}
+		return fieldOfHooks;
+	}
+
+	private static void makeAccessible(Field field) {
+		try {
+			field.setAccessible(true);
+		} catch (RuntimeException e) {
+			//InaccessibleObjectException on Java 16 and later
+			throw new RuntimeException("System Rules cannot access the"
+				+ " shutdown hooks. Please start the JVM with"
+				+ " --add-opens java.base/java.lang=ALL-UNNAMED.", e);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@code StreamInputSource} reads the bytes of an arbitrary
+ * {@code InputStream}. The stream is buffered, so that a line is read in
+ * bulk instead of byte by byte.
+ */
+public class StreamInputSource extends InputSource {
+	private final LineBufferedStream stream;
+
+	public StreamInputSource(InputStream stream) {
+		this.stream = new LineBufferedStream(stream);
+	}
+
+	@Override
+	public int readLine(byte[] b, int off, int len, byte[] lineSeparator)
+			throws IOException {
+		return stream.readLine(b, off, len, lineSeparator);
+	}
+
+	@Override
+	public int read() throws IOException {
+		return stream.read();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		return stream.read(b, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		return stream.skip(n);
+	}
+
+	@Override
+	public int available() throws IOException {
+		return stream.available();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return stream.markSupported();
+	}
+
+	@Override
+	public void mark(int readlimit) {
+		stream.mark(readlimit);
+	}
+
+	@Override
+	public void reset() throws IOException {
+		stream.reset();
+	}
+
+	@Override
+	public void close() throws IOException {
+		stream.close();
+	}
+
+	private static class LineBufferedStream extends BufferedInputStream {
+		LineBufferedStream(InputStream in) {
+			super(in);
+		}
+
+		synchronized int readLine(byte[] b, int off, int len,
+				byte[] lineSeparator) throws IOException {
+			byte lastByteOfSeparator = lineSeparator[lineSeparator.length - 1];
+			int n = 0;
+			while (n < len) {
+				if (pos >= count) {
+					//read() fills the buffer
+					if (read() == -1)
+						break;
+					--pos;
+				}
+				while (n < len && pos < count) {
+					byte c = buf[pos++];
+					b[off + n++] = c;
+					if (c == lastByteOfSeparator
+							&& endsWith(b, off, n, lineSeparator))
+						return n;
+				}
+			}
+			return (n == 0) ? -1 : n;
+		}
+	}
+}
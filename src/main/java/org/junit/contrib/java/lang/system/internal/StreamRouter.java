@@ -0,0 +1,154 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedList;
+
+/**
+ * A {@code StreamRouter} is installed as {@code System.out} (respectively
+ * {@code System.err}) while at least one test captures the stream. It
+ * forwards every write to the sink of the test that the writing thread
+ * belongs to. A thread belongs to a test if it is the test's thread, if it
+ * has been created by the test's thread or if the test's
+ * {@link CaptureContext} has been attached to it. Writes of all other
+ * threads are forwarded to the sink of the most recently started test.
+ * That's the same behaviour as replacing {@code System.out} globally.
+ *
+ * <p>If {@code System.out} has been replaced by somebody else while the
+ * router is installed (e.g. by a nested {@code DisallowWriteToSystemOut})
+ * then the router installs itself again on top of the replacement. Each
+ * installation is a layer that restores the stream it has replaced when
+ * the last of its sinks is uninstalled.
+ */
+public class StreamRouter extends OutputStream {
+	private final PrintStreamHandler printStreamHandler;
+	private final ThreadLocal<Sink> sinkOfThread = new InheritableThreadLocal<Sink>();
+	private final LinkedList<Sink> activeSinks = new LinkedList<Sink>();
+	private final LinkedList<Layer> layers = new LinkedList<Layer>();
+	private volatile Sink fallbackSink;
+	private volatile PrintStream originalStream;
+
+	StreamRouter(PrintStreamHandler printStreamHandler) {
+		this.printStreamHandler = printStreamHandler;
+	}
+
+	/**
+	 * Returns the stream that a new sink of the current thread forwards to.
+	 * This is the sink of an enclosing rule if the thread has one and if
+	 * {@code System.out} (respectively {@code System.err}) has not been
+	 * replaced since. Otherwise it is the current stream.
+	 *
+	 * @return the stream that a new sink of the current thread forwards to.
+	 */
+	synchronized OutputStream getEnclosingStream() {
+		if (!isInstalled())
+			return printStreamHandler.getStream();
+		OutputStream stream = streamOf(sinkOfThread.get());
+		return (stream == null) ? originalStream : stream;
+	}
+
+	private boolean isInstalled() {
+		return !layers.isEmpty()
+			&& printStreamHandler.getStream() == layers.getLast().installedStream;
+	}
+
+	synchronized Sink install(OutputStream stream)
+			throws UnsupportedEncodingException {
+		if (!isInstalled()) {
+			PrintStream replacedStream = printStreamHandler.getStream();
+			if (layers.isEmpty())
+				originalStream = replacedStream;
+			layers.addLast(new Layer(replacedStream,
+				printStreamHandler.replaceCurrentStreamWithOutputStream(this)));
+		}
+		Layer layer = layers.getLast();
+		++layer.numberOfSinks;
+		Sink sink = new Sink(stream, sinkOfThread.get(), layer);
+		activeSinks.addLast(sink);
+		fallbackSink = sink;
+		sinkOfThread.set(sink);
+		return sink;
+	}
+
+	synchronized void uninstall(Sink sink) {
+		//threads that have been created during the test keep a reference to
+		//the sink, but not to the test's stream.
+		sink.stream = null;
+		activeSinks.remove(sink);
+		if (sinkOfThread.get() == sink)
+			attach(sink.previous);
+		--sink.layer.numberOfSinks;
+		while (!layers.isEmpty() && layers.getLast().numberOfSinks == 0)
+			printStreamHandler.replaceCurrentStreamWithPrintStream(
+				layers.removeLast().replacedStream);
+		fallbackSink = activeSinks.isEmpty() ? null : activeSinks.getLast();
+	}
+
+	Sink getSinkOfCurrentThread() {
+		return sinkOfThread.get();
+	}
+
+	Sink attach(Sink sink) {
+		Sink previous = sinkOfThread.get();
+		if (sink == null)
+			sinkOfThread.remove();
+		else
+			sinkOfThread.set(sink);
+		return previous;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		streamOfCurrentThread().write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		streamOfCurrentThread().write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		streamOfCurrentThread().flush();
+	}
+
+	private OutputStream streamOfCurrentThread() {
+		OutputStream stream = streamOf(sinkOfThread.get());
+		if (stream == null)
+			stream = streamOf(fallbackSink);
+		return (stream == null) ? originalStream : stream;
+	}
+
+	private static OutputStream streamOf(Sink sink) {
+		return (sink == null) ? null : sink.stream;
+	}
+
+	/**
+	 * A sink receives the writes of the threads of a test. Its stream is
+	 * {@code null} after it has been uninstalled.
+	 */
+	static class Sink {
+		volatile OutputStream stream;
+		final Sink previous;
+		final Layer layer;
+
+		Sink(OutputStream stream, Sink previous, Layer layer) {
+			this.stream = stream;
+			this.previous = previous;
+			this.layer = layer;
+		}
+	}
+
+	private static class Layer {
+		final PrintStream replacedStream;
+		final PrintStream installedStream;
+		int numberOfSinks = 0;
+
+		Layer(PrintStream replacedStream, PrintStream installedStream) {
+			this.replacedStream = replacedStream;
+			this.installedStream = installedStream;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.junit.contrib.java.lang.system.internal.EnvironmentMaps.getMapOfVariables;
+import static org.junit.contrib.java.lang.system.internal.EnvironmentMaps.setMapOfVariables;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code ThreadLocalEnvironment} is installed as the map of
+ * {@code System.getenv()} once and gives every test its own environment
+ * variables. A test opens an {@link Overlay}. Afterwards every change of an
+ * environment variable by the test's thread (and by threads that are
+ * created by it) is stored in the overlay. These threads see the variables
+ * of the overlay and the shared variables that have not been changed by the
+ * overlay. Other threads don't see the changes. Closing the overlay discards
+ * all changes. Threads without an overlay read and write the shared
+ * variables. Threads that still reference a closed overlay (e.g. threads
+ * that have been created by the test and outlive it) skip it and use the
+ * overlays that have been opened before or the shared variables.
+ *
+ * <p>Single variables are resolved without copying. Methods that need all
+ * variables (e.g. {@link #size()}) work on a snapshot.
+ */
+public class ThreadLocalEnvironment extends AbstractMap<String, String> {
+	private static final Object REMOVED = new Object();
+
+	private final Map<String, String> base;
+	private final ThreadLocal<Overlay> overlayOfThread
+		= new InheritableThreadLocal<Overlay>();
+
+	private ThreadLocalEnvironment(Map<String, String> base) {
+		this.base = base;
+	}
+
+	/**
+	 * Opens an overlay for the current thread. The
+	 * {@code ThreadLocalEnvironment} is installed as the map of
+	 * {@code System.getenv()} if it has not been installed before.
+	 *
+	 * @return the overlay.
+	 */
+	public static synchronized Overlay openOverlay() {
+		Map<String, String> current = getMapOfVariables();
+		ThreadLocalEnvironment environment;
+		if (current instanceof ThreadLocalEnvironment)
+			environment = (ThreadLocalEnvironment) current;
+		else {
+			environment = new ThreadLocalEnvironment(current);
+			setMapOfVariables(environment);
+		}
+		return environment.open();
+	}
+
+	private Overlay open() {
+		Overlay overlay = new Overlay(this, overlayOfThread.get());
+		overlayOfThread.set(overlay);
+		return overlay;
+	}
+
+	private Overlay overlayOfCurrentThread() {
+		return Overlay.openOverlayOf(overlayOfThread.get());
+	}
+
+	private Object lookUp(Object name) {
+		for (Overlay overlay = overlayOfCurrentThread(); overlay != null;
+				overlay = Overlay.openOverlayOf(overlay.parent)) {
+			Object value = overlay.values.get(name);
+			if (value != null)
+				return value;
+		}
+		return null;
+	}
+
+	private Map<String, String> snapshot() {
+		Map<String, String> snapshot = new HashMap<String, String>(base);
+		LinkedList<Overlay> overlays = new LinkedList<Overlay>();
+		for (Overlay overlay = overlayOfCurrentThread(); overlay != null;
+				overlay = Overlay.openOverlayOf(overlay.parent))
+			overlays.addFirst(overlay);
+		for (Overlay overlay: overlays)
+			for (Map.Entry<String, Object> entry: overlay.values.entrySet())
+				if (entry.getValue() == REMOVED)
+					snapshot.remove(entry.getKey());
+				else
+					snapshot.put(entry.getKey(), (String) entry.getValue());
+		return snapshot;
+	}
+
+	@Override
+	public String get(Object name) {
+		Object value = lookUp(name);
+		if (value == null)
+			return base.get(name);
+		else
+			return (value == REMOVED) ? null : (String) value;
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		return get(name) != null;
+	}
+
+	@Override
+	public String put(String name, String value) {
+		if (name == null || value == null)
+			throw new NullPointerException();
+		Overlay overlay = overlayOfCurrentThread();
+		if (overlay == null)
+			return base.put(name, value);
+		String previous = get(name);
+		overlay.values.put(name, value);
+		return previous;
+	}
+
+	@Override
+	public String remove(Object name) {
+		Overlay overlay = overlayOfCurrentThread();
+		if (overlay == null)
+			return base.remove(name);
+		String previous = get(name);
+		if (name instanceof String)
+			overlay.values.put((String) name, REMOVED);
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		for (String name: keySet())
+			remove(name);
+	}
+
+	@Override
+	public int size() {
+		return snapshot().size();
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return snapshot().entrySet();
+	}
+
+	/**
+	 * The changes of environment variables that are made by a test.
+	 */
+	public static class Overlay {
+		private final ThreadLocalEnvironment environment;
+		private final Overlay parent;
+		private final Map<String, Object> values
+			= new ConcurrentHashMap<String, Object>();
+		private volatile boolean closed = false;
+
+		Overlay(ThreadLocalEnvironment environment, Overlay parent) {
+			this.environment = environment;
+			this.parent = parent;
+		}
+
+		/**
+		 * Discards the changes and lets the current thread use the
+		 * overlay that has been used before this overlay has been opened.
+		 */
+		public void close() {
+			closed = true;
+			values.clear();
+			if (environment.overlayOfThread.get() == this)
+				if (parent == null)
+					environment.overlayOfThread.remove();
+				else
+					environment.overlayOfThread.set(parent);
+		}
+
+		private static Overlay openOverlayOf(Overlay overlay) {
+			while (overlay != null && overlay.closed)
+				overlay = overlay.parent;
+			return overlay;
+		}
+	}
+}
@@ -0,0 +1,389 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static java.lang.System.getProperties;
+import static java.lang.System.setProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code ThreadLocalProperties} are installed as system properties once and
+ * give every test its own system properties. A test opens an
+ * {@link Overlay}. Afterwards every change of a system property by the
+ * test's thread (and by threads that are created by it) is stored in the
+ * overlay. These threads see the properties of the overlay and the shared
+ * properties that have not been changed by the overlay. Other threads don't
+ * see the changes. Closing the overlay discards all changes. Threads without
+ * an overlay read and write the shared properties. Threads that still
+ * reference a closed overlay (e.g. threads that have been created by the
+ * test and outlive it) skip it and use the overlays that have been opened
+ * before or the shared properties.
+ *
+ * <p>Single properties are resolved without copying. Methods that need all
+ * properties (e.g. {@link #size()}) work on a snapshot.
+ */
+public class ThreadLocalProperties extends PropertiesView {
+	private static final long serialVersionUID = 1L;
+	private static final Object REMOVED = new Object();
+
+	private final Properties base;
+	private final transient ThreadLocal<Overlay> overlayOfThread
+		= new InheritableThreadLocal<Overlay>();
+
+	private ThreadLocalProperties(Properties base) {
+		this.base = base;
+	}
+
+	/**
+	 * Opens an overlay for the current thread. The
+	 * {@code ThreadLocalProperties} are installed as system properties if
+	 * they have not been installed before.
+	 *
+	 * @return the overlay.
+	 */
+	public static synchronized Overlay openOverlay() {
+		Properties current = getProperties();
+		ThreadLocalProperties properties;
+		if (current instanceof ThreadLocalProperties)
+			properties = (ThreadLocalProperties) current;
+		else {
+			properties = new ThreadLocalProperties(current);
+			setProperties(properties);
+		}
+		return properties.open();
+	}
+
+	private Overlay open() {
+		Overlay overlay = new Overlay(this, overlayOfThread.get());
+		overlayOfThread.set(overlay);
+		return overlay;
+	}
+
+	private Overlay overlayOfCurrentThread() {
+		return Overlay.openOverlayOf(overlayOfThread.get());
+	}
+
+	private Object lookUp(Object key) {
+		for (Overlay overlay = overlayOfCurrentThread(); overlay != null;
+				overlay = Overlay.openOverlayOf(overlay.parent)) {
+			Object value = overlay.values.get(key);
+			if (value != null)
+				return value;
+		}
+		return null;
+	}
+
+	private Properties snapshot() {
+		Properties snapshot = new Properties();
+		snapshot.putAll(base);
+		LinkedList<Overlay> overlays = new LinkedList<Overlay>();
+		for (Overlay overlay = overlayOfCurrentThread(); overlay != null;
+				overlay = Overlay.openOverlayOf(overlay.parent))
+			overlays.addFirst(overlay);
+		for (Overlay overlay: overlays)
+			for (Map.Entry<Object, Object> entry: overlay.values.entrySet())
+				if (entry.getValue() == REMOVED)
+					snapshot.remove(entry.getKey());
+				else
+					snapshot.put(entry.getKey(), entry.getValue());
+		return snapshot;
+	}
+
+	@Override
+	public Object get(Object key) {
+		Object value = lookUp(key);
+		if (value == null)
+			return base.get(key);
+		else
+			return (value == REMOVED) ? null : value;
+	}
+
+	@Override
+	public String getProperty(String key) {
+		Object value = lookUp(key);
+		if (value == null)
+			return base.getProperty(key);
+		else
+			return (value instanceof String) ? (String) value : null;
+	}
+
+	@Override
+	public String getProperty(String key, String defaultValue) {
+		String value = getProperty(key);
+		return (value == null) ? defaultValue : value;
+	}
+
+	@Override
+	public Object setProperty(String key, String value) {
+		return put(key, value);
+	}
+
+	@Override
+	public Object put(Object key, Object value) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+		Overlay overlay = overlayOfCurrentThread();
+		if (overlay == null)
+			return base.put(key, value);
+		Object previous = get(key);
+		overlay.values.put(key, value);
+		return previous;
+	}
+
+	@Override
+	public synchronized void putAll(Map<?, ?> t) {
+		for (Map.Entry<?, ?> entry: t.entrySet())
+			put(entry.getKey(), entry.getValue());
+	}
+
+	@Override
+	public Object remove(Object key) {
+		Overlay overlay = overlayOfCurrentThread();
+		if (overlay == null)
+			return base.remove(key);
+		Object previous = get(key);
+		overlay.values.put(key, REMOVED);
+		return previous;
+	}
+
+	@Override
+	public synchronized void clear() {
+		for (Object key: keySet())
+			remove(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public boolean contains(Object value) {
+		return snapshot().contains(value);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return snapshot().containsValue(value);
+	}
+
+	@Override
+	public int size() {
+		return snapshot().size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return snapshot().isEmpty();
+	}
+
+	@Override
+	public Enumeration<Object> keys() {
+		return snapshot().keys();
+	}
+
+	@Override
+	public Enumeration<Object> elements() {
+		return snapshot().elements();
+	}
+
+	@Override
+	Collection<Map.Entry<Object, Object>> entries() {
+		return snapshot().entrySet();
+	}
+
+	@Override
+	public Enumeration<?> propertyNames() {
+		return snapshot().propertyNames();
+	}
+
+	@Override
+	public Set<String> stringPropertyNames() {
+		return snapshot().stringPropertyNames();
+	}
+
+	@Override
+	public void list(PrintStream out) {
+		snapshot().list(out);
+	}
+
+	@Override
+	public void list(PrintWriter out) {
+		snapshot().list(out);
+	}
+
+	@Override
+	public synchronized void load(Reader reader) throws IOException {
+		Properties loaded = new Properties();
+		loaded.load(reader);
+		putAll(loaded);
+	}
+
+	@Override
+	public synchronized void load(InputStream inStream) throws IOException {
+		Properties loaded = new Properties();
+		loaded.load(inStream);
+		putAll(loaded);
+	}
+
+	@Override
+	public synchronized void loadFromXML(InputStream in) throws IOException {
+		Properties loaded = new Properties();
+		loaded.loadFromXML(in);
+		putAll(loaded);
+	}
+
+	@Override
+	public synchronized boolean equals(Object o) {
+		return snapshot().equals(o);
+	}
+
+	@Override
+	public synchronized int hashCode() {
+		return snapshot().hashCode();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return snapshot().toString();
+	}
+
+	@Override
+	public synchronized Object clone() {
+		return snapshot();
+	}
+
+	/*
+	 * Java 8 added the following methods of Map. Hashtable implements them
+	 * by accessing its own table, which is always empty. They are never
+	 * called on older JVMs.
+	 */
+
+	public Object getOrDefault(Object key, Object defaultValue) {
+		Object value = get(key);
+		return (value == null) ? defaultValue : value;
+	}
+
+	public void forEach(
+			java.util.function.BiConsumer<? super Object, ? super Object> action) {
+		snapshot().forEach(action);
+	}
+
+	public synchronized void replaceAll(
+			java.util.function.BiFunction<? super Object, ? super Object, ?> function) {
+		for (Map.Entry<Object, Object> entry: entrySet())
+			put(entry.getKey(),
+				function.apply(entry.getKey(), entry.getValue()));
+	}
+
+	public synchronized Object putIfAbsent(Object key, Object value) {
+		Object current = get(key);
+		return (current == null) ? put(key, value) : current;
+	}
+
+	public synchronized boolean remove(Object key, Object value) {
+		Object current = get(key);
+		if (current == null || !current.equals(value))
+			return false;
+		remove(key);
+		return true;
+	}
+
+	public synchronized boolean replace(Object key, Object oldValue,
+			Object newValue) {
+		Object current = get(key);
+		if (current == null || !current.equals(oldValue))
+			return false;
+		put(key, newValue);
+		return true;
+	}
+
+	public synchronized Object replace(Object key, Object value) {
+		return containsKey(key) ? put(key, value) : null;
+	}
+
+	public synchronized Object computeIfAbsent(Object key,
+			java.util.function.Function<? super Object, ?> mappingFunction) {
+		Object current = get(key);
+		if (current != null)
+			return current;
+		Object value = mappingFunction.apply(key);
+		if (value != null)
+			put(key, value);
+		return value;
+	}
+
+	public synchronized Object computeIfPresent(Object key,
+			java.util.function.BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+		Object current = get(key);
+		return (current == null)
+			? null : storeComputedValue(key, remappingFunction.apply(key, current));
+	}
+
+	public synchronized Object compute(Object key,
+			java.util.function.BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+		return storeComputedValue(key,
+			remappingFunction.apply(key, get(key)));
+	}
+
+	public synchronized Object merge(Object key, Object value,
+			java.util.function.BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+		Object current = get(key);
+		return storeComputedValue(key, (current == null)
+			? value : remappingFunction.apply(current, value));
+	}
+
+	private Object storeComputedValue(Object key, Object value) {
+		if (value == null)
+			remove(key);
+		else
+			put(key, value);
+		return value;
+	}
+
+	/**
+	 * The changes of system properties that are made by a test.
+	 */
+	public static class Overlay {
+		private final ThreadLocalProperties properties;
+		private final Overlay parent;
+		private final Map<Object, Object> values
+			= new ConcurrentHashMap<Object, Object>();
+		private volatile boolean closed = false;
+
+		Overlay(ThreadLocalProperties properties, Overlay parent) {
+			this.properties = properties;
+			this.parent = parent;
+		}
+
+		/**
+		 * Discards the changes and lets the current thread use the
+		 * overlay that has been used before this overlay has been opened.
+		 */
+		public void close() {
+			closed = true;
+			values.clear();
+			if (properties.overlayOfThread.get() == this)
+				if (parent == null)
+					properties.overlayOfThread.remove();
+				else
+					properties.overlayOfThread.set(parent);
+		}
+
+		private static Overlay openOverlayOf(Overlay overlay) {
+			while (overlay != null && overlay.closed)
+				overlay = overlay.parent;
+			return overlay;
+		}
+	}
+}
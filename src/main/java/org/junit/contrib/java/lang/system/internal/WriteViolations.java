@@ -0,0 +1,86 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code WriteViolations} records the call sites of writes that are not
+ * allowed and the number of bytes that have been written by each call site.
+ */
+class WriteViolations {
+	private static final int MAX_LENGTH_OF_SAMPLE = 40;
+	private static final StackTraceElement UNKNOWN_CALL_SITE
+		= new StackTraceElement("unknown", "unknown", null, -1);
+
+	private final ConcurrentMap<StackTraceElement, Violation> violations
+		= new ConcurrentHashMap<StackTraceElement, Violation>();
+	private final AtomicInteger numberOfCallSites = new AtomicInteger();
+
+	void record(StackTraceElement callSite, byte[] b, int off, int len) {
+		violationOfCallSite(callSite, b, off, len).bytes.addAndGet(len);
+	}
+
+	private Violation violationOfCallSite(
+			StackTraceElement callSite, byte[] b, int off, int len) {
+		if (callSite == null)
+			callSite = UNKNOWN_CALL_SITE;
+		Violation violation = violations.get(callSite);
+		if (violation == null) {
+			Violation newViolation = new Violation(
+				numberOfCallSites.getAndIncrement(), callSite,
+				new String(b, off, Math.min(len, MAX_LENGTH_OF_SAMPLE),
+					Charset.defaultCharset()));
+			violation = violations.putIfAbsent(callSite, newViolation);
+			if (violation == null)
+				violation = newViolation;
+		}
+		return violation;
+	}
+
+	void verifyNoViolations(String nameOfStream) {
+		if (!violations.isEmpty())
+			throw new AssertionError(describeViolations(nameOfStream));
+	}
+
+	private String describeViolations(String nameOfStream) {
+		StringBuilder sb = new StringBuilder("Tried to write to ")
+			.append(nameOfStream)
+			.append(" although this is not allowed. Writing call sites:");
+		for (Violation violation: violationsInOrderOfOccurrence())
+			sb.append("\n\tat ").append(violation.callSite)
+				.append(": ").append(violation.bytes.get())
+				.append(" bytes, first '").append(violation.sample)
+				.append("'");
+		return sb.toString();
+	}
+
+	private List<Violation> violationsInOrderOfOccurrence() {
+		List<Violation> list = new ArrayList<Violation>(violations.values());
+		Collections.sort(list, new Comparator<Violation>() {
+			public int compare(Violation first, Violation second) {
+				return first.index - second.index;
+			}
+		});
+		return list;
+	}
+
+	private static class Violation {
+		final int index;
+		final StackTraceElement callSite;
+		final String sample;
+		final AtomicLong bytes = new AtomicLong();
+
+		Violation(int index, StackTraceElement callSite, String sample) {
+			this.index = index;
+			this.callSite = callSite;
+			this.sample = sample;
+		}
+	}
+}
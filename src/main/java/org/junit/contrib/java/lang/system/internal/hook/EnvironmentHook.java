@@ -0,0 +1,69 @@
+package org.junit.contrib.java.lang.system.internal.hook;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.Map;
+
+/**
+ * The {@code EnvironmentHook} is called by {@code System.getenv()} and
+ * {@code System.getenv(String)} after they have been patched by the
+ * {@code InstrumentationAgent}. Both methods read the map of the hook
+ * instead of the real environment.
+ *
+ * <p>The hook is loaded by the bootstrap class loader. Therefore it must only
+ * use classes of the JDK.
+ */
+public class EnvironmentHook {
+	private static volatile Map<String, String> realEnvironment;
+	private static volatile Map<String, String> map;
+	private static volatile Map<String, String> unmodifiableView;
+
+	/**
+	 * Initializes the hook. Must be called before {@code System.getenv()}
+	 * is patched.
+	 *
+	 * @param realEnvironment the map that is returned by
+	 * {@code System.getenv()} before it is patched.
+	 * @param map the map that is read by {@code System.getenv()} and
+	 * {@code System.getenv(String)}.
+	 */
+	public static void initialize(Map<String, String> realEnvironment,
+			Map<String, String> map) {
+		EnvironmentHook.realEnvironment = realEnvironment;
+		setMap(map);
+	}
+
+	public static Map<String, String> getRealEnvironment() {
+		return realEnvironment;
+	}
+
+	public static Map<String, String> getMap() {
+		return map;
+	}
+
+	public static void setMap(Map<String, String> map) {
+		EnvironmentHook.map = map;
+		unmodifiableView = unmodifiableMap(map);
+	}
+
+	/**
+	 * Called by {@code System.getenv(String)}.
+	 *
+	 * @param name the name of the variable.
+	 * @return the value of the variable.
+	 */
+	public static String getenv(String name) {
+		if (name == null)
+			throw new NullPointerException();
+		return map.get(name);
+	}
+
+	/**
+	 * Called by {@code System.getenv()}.
+	 *
+	 * @return an unmodifiable view of the map.
+	 */
+	public static Map<String, String> getenv() {
+		return unmodifiableView;
+	}
+}
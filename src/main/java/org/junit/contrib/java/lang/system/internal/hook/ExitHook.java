@@ -0,0 +1,61 @@
+package org.junit.contrib.java.lang.system.internal.hook;
+
+/**
+ * The {@code ExitHook} is called by {@code Runtime.exit(int)} and
+ * {@code Runtime.halt(int)} after they have been patched by the
+ * {@code InstrumentationAgent}. The hook is called before the JVM is
+ * terminated. Its {@link Handler} can prevent the termination by throwing
+ * an exception.
+ *
+ * <p>The hook is loaded by the bootstrap class loader. Therefore it must only
+ * use classes of the JDK.
+ */
+public class ExitHook {
+	private static volatile Handler handler;
+
+	public static Handler getHandler() {
+		return handler;
+	}
+
+	public static void setHandler(Handler handler) {
+		ExitHook.handler = handler;
+	}
+
+	/**
+	 * Called by {@code Runtime.exit(int)}.
+	 *
+	 * @param status the exit status.
+	 */
+	public static void exit(int status) {
+		Handler currentHandler = handler;
+		if (currentHandler != null)
+			currentHandler.exitCalled(status, false);
+	}
+
+	/**
+	 * Called by {@code Runtime.halt(int)}.
+	 *
+	 * @param status the exit status.
+	 */
+	public static void halt(int status) {
+		Handler currentHandler = handler;
+		if (currentHandler != null)
+			currentHandler.exitCalled(status, true);
+	}
+
+	/**
+	 * Handles calls of {@code Runtime.exit(int)} and
+	 * {@code Runtime.halt(int)}.
+	 */
+	public static abstract class Handler {
+		/**
+		 * Called before the JVM is terminated. The JVM is not terminated if
+		 * this method throws an exception.
+		 *
+		 * @param status the exit status.
+		 * @param halt {@code true} if {@code Runtime.halt(int)} has been
+		 * called.
+		 */
+		public abstract void exitCalled(int status, boolean halt);
+	}
+}
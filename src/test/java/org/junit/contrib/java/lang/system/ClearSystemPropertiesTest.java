@@ -3,6 +3,7 @@ package org.junit.contrib.java.lang.system;
 import static java.lang.System.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.contrib.java.lang.system.Executor.propertySeenByOtherThreadDuringTest;
 import static org.junit.contrib.java.lang.system.Statements.SUCCESSFUL_TEST;
 
 import org.junit.Rule;
@@ -77,4 +78,16 @@ public class ClearSystemPropertiesTest {
 			propertiesAfterAddingProperty = new Properties(getProperties());
 		}
 	}
+
+	@Test
+	public void isolated_property_is_not_cleared_for_other_threads() throws Throwable {
+		setProperty("property", "dummy value");
+		TestThatCapturesProperties test = new TestThatCapturesProperties();
+		String valueOfOtherThread = propertySeenByOtherThreadDuringTest(
+			"property", test,
+			new ClearSystemProperties("property").isolatedPerThread());
+		assertThat(test.propertiesAtStart).doesNotContainKey("property");
+		assertThat(valueOfOtherThread).isEqualTo("dummy value");
+		assertThat(getProperty("property")).isEqualTo("dummy value");
+	}
 }
@@ -0,0 +1,134 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.in;
+import static java.lang.System.out;
+import static java.util.regex.Pattern.compile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.contrib.java.lang.system.Executor.exceptionThrownWhenTestIsExecutedWithRule;
+import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runners.model.Statement;
+
+public class ConsoleDialogueTest {
+	@Rule
+	public final Timeout timeout = new Timeout(5000);
+
+	private final ConsoleDialogue dialogue = new ConsoleDialogue(1000);
+
+	@Test
+	public void test_answers_prompts_of_program() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Thread greeter = new Thread(new Greeter());
+				greeter.start();
+				dialogue.expect("Name: ")
+					.send("Alice")
+					.expect(compile("Hello,? Alice"))
+					.expect("Age: ")
+					.send("42")
+					.expect("Bye");
+				greeter.join();
+			}
+		}, dialogue);
+	}
+
+	@Test
+	public void expect_looks_at_output_after_previous_match() {
+		Throwable exception = exceptionThrownWhenTestIsExecutedWithRule(
+			new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					out.print("prompt> prompt> ");
+					dialogue.expect("prompt> ")
+						.expect("prompt> ")
+						.expect("prompt> ", 10);
+				}
+			}, dialogue);
+		assertThat(exception)
+			.isInstanceOf(AssertionError.class)
+			.hasMessage("Expected \"prompt> \" on System.out within 10 ms but"
+				+ " the output was \"\".");
+	}
+
+	@Test
+	public void expect_fails_if_pattern_is_not_written_within_timeout() {
+		Throwable exception = exceptionThrownWhenTestIsExecutedWithRule(
+			new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					out.print("arbitrary text");
+					dialogue.expect(compile("\\d+"), 10);
+				}
+			}, dialogue);
+		assertThat(exception)
+			.isInstanceOf(AssertionError.class)
+			.hasMessage("Expected pattern \"\\d+\" on System.out within 10 ms"
+				+ " but the output was \"arbitrary text\".");
+	}
+
+	@Test
+	public void text_that_is_written_in_pieces_is_found() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Thread writer = new Thread() {
+					@Override
+					public void run() {
+						for (char c: "a long prompt> ".toCharArray())
+							out.print(c);
+					}
+				};
+				writer.start();
+				dialogue.expect("prompt> ");
+				writer.join();
+			}
+		}, dialogue);
+	}
+
+	@Test
+	public void output_is_available_after_dialogue() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				out.print("first text");
+				dialogue.expect("first");
+				out.print(" and second text");
+				assertThat(dialogue.getOutput())
+					.isEqualTo("first text and second text");
+			}
+		}, dialogue);
+	}
+
+	@Test
+	public void system_in_and_out_are_restored_after_the_test() {
+		InputStream originalIn = in;
+		PrintStream originalOut = out;
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+			}
+		}, dialogue);
+		assertThat(in).isSameAs(originalIn);
+		assertThat(out).isSameAs(originalOut);
+	}
+
+	private static class Greeter implements Runnable {
+		public void run() {
+			Scanner scanner = new Scanner(in);
+			out.print("Name: ");
+			String name = scanner.nextLine();
+			out.println("Hello, " + name);
+			out.print("Age: ");
+			scanner.nextLine();
+			out.println("Bye");
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static java.lang.System.setErr;
+import static java.lang.System.setOut;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.runner.Description.createTestDescription;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+
+public class ConsoleNoiseProfilerTest {
+	private static final Description FIRST_TEST
+		= createTestDescription(ConsoleNoiseProfilerTest.class, "first");
+	private static final Description SECOND_TEST
+		= createTestDescription(ConsoleNoiseProfilerTest.class, "second");
+
+	private final PrintStream originalOut = out;
+	private final PrintStream originalErr = err;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void restoreSystemOutAndErr() {
+		setOut(originalOut);
+		setErr(originalErr);
+	}
+
+	@Test
+	public void text_is_still_written_to_system_out_and_err() throws Exception {
+		ByteArrayOutputStream systemOut = useReadableSystemOut();
+		ByteArrayOutputStream systemErr = useReadableSystemErr();
+		ConsoleNoiseProfiler profiler = new ConsoleNoiseProfiler(
+			new File(folder.getRoot(), "report.json"), 10);
+		profiler.testRunStarted(null);
+		profiler.testStarted(FIRST_TEST);
+		out.print("out text");
+		err.print("err text");
+		profiler.testFinished(FIRST_TEST);
+		profiler.testRunFinished(new Result());
+		assertThat(systemOut.toString()).isEqualTo("out text");
+		assertThat(systemErr.toString()).isEqualTo("err text");
+	}
+
+	@Test
+	public void system_out_and_err_are_restored_after_the_run() throws Exception {
+		ConsoleNoiseProfiler profiler = new ConsoleNoiseProfiler(
+			new File(folder.getRoot(), "report.json"), 10);
+		profiler.testRunStarted(null);
+		profiler.testRunFinished(new Result());
+		assertThat(out).isSameAs(originalOut);
+		assertThat(err).isSameAs(originalErr);
+	}
+
+	@Test
+	public void json_report_ranks_tests_by_bytes_and_contains_frequent_lines() throws Exception {
+		useReadableSystemOut();
+		useReadableSystemErr();
+		File report = new File(folder.getRoot(), "report.json");
+		ConsoleNoiseProfiler profiler = new ConsoleNoiseProfiler(report, 10);
+		profiler.testRunStarted(null);
+		profiler.testStarted(FIRST_TEST);
+		out.print("a\n");
+		profiler.testFinished(FIRST_TEST);
+		profiler.testStarted(SECOND_TEST);
+		out.print("repeated \"line\"\nrepeated \"line\"\n");
+		err.print("error\n");
+		profiler.testFinished(SECOND_TEST);
+		profiler.testRunFinished(new Result());
+		assertThat(readFileToString(report, "UTF-8")).isEqualTo((
+			"{\n"
+			+ "  \"tests\": [\n"
+			+ "    {\"test\": \"second(" + getClass().getName() + ")\", \"bytes\": 38,"
+			+ " \"bytesOut\": 32, \"linesOut\": 2, \"bytesErr\": 6, \"linesErr\": 1},\n"
+			+ "    {\"test\": \"first(" + getClass().getName() + ")\", \"bytes\": 2,"
+			+ " \"bytesOut\": 2, \"linesOut\": 1, \"bytesErr\": 0, \"linesErr\": 0}\n"
+			+ "  ],\n"
+			+ "  \"frequentLines\": [\n"
+			+ "    {\"line\": \"repeated \\\"line\\\"\", \"count\": 2, \"error\": 0},\n"
+			+ "    {\"line\": \"a\", \"count\": 1, \"error\": 0},\n"
+			+ "    {\"line\": \"error\", \"count\": 1, \"error\": 0}\n"
+			+ "  ]\n"
+			+ "}\n"
+			).replace("\n", System.getProperty("line.separator")));
+	}
+
+	@Test
+	public void csv_report_consists_of_tests_and_frequent_lines() throws Exception {
+		useReadableSystemOut();
+		File report = new File(folder.getRoot(), "report.csv");
+		ConsoleNoiseProfiler profiler = new ConsoleNoiseProfiler(report, 1);
+		profiler.testRunStarted(null);
+		profiler.testStarted(FIRST_TEST);
+		out.print("x\nx\ny\n");
+		profiler.testFinished(FIRST_TEST);
+		profiler.testRunFinished(new Result());
+		String lineSeparator = System.getProperty("line.separator");
+		assertThat(readFileToString(report, "UTF-8")).isEqualTo(
+			"test,bytes,bytesOut,linesOut,bytesErr,linesErr" + lineSeparator
+			+ "\"first(" + getClass().getName() + ")\",6,6,3,0,0" + lineSeparator);
+		assertThat(readFileToString(new File(folder.getRoot(), "report-lines.csv"), "UTF-8"))
+			.isEqualTo("line,count,error" + lineSeparator
+				+ "\"y\",3,2" + lineSeparator);
+	}
+
+	private ByteArrayOutputStream useReadableSystemOut() {
+		ByteArrayOutputStream readableStream = new ByteArrayOutputStream();
+		setOut(new PrintStream(readableStream));
+		return readableStream;
+	}
+
+	private ByteArrayOutputStream useReadableSystemErr() {
+		ByteArrayOutputStream readableStream = new ByteArrayOutputStream();
+		setErr(new PrintStream(readableStream));
+		return readableStream;
+	}
+}
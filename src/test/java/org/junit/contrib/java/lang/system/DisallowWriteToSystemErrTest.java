@@ -4,6 +4,7 @@ import org.junit.After;
 import org.junit.Test;
 import org.junit.runners.model.Statement;
 
+import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Locale;
 
@@ -400,6 +401,124 @@ public class DisallowWriteToSystemErrTest {
 			.hasMessage("Tried to write 'd' although this is not allowed.");
 	}
 
+	@Test
+	public void test_is_successful_if_violations_are_collected_and_it_does_not_write_to_System_err() {
+		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr().collectViolations();
+		executeTestWithRule(SUCCESSFUL_TEST, disallowWrite);
+	}
+
+	@Test
+	public void test_fails_with_all_call_sites_if_violations_are_collected() {
+		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr().collectViolations();
+		Throwable error = exceptionThrownWhenTestIsExecutedWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				for (int i = 0; i < 3; ++i)
+					writeTwoCharacters();
+				System.err.print("xyz");
+			}
+		}, disallowWrite);
+		assertThat(error)
+			.isInstanceOf(AssertionError.class)
+			.hasMessageStartingWith("Tried to write to System.err although"
+				+ " this is not allowed. Writing call sites:\n\tat "
+				+ DisallowWriteToSystemErrTest.class.getName() + ".writeTwoCharacters(")
+			.hasMessageContaining(": 6 bytes, first 'ab'\n\tat "
+				+ DisallowWriteToSystemErrTest.class.getName() + "$")
+			.hasMessageEndingWith(": 3 bytes, first 'xyz'");
+	}
+
+	private void writeTwoCharacters() {
+		System.err.print("ab");
+	}
+
+	@Test
+	public void text_of_allowed_class_is_written_to_System_err() {
+		ByteArrayOutputStream systemErr = new ByteArrayOutputStream();
+		setErr(new PrintStream(systemErr));
+		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr()
+			.allowWritesFrom(AllowedWriter.class.getName());
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(systemErr.toString()).isEqualTo("dummy text");
+	}
+
+	@Test
+	public void text_of_allowed_package_is_written_to_System_err() {
+		ByteArrayOutputStream systemErr = new ByteArrayOutputStream();
+		setErr(new PrintStream(systemErr));
+		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr()
+			.allowWritesFrom("org.junit.contrib.java.lang");
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				System.err.print("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(systemErr.toString()).isEqualTo("dummy text");
+	}
+
+	@Test
+	public void text_of_allowed_class_is_discarded_if_requested() {
+		ByteArrayOutputStream systemErr = new ByteArrayOutputStream();
+		setErr(new PrintStream(systemErr));
+		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr()
+			.allowWritesFrom(AllowedWriter.class.getName())
+			.discardAllowedWrites();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(systemErr.toString()).isEmpty();
+	}
+
+	@Test
+	public void test_fails_if_class_that_is_not_allowed_writes_to_System_err() {
+		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr()
+			.allowWritesFrom(AllowedWriter.class.getName())
+			.discardAllowedWrites();
+		Throwable error = exceptionThrownWhenTestIsExecutedWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("allowed text");
+				System.err.print("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(error)
+			.isInstanceOf(AssertionError.class)
+			.hasMessage("Tried to write 'd' although this is not allowed.");
+	}
+
+	@Test
+	public void allowed_class_is_not_reported_if_violations_are_collected() {
+		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr()
+			.allowWritesFrom(AllowedWriter.class.getName())
+			.discardAllowedWrites()
+			.collectViolations();
+		Throwable error = exceptionThrownWhenTestIsExecutedWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("allowed text");
+				System.err.print("xyz");
+			}
+		}, disallowWrite);
+		assertThat(error.getMessage())
+			.doesNotContain("AllowedWriter")
+			.endsWith(": 3 bytes, first 'xyz'");
+	}
+
+	private static class AllowedWriter {
+		static void write(String text) {
+			System.err.print(text);
+		}
+	}
+
 	@Test
 	public void after_the_test_System_err_is_same_as_before() {
 		DisallowWriteToSystemErr disallowWrite = new DisallowWriteToSystemErr();
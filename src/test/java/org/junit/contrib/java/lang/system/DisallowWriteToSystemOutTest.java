@@ -4,6 +4,7 @@ import org.junit.After;
 import org.junit.Test;
 import org.junit.runners.model.Statement;
 
+import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Locale;
 
@@ -400,6 +401,124 @@ public class DisallowWriteToSystemOutTest {
 			.hasMessage("Tried to write 'd' although this is not allowed.");
 	}
 
+	@Test
+	public void test_is_successful_if_violations_are_collected_and_it_does_not_write_to_System_out() {
+		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut().collectViolations();
+		executeTestWithRule(SUCCESSFUL_TEST, disallowWrite);
+	}
+
+	@Test
+	public void test_fails_with_all_call_sites_if_violations_are_collected() {
+		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut().collectViolations();
+		Throwable error = exceptionThrownWhenTestIsExecutedWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				for (int i = 0; i < 3; ++i)
+					writeTwoCharacters();
+				System.out.print("xyz");
+			}
+		}, disallowWrite);
+		assertThat(error)
+			.isInstanceOf(AssertionError.class)
+			.hasMessageStartingWith("Tried to write to System.out although"
+				+ " this is not allowed. Writing call sites:\n\tat "
+				+ DisallowWriteToSystemOutTest.class.getName() + ".writeTwoCharacters(")
+			.hasMessageContaining(": 6 bytes, first 'ab'\n\tat "
+				+ DisallowWriteToSystemOutTest.class.getName() + "$")
+			.hasMessageEndingWith(": 3 bytes, first 'xyz'");
+	}
+
+	private void writeTwoCharacters() {
+		System.out.print("ab");
+	}
+
+	@Test
+	public void text_of_allowed_class_is_written_to_System_out() {
+		ByteArrayOutputStream systemOut = new ByteArrayOutputStream();
+		setOut(new PrintStream(systemOut));
+		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut()
+			.allowWritesFrom(AllowedWriter.class.getName());
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(systemOut.toString()).isEqualTo("dummy text");
+	}
+
+	@Test
+	public void text_of_allowed_package_is_written_to_System_out() {
+		ByteArrayOutputStream systemOut = new ByteArrayOutputStream();
+		setOut(new PrintStream(systemOut));
+		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut()
+			.allowWritesFrom("org.junit.contrib.java.lang");
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				System.out.print("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(systemOut.toString()).isEqualTo("dummy text");
+	}
+
+	@Test
+	public void text_of_allowed_class_is_discarded_if_requested() {
+		ByteArrayOutputStream systemOut = new ByteArrayOutputStream();
+		setOut(new PrintStream(systemOut));
+		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut()
+			.allowWritesFrom(AllowedWriter.class.getName())
+			.discardAllowedWrites();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(systemOut.toString()).isEmpty();
+	}
+
+	@Test
+	public void test_fails_if_class_that_is_not_allowed_writes_to_System_out() {
+		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut()
+			.allowWritesFrom(AllowedWriter.class.getName())
+			.discardAllowedWrites();
+		Throwable error = exceptionThrownWhenTestIsExecutedWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("allowed text");
+				System.out.print("dummy text");
+			}
+		}, disallowWrite);
+		assertThat(error)
+			.isInstanceOf(AssertionError.class)
+			.hasMessage("Tried to write 'd' although this is not allowed.");
+	}
+
+	@Test
+	public void allowed_class_is_not_reported_if_violations_are_collected() {
+		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut()
+			.allowWritesFrom(AllowedWriter.class.getName())
+			.discardAllowedWrites()
+			.collectViolations();
+		Throwable error = exceptionThrownWhenTestIsExecutedWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				AllowedWriter.write("allowed text");
+				System.out.print("xyz");
+			}
+		}, disallowWrite);
+		assertThat(error.getMessage())
+			.doesNotContain("AllowedWriter")
+			.endsWith(": 3 bytes, first 'xyz'");
+	}
+
+	private static class AllowedWriter {
+		static void write(String text) {
+			System.out.print(text);
+		}
+	}
+
 	@Test
 	public void after_the_test_System_out_is_same_as_before() {
 		DisallowWriteToSystemOut disallowWrite = new DisallowWriteToSystemOut();
@@ -6,11 +6,13 @@ import org.junit.runners.model.Statement;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import static java.lang.System.getenv;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.contrib.java.lang.system.Executor.executeTestThatThrowsExceptionWithRule;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.contrib.java.lang.system.Executor.variableSeenByOtherThreadDuringTest;
 
 public class EnvironmentVariablesTest {
 	@Test
@@ -151,4 +153,157 @@ public class EnvironmentVariablesTest {
 			}
 		}, environmentVariables);
 	}
+
+	@Test
+	public void environment_variables_that_are_set_at_once_are_available_in_the_test() {
+		final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				Map<String, String> variables = new HashMap<String, String>();
+				variables.put("dummy name", "dummy value");
+				variables.put("another name", "another value");
+				environmentVariables.set(variables);
+				assertThat(getenv("dummy name")).isEqualTo("dummy value");
+				assertThat(getenv("another name")).isEqualTo("another value");
+			}
+		}, environmentVariables);
+	}
+
+	@Test
+	public void environment_variables_that_are_set_at_once_are_restored_after_the_test() {
+		Map<String, String> originalEnvironmentVariables = new HashMap<String, String>(getenv());
+		final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				Map<String, String> variables = new HashMap<String, String>();
+				variables.put("dummy name", "dummy value");
+				variables.put("another name", null);
+				environmentVariables.set(variables);
+			}
+		}, environmentVariables);
+		assertThat(getenv()).isEqualTo(originalEnvironmentVariables);
+	}
+
+	@Test
+	public void environment_variable_that_is_set_before_the_test_is_restored_after_the_test() {
+		Map<String, String> originalEnvironmentVariables = new HashMap<String, String>(getenv());
+		final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+		environmentVariables.set("dummy name", "dummy value");
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				assertThat(getenv("dummy name")).isEqualTo("dummy value");
+			}
+		}, environmentVariables);
+		assertThat(getenv()).isEqualTo(originalEnvironmentVariables);
+	}
+
+	@Test
+	public void environment_variable_that_is_changed_several_times_gets_its_first_value() {
+		final EnvironmentVariables outerRule = new EnvironmentVariables();
+		final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				outerRule.set("dummy name", "original value");
+				executeTestWithRule(new Statement() {
+					@Override
+					public void evaluate() {
+						environmentVariables.set("dummy name", "first value");
+						environmentVariables.set("dummy name", "second value");
+					}
+				}, environmentVariables);
+				assertThat(getenv("dummy name")).isEqualTo("original value");
+			}
+		}, outerRule);
+	}
+
+	@Test
+	public void isolated_environment_variable_is_not_visible_to_other_threads() throws Throwable {
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().isolatedPerThread();
+		final String[] valueOfTestThread = new String[1];
+		String valueOfOtherThread = variableSeenByOtherThreadDuringTest(
+			"dummy name",
+			new Statement() {
+				@Override
+				public void evaluate() {
+					environmentVariables.set("dummy name", "dummy value");
+					valueOfTestThread[0] = getenv("dummy name");
+				}
+			},
+			environmentVariables);
+		assertThat(valueOfTestThread[0]).isEqualTo("dummy value");
+		assertThat(valueOfOtherThread).isNull();
+	}
+
+	@Test
+	public void isolated_environment_variable_is_visible_to_threads_created_by_the_test() {
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().isolatedPerThread();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				environmentVariables.set("dummy name", "dummy value");
+				final String[] value = new String[1];
+				Thread thread = new Thread() {
+					@Override
+					public void run() {
+						value[0] = getenv().get("dummy name");
+					}
+				};
+				thread.start();
+				thread.join();
+				assertThat(value[0]).isEqualTo("dummy value");
+			}
+		}, environmentVariables);
+	}
+
+	@Test
+	public void isolated_environment_variables_are_discarded_after_the_test() {
+		Map<String, String> originalEnvironmentVariables = new HashMap<String, String>(getenv());
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().isolatedPerThread();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				environmentVariables.set("dummy name", "dummy value");
+				environmentVariables.clear("PATH");
+				assertThat(getenv()).doesNotContainKey("PATH");
+			}
+		}, environmentVariables);
+		assertThat(getenv()).isEqualTo(originalEnvironmentVariables);
+	}
+
+	@Test
+	public void isolated_environment_variable_is_not_visible_to_threads_that_outlive_the_test() throws Exception {
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().isolatedPerThread();
+		final CountDownLatch testFinished = new CountDownLatch(1);
+		final String[] value = new String[1];
+		final Thread[] thread = new Thread[1];
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				environmentVariables.set("dummy name", "dummy value");
+				thread[0] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							testFinished.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						value[0] = getenv("dummy name");
+					}
+				};
+				thread[0].start();
+			}
+		}, environmentVariables);
+		testFinished.countDown();
+		thread[0].join();
+		assertThat(value[0]).isNull();
+	}
 }
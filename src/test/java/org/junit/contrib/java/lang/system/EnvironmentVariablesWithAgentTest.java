@@ -0,0 +1,101 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getenv;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.contrib.java.lang.system.Executor.variableSeenByOtherThreadDuringTest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.internal.hook.EnvironmentHook;
+import org.junit.runners.model.Statement;
+
+public class EnvironmentVariablesWithAgentTest {
+	@Test
+	public void environment_variable_is_available_in_the_test() {
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().usingAgent();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				environmentVariables.set("dummy name", "dummy value");
+				assertThat(getenv("dummy name")).isEqualTo("dummy value");
+				assertThat(getenv()).containsEntry("dummy name", "dummy value");
+			}
+		}, environmentVariables);
+	}
+
+	@Test
+	public void environment_variables_are_restored_after_the_test() {
+		Map<String, String> originalEnvironmentVariables
+			= new HashMap<String, String>(getenv());
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().usingAgent();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				environmentVariables.set("dummy name", "dummy value");
+				environmentVariables.clear("PATH");
+				assertThat(getenv("PATH")).isNull();
+			}
+		}, environmentVariables);
+		assertThat(getenv()).isEqualTo(originalEnvironmentVariables);
+	}
+
+	@Test
+	public void real_environment_is_not_modified() {
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().usingAgent();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				environmentVariables.set("dummy name", "dummy value");
+				environmentVariables.clear("PATH");
+				assertThat(EnvironmentHook.getRealEnvironment())
+					.doesNotContainKey("dummy name")
+					.containsKey("PATH");
+			}
+		}, environmentVariables);
+	}
+
+	@Test
+	public void isolated_environment_variable_is_not_visible_to_other_threads() throws Throwable {
+		final EnvironmentVariables environmentVariables
+			= new EnvironmentVariables().usingAgent().isolatedPerThread();
+		final String[] valueOfTestThread = new String[1];
+		String valueOfOtherThread = variableSeenByOtherThreadDuringTest(
+			"dummy name",
+			new Statement() {
+				@Override
+				public void evaluate() {
+					environmentVariables.set("dummy name", "dummy value");
+					valueOfTestThread[0] = getenv("dummy name");
+				}
+			},
+			environmentVariables);
+		assertThat(valueOfTestThread[0]).isEqualTo("dummy value");
+		assertThat(valueOfOtherThread).isNull();
+	}
+
+	@Test
+	public void rule_without_agent_uses_the_agent_after_it_has_been_attached() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+			}
+		}, new EnvironmentVariables().usingAgent());
+		final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				environmentVariables.set("dummy name", "dummy value");
+				assertThat(getenv("dummy name")).isEqualTo("dummy value");
+				assertThat(EnvironmentHook.getRealEnvironment())
+					.doesNotContainKey("dummy name");
+			}
+		}, environmentVariables);
+		assertThat(getenv("dummy name")).isNull();
+	}
+}
@@ -1,5 +1,8 @@
 package org.junit.contrib.java.lang.system;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
@@ -34,6 +37,71 @@ class Executor {
 			Throwable.class);
 	}
 
+	/**
+	 * Executes the test with the rule in a new thread and returns the value
+	 * of the property that the current thread sees after the test's
+	 * statement has been evaluated but before the rule finishes.
+	 */
+	static String propertySeenByOtherThreadDuringTest(final String key,
+			Statement test, TestRule rule) throws Throwable {
+		return valueSeenByOtherThreadDuringTest(new Callable<String>() {
+			public String call() {
+				return System.getProperty(key);
+			}
+		}, test, rule);
+	}
+
+	/**
+	 * Executes the test with the rule in a new thread and returns the value
+	 * of the environment variable that the current thread sees after the
+	 * test's statement has been evaluated but before the rule finishes.
+	 */
+	static String variableSeenByOtherThreadDuringTest(final String name,
+			Statement test, TestRule rule) throws Throwable {
+		return valueSeenByOtherThreadDuringTest(new Callable<String>() {
+			public String call() {
+				return System.getenv(name);
+			}
+		}, test, rule);
+	}
+
+	private static String valueSeenByOtherThreadDuringTest(
+			Callable<String> read, final Statement test, final TestRule rule)
+			throws Throwable {
+		final CountDownLatch testEvaluated = new CountDownLatch(1);
+		final CountDownLatch propertyRead = new CountDownLatch(1);
+		final Throwable[] exception = new Throwable[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					rule.apply(new Statement() {
+						@Override
+						public void evaluate() throws Throwable {
+							try {
+								test.evaluate();
+							} finally {
+								testEvaluated.countDown();
+							}
+							propertyRead.await();
+						}
+					}, DUMMY_DESCRIPTION).evaluate();
+				} catch (Throwable e) {
+					exception[0] = e;
+				}
+				testEvaluated.countDown();
+			}
+		};
+		thread.start();
+		testEvaluated.await();
+		String value = read.call();
+		propertyRead.countDown();
+		thread.join();
+		if (exception[0] != null)
+			throw exception[0];
+		return value;
+	}
+
 	private static com.github.stefanbirkner.fishbowl.Statement executeTestWithRuleRaw(
 			final Statement test, final TestRule rule) {
 		return new com.github.stefanbirkner.fishbowl.Statement() {
@@ -1,8 +1,11 @@
 package org.junit.contrib.java.lang.system;
 
+import static java.lang.System.currentTimeMillis;
 import static java.lang.System.getSecurityManager;
 import static java.lang.System.setSecurityManager;
+import static java.lang.Thread.currentThread;
 import static java.lang.Thread.sleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -10,10 +13,19 @@ import static org.junit.Assert.fail;
 import static org.junit.contrib.java.lang.system.Executor.exceptionThrownWhenTestIsExecutedWithRule;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
 import static org.junit.contrib.java.lang.system.Statements.TEST_THAT_DOES_NOTHING;
+import static org.junit.runner.JUnitCore.runClasses;
+import static org.junit.runner.Request.aClass;
 
 import java.security.Permission;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.junit.ClassRule;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.internal.NoExitSecurityManager;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
 import org.junit.runners.model.Statement;
 
 
@@ -131,6 +143,253 @@ public class ExpectedSystemExitTest {
 		executeTestWithRule(new SystemExitInThread(), rule);
 	}
 
+	@Test
+	public void test_finishes_right_away_if_exit_is_called_in_a_thread_while_test_waits() {
+		rule.expectSystemExitWithStatus(ARBITRARY_EXIT_STATUS);
+		long start = currentTimeMillis();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				new Thread(new SystemExit(ARBITRARY_EXIT_STATUS)).start();
+				sleep(60000);
+			}
+		}, rule);
+		assertThat(currentTimeMillis() - start).isLessThan(30000);
+	}
+
+	@Test
+	public void test_thread_is_not_interrupted_if_it_does_not_wait_while_exit_is_called_in_a_thread() {
+		rule.expectSystemExit();
+		final boolean[] interrupted = new boolean[1];
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Thread thread = new Thread(new SystemExit(ARBITRARY_EXIT_STATUS));
+				thread.start();
+				while (thread.isAlive())
+					; //busy waiting keeps the test's thread running
+				interrupted[0] = currentThread().isInterrupted();
+			}
+		}, rule);
+		assertThat(interrupted[0]).isFalse();
+	}
+
+	@Test
+	public void test_finishes_right_away_if_it_waits_after_exit_has_been_called_in_a_thread() {
+		rule.expectSystemExitWithStatus(ARBITRARY_EXIT_STATUS);
+		long start = currentTimeMillis();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Thread thread = new Thread(new SystemExit(ARBITRARY_EXIT_STATUS));
+				thread.start();
+				while (thread.isAlive())
+					; //busy waiting keeps the test's thread running
+				sleep(60000);
+			}
+		}, rule);
+		assertThat(currentTimeMillis() - start).isLessThan(30000);
+	}
+
+	@Test
+	public void interrupted_status_of_test_thread_is_cleared_after_test() {
+		rule.expectSystemExit();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Thread thread = new Thread(new SystemExit(ARBITRARY_EXIT_STATUS));
+				thread.start();
+				thread.join();
+			}
+		}, rule);
+		assertThat(Thread.interrupted()).isFalse();
+	}
+
+	@Test
+	public void all_calls_of_exit_are_provided_with_thread_and_stack() {
+		rule.expectSystemExit();
+		final Thread[] threads = new Thread[2];
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				threads[0] = currentThread();
+				try {
+					System.exit(1);
+				} catch (SecurityException ignored) {
+				}
+				threads[1] = new Thread(new SystemExit(2));
+				threads[1].start();
+				threads[1].join();
+			}
+		}, rule);
+		List<ExpectedSystemExit.ExitCall> calls = rule.getExitCalls();
+		assertThat(calls).hasSize(2);
+		assertThat(calls.get(0).getStatus()).isEqualTo(1);
+		assertThat(calls.get(0).getThread()).isSameAs(threads[0]);
+		assertThat(calls.get(1).getStatus()).isEqualTo(2);
+		assertThat(calls.get(1).getThread()).isSameAs(threads[1]);
+		assertThat(calls.get(1).getStackTrace()[0].getClassName())
+			.isEqualTo("java.lang.Runtime");
+	}
+
+	@Test
+	public void shutdown_hook_registered_during_test_runs_before_assertions_are_checked() {
+		final HookThatRemembersRun hook = new HookThatRemembersRun();
+		rule.expectSystemExit();
+		rule.runShutdownHooksOnExit();
+		rule.checkAssertionAfterwards(new Assertion() {
+			public void checkAssertion() throws Exception {
+				assertTrue(hook.run);
+			}
+		});
+		executeTestWithRule(new RegisterHookAndExit(hook), rule);
+	}
+
+	@Test
+	public void shutdown_hook_registered_during_test_is_deregistered_after_test() {
+		HookThatRemembersRun hook = new HookThatRemembersRun();
+		rule.expectSystemExit();
+		rule.runShutdownHooksOnExit();
+		executeTestWithRule(new RegisterHookAndExit(hook), rule);
+		assertThat(Runtime.getRuntime().removeShutdownHook(hook)).isFalse();
+	}
+
+	@Test
+	public void shutdown_hook_is_deregistered_but_not_run_if_exit_is_not_called() {
+		final HookThatRemembersRun hook = new HookThatRemembersRun();
+		rule.runShutdownHooksOnExit();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Runtime.getRuntime().addShutdownHook(hook);
+			}
+		}, rule);
+		assertThat(hook.run).isFalse();
+		assertThat(Runtime.getRuntime().removeShutdownHook(hook)).isFalse();
+	}
+
+	@Test
+	public void shutdown_hook_registered_before_test_is_neither_run_nor_deregistered() {
+		HookThatRemembersRun hook = new HookThatRemembersRun();
+		Runtime.getRuntime().addShutdownHook(hook);
+		rule.expectSystemExit();
+		rule.runShutdownHooksOnExit();
+		executeTestWithRule(new SystemExit0(), rule);
+		assertThat(hook.run).isFalse();
+		assertThat(Runtime.getRuntime().removeShutdownHook(hook)).isTrue();
+	}
+
+	@Test
+	public void test_fails_if_shutdown_hook_does_not_finish_within_timeout() {
+		Thread hook = new Thread("slow hook") {
+			@Override
+			public void run() {
+				try {
+					sleep(60000);
+				} catch (InterruptedException ignored) {
+				}
+			}
+		};
+		rule.expectSystemExit();
+		rule.runShutdownHooksOnExit(100, MILLISECONDS);
+		long start = currentTimeMillis();
+		Throwable exception = exceptionThrownWhenTestIsExecutedWithRule(
+			new RegisterHookAndExit(hook), rule);
+		assertThat(currentTimeMillis() - start).isLessThan(30000);
+		assertThat(exception).hasMessage(
+			"Shutdown hooks have not finished within 100 ms: slow hook");
+		assertThat(Runtime.getRuntime().removeShutdownHook(hook)).isFalse();
+		hook.interrupt();
+	}
+	@Test
+	public void class_rule_installs_security_manager_once_for_all_tests() {
+		SecurityManager originalManager = getSecurityManager();
+		Result result = runClasses(TestWithClassRule.class);
+		assertThat(result.wasSuccessful()).isTrue();
+		assertThat(TestWithClassRule.securityManagers).hasSize(2);
+		assertThat(TestWithClassRule.securityManagers.get(0))
+			.isInstanceOf(NoExitSecurityManager.class)
+			.isSameAs(TestWithClassRule.securityManagers.get(1));
+		assertThat(getSecurityManager()).isSameAs(originalManager);
+	}
+
+	@Test
+	public void test_fails_if_exit_is_called_but_not_expected_by_rule_of_test_with_class_rule() {
+		Result result = runClasses(TestWithClassRuleAndUnexpectedExit.class);
+		assertThat(result.getFailures()).hasSize(1);
+		assertThat(result.getFailures().get(0).getMessage())
+			.isEqualTo("Unexpected call of System.exit(3).");
+	}
+
+	@Test
+	public void rule_of_test_does_not_use_class_rule_of_another_class() throws Throwable {
+		final SecurityManager[] managerOfClassRule = new SecurityManager[1];
+		final Result[] result = new Result[1];
+		Description descriptionOfClassWithClassRule = aClass(
+			TestWithClassRule.class).getRunner().getDescription();
+		ExpectedSystemExit.none().apply(new Statement() {
+			@Override
+			public void evaluate() {
+				managerOfClassRule[0] = getSecurityManager();
+				result[0] = runClasses(TestWithoutClassRule.class);
+			}
+		}, descriptionOfClassWithClassRule).evaluate();
+		assertThat(result[0].wasSuccessful()).isTrue();
+		assertThat(TestWithoutClassRule.securityManager)
+			.isInstanceOf(NoExitSecurityManager.class)
+			.isNotSameAs(managerOfClassRule[0]);
+	}
+
+	public static class TestWithClassRule {
+		static final List<SecurityManager> securityManagers
+			= new ArrayList<SecurityManager>();
+
+		@ClassRule
+		public static final ExpectedSystemExit EXIT = ExpectedSystemExit.none();
+
+		@Rule
+		public final ExpectedSystemExit exit = EXIT;
+
+		@Test
+		public void exits() {
+			securityManagers.add(getSecurityManager());
+			exit.expectSystemExitWithStatus(1);
+			System.exit(1);
+		}
+
+		@Test
+		public void does_not_exit() {
+			securityManagers.add(getSecurityManager());
+		}
+	}
+
+	public static class TestWithoutClassRule {
+		static SecurityManager securityManager;
+
+		@Rule
+		public final ExpectedSystemExit exit = ExpectedSystemExit.none();
+
+		@Test
+		public void exits() {
+			securityManager = getSecurityManager();
+			exit.expectSystemExitWithStatus(2);
+			System.exit(2);
+		}
+	}
+
+	public static class TestWithClassRuleAndUnexpectedExit {
+		@ClassRule
+		public static final ExpectedSystemExit EXIT = ExpectedSystemExit.none();
+
+		@Rule
+		public final ExpectedSystemExit exit = ExpectedSystemExit.none();
+
+		@Test
+		public void exits() {
+			System.exit(3);
+		}
+	}
+
 	private static class SystemExit0 extends Statement {
 		@Override
 		public void evaluate() throws Throwable {
@@ -138,6 +397,41 @@ public class ExpectedSystemExitTest {
 		}
 	}
 
+	private static class SystemExit implements Runnable {
+		final int status;
+
+		SystemExit(int status) {
+			this.status = status;
+		}
+
+		public void run() {
+			System.exit(status);
+		}
+	}
+
+	private static class HookThatRemembersRun extends Thread {
+		volatile boolean run = false;
+
+		@Override
+		public void run() {
+			run = true;
+		}
+	}
+
+	private static class RegisterHookAndExit extends Statement {
+		final Thread hook;
+
+		RegisterHookAndExit(Thread hook) {
+			this.hook = hook;
+		}
+
+		@Override
+		public void evaluate() throws Throwable {
+			Runtime.getRuntime().addShutdownHook(hook);
+			System.exit(0);
+		}
+	}
+
 	private static class CheckContext extends Statement {
 		@Override
 		public void evaluate() throws Throwable {
@@ -0,0 +1,139 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getSecurityManager;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.contrib.java.lang.system.Executor.exceptionThrownWhenTestIsExecutedWithRule;
+import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.contrib.java.lang.system.Statements.TEST_THAT_DOES_NOTHING;
+import static org.junit.runner.JUnitCore.runClasses;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Result;
+import org.junit.runners.model.Statement;
+
+public class ExpectedSystemExitWithAgentTest {
+	private static final int ARBITRARY_EXIT_STATUS = 216843;
+
+	private final ExpectedSystemExit rule = ExpectedSystemExit.none().usingAgent();
+
+	@Test
+	public void test_is_successful_exit_is_called_with_expected_status_code() {
+		rule.expectSystemExitWithStatus(ARBITRARY_EXIT_STATUS);
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				System.exit(ARBITRARY_EXIT_STATUS);
+			}
+		}, rule);
+	}
+
+	@Test
+	public void test_fails_if_exit_is_called_but_not_expected() {
+		Throwable exception = exceptionThrownWhenTestIsExecutedWithRule(
+			new SystemExit0(), rule);
+		assertThat(exception).hasMessage("Unexpected call of System.exit(0).");
+	}
+
+	@Test
+	public void test_fails_if_exit_is_expected_but_not_called() {
+		rule.expectSystemExit();
+		Throwable exception = exceptionThrownWhenTestIsExecutedWithRule(
+			TEST_THAT_DOES_NOTHING, rule);
+		assertThat(exception).hasMessage("System.exit has not been called.");
+	}
+
+	@Test
+	public void halt_is_intercepted() {
+		rule.expectSystemExitWithStatus(ARBITRARY_EXIT_STATUS);
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				Runtime.getRuntime().halt(ARBITRARY_EXIT_STATUS);
+			}
+		}, rule);
+	}
+
+	@Test
+	public void no_security_manager_is_installed() {
+		rule.expectSystemExit();
+		SystemExitAndCaptureSecurityManager test
+			= new SystemExitAndCaptureSecurityManager();
+		executeTestWithRule(test, rule);
+		assertThat(test.securityManager).isNull();
+	}
+
+	@Test
+	public void other_rules_use_agent_after_it_has_been_attached() {
+		rule.expectSystemExit();
+		executeTestWithRule(new SystemExit0(), rule);
+		ExpectedSystemExit ruleWithoutAgent = ExpectedSystemExit.none();
+		ruleWithoutAgent.expectSystemExit();
+		SystemExitAndCaptureSecurityManager test
+			= new SystemExitAndCaptureSecurityManager();
+		executeTestWithRule(test, ruleWithoutAgent);
+		assertThat(test.securityManager).isNull();
+	}
+
+	@Test
+	public void exit_in_other_thread_is_intercepted() {
+		rule.expectSystemExitWithStatus(ARBITRARY_EXIT_STATUS);
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Exception {
+				Thread thread = new Thread() {
+					@Override
+					public void run() {
+						System.exit(ARBITRARY_EXIT_STATUS);
+					}
+				};
+				thread.start();
+				thread.join();
+			}
+		}, rule);
+	}
+
+	@Test
+	public void class_rule_intercepts_exit_of_all_tests() {
+		Result result = runClasses(TestWithClassRule.class);
+		assertThat(result.wasSuccessful()).isTrue();
+		assertThat(result.getRunCount()).isEqualTo(2);
+	}
+
+	public static class TestWithClassRule {
+		@ClassRule
+		public static final ExpectedSystemExit EXIT
+			= ExpectedSystemExit.none().usingAgent();
+
+		@Rule
+		public final ExpectedSystemExit exit = EXIT;
+
+		@Test
+		public void exits() {
+			exit.expectSystemExitWithStatus(1);
+			System.exit(1);
+		}
+
+		@Test
+		public void does_not_exit() {
+		}
+	}
+
+	private static class SystemExit0 extends Statement {
+		@Override
+		public void evaluate() throws Throwable {
+			System.exit(0);
+		}
+	}
+
+	private static class SystemExitAndCaptureSecurityManager extends Statement {
+		SecurityManager securityManager;
+
+		@Override
+		public void evaluate() throws Throwable {
+			securityManager = getSecurityManager();
+			System.exit(0);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.out;
+import static java.lang.System.setOut;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.contrib.java.lang.system.OutputCapturePropagation.newForkJoinPoolWithCapture;
+import static org.junit.contrib.java.lang.system.OutputCapturePropagation.propagateCapture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runners.model.Statement;
+
+public class OutputCapturePropagationTest {
+	private final PrintStream originalOut = out;
+	private final ExecutorService sharedExecutor = newSingleThreadExecutor();
+
+	@After
+	public void restoreSystemOutAndShutdownExecutor() {
+		setOut(originalOut);
+		sharedExecutor.shutdownNow();
+	}
+
+	@Test
+	public void text_of_decorated_runnable_is_logged_by_concurrent_tests() throws Exception {
+		final SystemOutRule firstRule = new SystemOutRule().enableLog();
+		final SystemOutRule secondRule = new SystemOutRule().enableLog();
+		final CountDownLatch bothTestsStarted = new CountDownLatch(2);
+		final CountDownLatch firstTaskWritten = new CountDownLatch(1);
+		Thread firstTest = new Thread() {
+			@Override
+			public void run() {
+				executeTestWithRule(new Statement() {
+					@Override
+					public void evaluate() throws Throwable {
+						bothTestsStarted.countDown();
+						bothTestsStarted.await();
+						sharedExecutor.submit(
+							propagateCapture(writeTextToSystemOut("first text"))
+						).get();
+						firstTaskWritten.countDown();
+					}
+				}, firstRule);
+			}
+		};
+		Thread secondTest = new Thread() {
+			@Override
+			public void run() {
+				executeTestWithRule(new Statement() {
+					@Override
+					public void evaluate() throws Throwable {
+						bothTestsStarted.countDown();
+						bothTestsStarted.await();
+						firstTaskWritten.await();
+						sharedExecutor.submit(
+							propagateCapture(writeTextToSystemOut("second text"))
+						).get();
+					}
+				}, secondRule);
+			}
+		};
+		firstTest.start();
+		secondTest.start();
+		firstTest.join();
+		secondTest.join();
+		assertThat(firstRule.getLog()).isEqualTo("first text");
+		assertThat(secondRule.getLog()).isEqualTo("second text");
+	}
+
+	@Test
+	public void text_of_decorated_callable_is_logged() {
+		final SystemOutRule rule = new SystemOutRule().enableLog();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				sharedExecutor.submit(propagateCapture(new Callable<String>() {
+					public String call() {
+						out.print("arbitrary text");
+						return "result";
+					}
+				})).get();
+			}
+		}, rule);
+		assertThat(rule.getLog()).isEqualTo("arbitrary text");
+	}
+
+	@Test
+	public void text_of_task_submitted_to_decorated_executor_service_is_logged() {
+		final SystemOutRule rule = new SystemOutRule().enableLog();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				propagateCapture(sharedExecutor)
+					.submit(writeTextToSystemOut("arbitrary text"))
+					.get();
+			}
+		}, rule);
+		assertThat(rule.getLog()).isEqualTo("arbitrary text");
+	}
+
+	@Test
+	public void text_of_task_executed_by_fork_join_pool_is_logged() {
+		final SystemOutRule rule = new SystemOutRule().enableLog();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				ForkJoinPool pool = newForkJoinPoolWithCapture(2);
+				try {
+					pool.submit(writeTextToSystemOut("arbitrary text")).get();
+				} finally {
+					pool.shutdown();
+				}
+			}
+		}, rule);
+		assertThat(rule.getLog()).isEqualTo("arbitrary text");
+	}
+
+	@Test
+	public void text_of_task_is_written_to_original_stream_after_test_finished() throws Exception {
+		ByteArrayOutputStream systemOut = new ByteArrayOutputStream();
+		setOut(new PrintStream(systemOut));
+		final Runnable[] task = new Runnable[1];
+		SystemOutRule rule = new SystemOutRule().mute();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				task[0] = propagateCapture(writeTextToSystemOut("arbitrary text"));
+			}
+		}, rule);
+		sharedExecutor.submit(task[0]).get();
+		sharedExecutor.shutdown();
+		sharedExecutor.awaitTermination(1, SECONDS);
+		assertThat(systemOut.toString()).isEqualTo("arbitrary text");
+	}
+
+	private Runnable writeTextToSystemOut(final String text) {
+		return new Runnable() {
+			public void run() {
+				out.print(text);
+			}
+		};
+	}
+}
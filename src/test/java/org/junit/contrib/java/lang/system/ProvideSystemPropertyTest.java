@@ -1,13 +1,16 @@
 package org.junit.contrib.java.lang.system;
 
+import static com.github.stefanbirkner.fishbowl.Fishbowl.exceptionThrownBy;
 import static java.lang.System.clearProperty;
 import static java.lang.System.getProperty;
 import static java.lang.System.setProperty;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
 import static org.apache.commons.io.IOUtils.copy;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.contrib.java.lang.system.ProvideSystemProperty.fromFile;
 import static org.junit.contrib.java.lang.system.ProvideSystemProperty.fromResource;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.contrib.java.lang.system.Executor.propertySeenByOtherThreadDuringTest;
 import static org.junit.contrib.java.lang.system.Statements.TEST_THAT_DOES_NOTHING;
 
 import java.io.File;
@@ -98,6 +101,33 @@ public class ProvideSystemPropertyTest {
 			.containsEntry(ARBITRARY_KEY, ARBITRARY_VALUE);
 	}
 
+	@Test
+	public void properties_from_file_are_read_again_if_file_has_been_changed() throws Exception {
+		File file = temporaryFolder.newFile();
+		writeStringToFile(file, "arbitrary\\ property=first value");
+		fromFile(file.getAbsolutePath());
+		writeStringToFile(file, "arbitrary\\ property=second value");
+		file.setLastModified(file.lastModified() + 2000);
+		ProvideSystemProperty rule = fromFile(file.getAbsolutePath());
+		TestThatCapturesProperties test = new TestThatCapturesProperties();
+		executeTestWithRule(test, rule);
+		assertThat(test.propertiesAtStart)
+			.containsEntry(ARBITRARY_KEY, "second value");
+	}
+
+	@Test
+	public void missing_resource_is_rejected() {
+		Throwable exception = exceptionThrownBy(new com.github.stefanbirkner.fishbowl.Statement() {
+			public void evaluate() throws Throwable {
+				fromResource("missing.properties");
+			}
+		});
+		assertThat(exception)
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Cannot create ProvideSystemProperty rule because"
+				+ " resource \"missing.properties\" cannot be read.");
+	}
+
 	@Test
 	public void property_has_value_that_is_set_within_the_test_using_the_rule() {
 		setProperty(ARBITRARY_KEY, "value before executing the rule");
@@ -157,4 +187,26 @@ public class ProvideSystemPropertyTest {
 			rule.setProperty(name, value);
 		}
 	}
+
+	@Test
+	public void isolated_property_is_not_provided_to_other_threads() throws Throwable {
+		setProperty(ARBITRARY_KEY, ARBITRARY_VALUE);
+		TestThatCapturesProperties test = new TestThatCapturesProperties();
+		String valueOfOtherThread = propertySeenByOtherThreadDuringTest(
+			ARBITRARY_KEY, test,
+			new ProvideSystemProperty(ARBITRARY_KEY, A_DIFFERENT_VALUE)
+				.isolatedPerThread());
+		assertThat(test.propertiesAtStart)
+			.containsEntry(ARBITRARY_KEY, A_DIFFERENT_VALUE);
+		assertThat(valueOfOtherThread).isEqualTo(ARBITRARY_VALUE);
+	}
+
+	@Test
+	public void isolated_property_is_discarded_after_the_test() {
+		setProperty(ARBITRARY_KEY, ARBITRARY_VALUE);
+		executeTestWithRule(TEST_THAT_DOES_NOTHING,
+			new ProvideSystemProperty(ARBITRARY_KEY, A_DIFFERENT_VALUE)
+				.isolatedPerThread());
+		assertThat(getProperty(ARBITRARY_KEY)).isEqualTo(ARBITRARY_VALUE);
+	}
 }
@@ -0,0 +1,53 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getProperties;
+import static java.lang.System.nanoTime;
+import static java.lang.System.setProperties;
+
+import java.util.Properties;
+
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Measures the overhead of {@link RestoreSystemProperties} for a test that
+ * changes a single property while the JVM has many system properties. Run
+ * it with {@code mvn test-compile exec:java
+ * -Dexec.mainClass=org.junit.contrib.java.lang.system.RestoreSystemPropertiesBenchmark
+ * -Dexec.classpathScope=test}.
+ */
+public class RestoreSystemPropertiesBenchmark {
+	private static final int NUMBER_OF_PROPERTIES = 100000;
+	private static final int WARM_UP_ITERATIONS = 1000;
+	private static final int ITERATIONS = 10000;
+
+	public static void main(String... args) throws Throwable {
+		Properties originalProperties = getProperties();
+		Properties largeProperties = new Properties();
+		largeProperties.putAll(originalProperties);
+		for (int i = 0; i < NUMBER_OF_PROPERTIES; ++i)
+			largeProperties.setProperty("benchmark.property." + i, "value " + i);
+		setProperties(largeProperties);
+		try {
+			Statement test = new Statement() {
+				@Override
+				public void evaluate() {
+					System.setProperty("benchmark.property.0", "changed");
+				}
+			};
+			Statement statement = new RestoreSystemProperties().apply(
+				test, Description.EMPTY);
+			for (int i = 0; i < WARM_UP_ITERATIONS; ++i)
+				statement.evaluate();
+			long start = nanoTime();
+			for (int i = 0; i < ITERATIONS; ++i)
+				statement.evaluate();
+			long nanosPerTest = (nanoTime() - start) / ITERATIONS;
+			System.out.println("RestoreSystemProperties with "
+				+ largeProperties.size() + " properties: " + nanosPerTest
+				+ " ns per test");
+		} finally {
+			setProperties(originalProperties);
+		}
+	}
+}
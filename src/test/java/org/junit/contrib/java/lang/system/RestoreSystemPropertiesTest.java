@@ -5,13 +5,17 @@ import static java.lang.System.getProperties;
 import static java.lang.System.getProperty;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.contrib.java.lang.system.Executor.propertySeenByOtherThreadDuringTest;
 
 import org.junit.After;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 import org.junit.runners.model.Statement;
 
+import java.io.StringReader;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
 
 public class RestoreSystemPropertiesTest {
 	//ensure that every test uses the same property, because this one is restored after the test
@@ -56,6 +60,55 @@ public class RestoreSystemPropertiesTest {
 		);
 	}
 
+	@Test
+	public void after_test_system_properties_are_the_same_object_as_before() {
+		Properties originalProperties = getProperties();
+		executeTestWithRule(
+			Statements.setProperty(PROPERTY_KEY, "another value"),
+			rule);
+		assertThat(getProperties()).isSameAs(originalProperties);
+	}
+
+	@Test
+	public void property_that_is_removed_by_the_test_exists_after_the_test() {
+		System.setProperty(PROPERTY_KEY, "dummy value");
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				getProperties().keySet().remove(PROPERTY_KEY);
+			}
+		}, rule);
+		assertThat(getProperty(PROPERTY_KEY)).isEqualTo("dummy value");
+	}
+
+	@Test
+	public void property_that_is_changed_by_an_entry_is_restored() {
+		System.setProperty(PROPERTY_KEY, "dummy value");
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				for (Map.Entry<Object, Object> entry: getProperties().entrySet())
+					if (entry.getKey().equals(PROPERTY_KEY))
+						entry.setValue("another value");
+				assertThat(getProperty(PROPERTY_KEY)).isEqualTo("another value");
+			}
+		}, rule);
+		assertThat(getProperty(PROPERTY_KEY)).isEqualTo("dummy value");
+	}
+
+	@Test
+	public void property_that_is_loaded_by_the_test_is_restored() {
+		clearProperty(PROPERTY_KEY);
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				getProperties().load(new StringReader("dummy\\ property=value"));
+				assertThat(getProperty(PROPERTY_KEY)).isEqualTo("value");
+			}
+		}, rule);
+		assertThat(getProperty(PROPERTY_KEY)).isNull();
+	}
+
 	private Statement assertPropertiesAreEqualTo(
 			final Properties expectedProperties) {
 		return new Statement() {
@@ -65,4 +118,64 @@ public class RestoreSystemPropertiesTest {
 			}
 		};
 	}
+
+	@Test
+	public void changes_of_isolated_test_are_not_visible_to_other_threads() throws Throwable {
+		System.setProperty(PROPERTY_KEY, "dummy value");
+		String valueOfOtherThread = propertySeenByOtherThreadDuringTest(
+			PROPERTY_KEY,
+			Statements.setProperty(PROPERTY_KEY, "another value"),
+			new RestoreSystemProperties().isolatedPerThread());
+		assertThat(valueOfOtherThread).isEqualTo("dummy value");
+		assertThat(getProperty(PROPERTY_KEY)).isEqualTo("dummy value");
+	}
+
+	@Test
+	public void threads_created_by_isolated_test_see_its_changes() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				System.setProperty(PROPERTY_KEY, "another value");
+				final String[] value = new String[1];
+				Thread thread = new Thread() {
+					@Override
+					public void run() {
+						value[0] = getProperty(PROPERTY_KEY);
+					}
+				};
+				thread.start();
+				thread.join();
+				assertThat(value[0]).isEqualTo("another value");
+			}
+		}, new RestoreSystemProperties().isolatedPerThread());
+	}
+
+	@Test
+	public void threads_that_outlive_isolated_test_see_shared_properties_after_the_test() throws Exception {
+		System.setProperty(PROPERTY_KEY, "dummy value");
+		final CountDownLatch testFinished = new CountDownLatch(1);
+		final String[] value = new String[1];
+		final Thread[] thread = new Thread[1];
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				System.setProperty(PROPERTY_KEY, "another value");
+				thread[0] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							testFinished.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						value[0] = getProperty(PROPERTY_KEY);
+					}
+				};
+				thread[0].start();
+			}
+		}, new RestoreSystemProperties().isolatedPerThread());
+		testFinished.countDown();
+		thread[0].join();
+		assertThat(value[0]).isEqualTo("dummy value");
+	}
 }
@@ -0,0 +1,116 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getProperties;
+import static java.lang.System.getProperty;
+import static java.lang.System.getenv;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
+import static org.junit.rules.RuleChain.outerRule;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemAccessRecorder.Read;
+import org.junit.runners.model.Statement;
+
+public class SystemAccessRecorderTest {
+	private final SystemAccessRecorder recorder = new SystemAccessRecorder();
+
+	@Test
+	public void reads_of_system_properties_are_counted() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				getProperty("first property");
+				getProperty("second property", "default value");
+				getProperty("second property");
+			}
+		}, recorder);
+		List<Read> reads = recorder.getReadSystemProperties();
+		assertThat(reads).hasSize(2);
+		assertThat(reads.get(0).getName()).isEqualTo("second property");
+		assertThat(reads.get(0).getCount()).isEqualTo(2);
+		assertThat(reads.get(1).getName()).isEqualTo("first property");
+		assertThat(reads.get(1).getCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void reads_of_environment_variables_are_counted() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				getenv("ARBITRARY_VARIABLE");
+				getenv().get("ARBITRARY_VARIABLE");
+				getenv().containsKey("ARBITRARY_VARIABLE");
+			}
+		}, recorder);
+		List<Read> reads = recorder.getReadEnvironmentVariables();
+		assertThat(reads).hasSize(1);
+		assertThat(reads.get(0).getName()).isEqualTo("ARBITRARY_VARIABLE");
+		assertThat(reads.get(0).getCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void first_caller_is_the_frame_outside_of_the_jdk() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				Boolean.getBoolean("arbitrary property");
+			}
+		}, recorder);
+		StackTraceElement caller
+			= recorder.getReadSystemProperties().get(0).getFirstCaller();
+		assertThat(caller.getClassName()).startsWith(
+			SystemAccessRecorderTest.class.getName());
+		assertThat(caller.getMethodName()).isEqualTo("evaluate");
+	}
+
+	@Test
+	public void report_contains_reads() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				getProperty("arbitrary property");
+			}
+		}, recorder);
+		assertThat(recorder.getReport())
+			.startsWith("System properties:\n  arbitrary property 1 (first read by "
+				+ SystemAccessRecorderTest.class.getName())
+			.endsWith(")\nEnvironment variables:\n");
+	}
+
+	@Test
+	public void system_properties_and_environment_are_the_same_after_the_test() {
+		Properties originalProperties = getProperties();
+		Map<String, String> originalVariables
+			= new HashMap<String, String>(getenv());
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+			}
+		}, recorder);
+		assertThat(getProperties()).isSameAs(originalProperties);
+		assertThat(getenv()).isEqualTo(originalVariables);
+		getProperty("arbitrary property");
+		getenv("ARBITRARY_VARIABLE");
+		assertThat(recorder.getReadSystemProperties()).isEmpty();
+		assertThat(recorder.getReadEnvironmentVariables()).isEmpty();
+	}
+
+	@Test
+	public void environment_variables_can_be_set_while_recording() {
+		final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				environmentVariables.set("ARBITRARY_VARIABLE", "arbitrary value");
+				assertThat(getenv("ARBITRARY_VARIABLE"))
+					.isEqualTo("arbitrary value");
+			}
+		}, outerRule(environmentVariables).around(recorder));
+		assertThat(getenv("ARBITRARY_VARIABLE")).isNull();
+	}
+}
@@ -9,13 +9,16 @@ import static org.junit.Assert.fail;
 import static org.junit.contrib.java.lang.system.Executor.executeFailingTestWithRule;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
 import static org.junit.contrib.java.lang.system.Statements.writeTextToSystemErr;
+import static org.junit.rules.RuleChain.outerRule;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.internal.HeadAndTailLog;
 import org.junit.rules.TestRule;
 import org.junit.runners.model.Statement;
 
@@ -97,6 +100,59 @@ public class SystemErrRuleTest {
 		assertThat(systemErr.toString()).isEqualTo("arbitrary text");
 	}
 
+	@Test
+	public void only_first_and_last_lines_are_written_to_system_err_for_failing_test_if_muted_for_successful_tests_with_limits() {
+		setProperty("line.separator", "\n");
+		ByteArrayOutputStream systemErr = useReadableSystemErr();
+		SystemErrRule rule = new SystemErrRule().muteForSuccessfulTests(2, 1);
+		executeFailingTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				err.print("first\nsecond\nthird\nfourth\nfifth\nlast");
+				fail();
+			}
+		}, rule);
+		assertThat(systemErr.toString()).isEqualTo(
+			"first\nsecond\n... 2 lines / 13 bytes omitted ...\nfifth\nlast");
+	}
+
+	@Test
+	public void long_lines_are_truncated_for_failing_test_if_muted_for_successful_tests_with_limits() {
+		ByteArrayOutputStream systemErr = useReadableSystemErr();
+		SystemErrRule rule = new SystemErrRule().muteForSuccessfulTests(1, 1);
+		final String longLine = lineOfLength(HeadAndTailLog.DEFAULT_MAX_LINE_LENGTH);
+		executeFailingTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				err.print(longLine + "abc\n" + longLine + "de");
+				fail();
+			}
+		}, rule);
+		assertThat(systemErr.toString()).isEqualTo(
+			longLine + " ... 3 bytes truncated ...\n"
+				+ longLine + " ... 2 bytes truncated ...");
+	}
+
+	private String lineOfLength(int length) {
+		char[] line = new char[length];
+		Arrays.fill(line, 'x');
+		return new String(line);
+	}
+
+	@Test
+	public void all_lines_are_written_to_system_err_for_failing_test_if_limits_are_not_exceeded() {
+		ByteArrayOutputStream systemErr = useReadableSystemErr();
+		SystemErrRule rule = new SystemErrRule().muteForSuccessfulTests(1, 1);
+		executeFailingTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				err.print("first\nsecond\n");
+				fail();
+			}
+		}, rule);
+		assertThat(systemErr.toString()).isEqualTo("first\nsecond\n");
+	}
+
 	@Test
 	public void no_text_is_written_to_system_err_for_successful_test_if_muted_locally_for_successful_tests() {
 		ByteArrayOutputStream systemErr = useReadableSystemErr();
@@ -186,6 +242,38 @@ public class SystemErrRuleTest {
 			.isEqualTo("arbitrary\ntext\n");
 	}
 
+	@Test
+	public void nested_rule_writes_to_log_of_enclosing_rule() {
+		ByteArrayOutputStream systemErr = useReadableSystemErr();
+		SystemErrRule outerRule = new SystemErrRule().enableLog().mute();
+		SystemErrRule innerRule = new SystemErrRule().enableLog();
+		executeTestWithRule(writeTextToSystemErr("arbitrary text"),
+			outerRule(outerRule).around(innerRule));
+		assertThat(innerRule.getLog()).isEqualTo("arbitrary text");
+		assertThat(outerRule.getLog()).isEqualTo("arbitrary text");
+		assertThat(systemErr.toString()).isEmpty();
+	}
+
+	@Test
+	public void rule_captures_text_if_system_err_has_been_replaced_after_enclosing_rule_started() {
+		ByteArrayOutputStream replacement = new ByteArrayOutputStream();
+		final PrintStream replacementStream = new PrintStream(replacement);
+		final SystemErrRule innerRule = new SystemErrRule().enableLog();
+		final PrintStream[] streamAfterInnerRule = new PrintStream[1];
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				setErr(replacementStream);
+				innerRule.apply(writeTextToSystemErr("arbitrary text"), null)
+					.evaluate();
+				streamAfterInnerRule[0] = err;
+			}
+		}, new SystemErrRule());
+		assertThat(innerRule.getLog()).isEqualTo("arbitrary text");
+		assertThat(replacement.toString()).isEqualTo("arbitrary text");
+		assertThat(streamAfterInnerRule[0]).isSameAs(replacementStream);
+	}
+
 	private ByteArrayOutputStream useReadableSystemErr() {
 		ByteArrayOutputStream readableStream = new ByteArrayOutputStream();
 		setErr(new PrintStream(readableStream));
@@ -0,0 +1,154 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.getProperty;
+import static java.lang.System.getenv;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.runner.JUnitCore.runClasses;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemMatrix.Dimension;
+import org.junit.contrib.java.lang.system.SystemMatrix.Parallel;
+import org.junit.contrib.java.lang.system.SystemMatrix.Properties;
+import org.junit.contrib.java.lang.system.SystemMatrix.Variables;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
+
+public class SystemMatrixTest {
+	private static final List<String> OBSERVED_VALUES
+		= Collections.synchronizedList(new ArrayList<String>());
+
+	@Test
+	public void test_is_run_for_every_combination() {
+		OBSERVED_VALUES.clear();
+		Result result = runClasses(TestWithMatrix.class);
+		assertThat(result.getRunCount()).isEqualTo(4);
+		assertThat(OBSERVED_VALUES).containsOnly(
+			"a x", "a y", "b x", "b y");
+	}
+
+	@Test
+	public void before_class_sees_the_combination() {
+		OBSERVED_VALUES.clear();
+		runClasses(TestWithBeforeClass.class);
+		assertThat(OBSERVED_VALUES).containsExactly("a", "a", "b", "b");
+	}
+
+	@Test
+	public void name_of_test_contains_the_combination() {
+		Description description = Request.aClass(TestWithMatrix.class)
+			.getRunner().getDescription();
+		Description firstCombination = description.getChildren().get(0);
+		assertThat(firstCombination.getDisplayName())
+			.isEqualTo("[systemMatrixMode=a, SYSTEM_MATRIX_ENV=x]");
+		assertThat(firstCombination.getChildren().get(0).getMethodName())
+			.isEqualTo("observe[systemMatrixMode=a, SYSTEM_MATRIX_ENV=x]");
+	}
+
+	@Test
+	public void properties_and_variables_are_restored_after_the_run() {
+		runClasses(TestWithMatrix.class);
+		assertThat(getProperty("systemMatrixMode")).isNull();
+		assertThat(getenv("SYSTEM_MATRIX_ENV")).isNull();
+	}
+
+	@Test
+	public void combinations_run_in_parallel_with_own_properties() {
+		OBSERVED_VALUES.clear();
+		Result result = runClasses(ParallelTestWithMatrix.class);
+		assertThat(result.getFailures()).isEmpty();
+		assertThat(result.getRunCount()).isEqualTo(8);
+		assertThat(getProperty("systemMatrixMode")).isNull();
+	}
+
+	@Test
+	public void combinations_run_in_parallel_with_own_variables() {
+		Result result = runClasses(ParallelTestWithVariables.class);
+		assertThat(result.getFailures()).isEmpty();
+		assertThat(result.getRunCount()).isEqualTo(8);
+		assertThat(getenv("SYSTEM_MATRIX_ENV")).isNull();
+	}
+
+	@Test(expected = StoppedByUserException.class)
+	public void parallel_run_is_stopped_if_it_has_been_stopped_by_the_user() throws Exception {
+		RunNotifier notifier = new RunNotifier();
+		notifier.pleaseStop();
+		new SystemMatrix(ParallelTestWithMatrix.class).run(notifier);
+	}
+
+	@RunWith(SystemMatrix.class)
+	@Properties(@Dimension(name = "systemMatrixMode", values = {"a", "b"}))
+	@Variables(@Dimension(name = "SYSTEM_MATRIX_ENV", values = {"x", "y"}))
+	public static class TestWithMatrix {
+		@Test
+		public void observe() {
+			OBSERVED_VALUES.add(getProperty("systemMatrixMode") + " "
+				+ getenv("SYSTEM_MATRIX_ENV"));
+		}
+	}
+
+	@RunWith(SystemMatrix.class)
+	@Properties(@Dimension(name = "systemMatrixMode", values = {"a", "b"}))
+	public static class TestWithBeforeClass {
+		@BeforeClass
+		public static void observeBeforeClass() {
+			OBSERVED_VALUES.add(getProperty("systemMatrixMode"));
+		}
+
+		@Test
+		public void observe() {
+			OBSERVED_VALUES.add(getProperty("systemMatrixMode"));
+		}
+	}
+
+	@RunWith(SystemMatrix.class)
+	@Properties(@Dimension(name = "systemMatrixMode", values = {"a", "b", "c", "d"}))
+	@Parallel(threads = 4)
+	public static class ParallelTestWithMatrix {
+		@Test
+		public void first() throws Exception {
+			assertPropertyIsStable();
+		}
+
+		@Test
+		public void second() throws Exception {
+			assertPropertyIsStable();
+		}
+
+		private void assertPropertyIsStable() throws Exception {
+			String value = getProperty("systemMatrixMode");
+			Thread.sleep(20);
+			assertThat(getProperty("systemMatrixMode")).isEqualTo(value);
+		}
+	}
+
+	@RunWith(SystemMatrix.class)
+	@Variables(@Dimension(name = "SYSTEM_MATRIX_ENV", values = {"a", "b", "c", "d"}))
+	@Parallel(threads = 4)
+	public static class ParallelTestWithVariables {
+		@Test
+		public void first() throws Exception {
+			assertVariableIsStable();
+		}
+
+		@Test
+		public void second() throws Exception {
+			assertVariableIsStable();
+		}
+
+		private void assertVariableIsStable() throws Exception {
+			String value = getenv("SYSTEM_MATRIX_ENV");
+			assertThat(value).isNotNull();
+			Thread.sleep(20);
+			assertThat(getenv("SYSTEM_MATRIX_ENV")).isEqualTo(value);
+		}
+	}
+}
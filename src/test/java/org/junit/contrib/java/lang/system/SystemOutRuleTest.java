@@ -7,13 +7,16 @@ import static org.junit.Assert.fail;
 import static org.junit.contrib.java.lang.system.Executor.executeFailingTestWithRule;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
 import static org.junit.contrib.java.lang.system.Statements.writeTextToSystemOut;
+import static org.junit.rules.RuleChain.outerRule;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.internal.HeadAndTailLog;
 import org.junit.rules.TestRule;
 import org.junit.runners.model.Statement;
 
@@ -95,6 +98,59 @@ public class SystemOutRuleTest {
 		assertThat(systemOut.toString()).isEqualTo("arbitrary text");
 	}
 
+	@Test
+	public void only_first_and_last_lines_are_written_to_system_out_for_failing_test_if_muted_for_successful_tests_with_limits() {
+		setProperty("line.separator", "\n");
+		ByteArrayOutputStream systemOut = useReadableSystemOut();
+		SystemOutRule rule = new SystemOutRule().muteForSuccessfulTests(2, 1);
+		executeFailingTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				out.print("first\nsecond\nthird\nfourth\nfifth\nlast");
+				fail();
+			}
+		}, rule);
+		assertThat(systemOut.toString()).isEqualTo(
+			"first\nsecond\n... 2 lines / 13 bytes omitted ...\nfifth\nlast");
+	}
+
+	@Test
+	public void long_lines_are_truncated_for_failing_test_if_muted_for_successful_tests_with_limits() {
+		ByteArrayOutputStream systemOut = useReadableSystemOut();
+		SystemOutRule rule = new SystemOutRule().muteForSuccessfulTests(1, 1);
+		final String longLine = lineOfLength(HeadAndTailLog.DEFAULT_MAX_LINE_LENGTH);
+		executeFailingTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				out.print(longLine + "abc\n" + longLine + "de");
+				fail();
+			}
+		}, rule);
+		assertThat(systemOut.toString()).isEqualTo(
+			longLine + " ... 3 bytes truncated ...\n"
+				+ longLine + " ... 2 bytes truncated ...");
+	}
+
+	private String lineOfLength(int length) {
+		char[] line = new char[length];
+		Arrays.fill(line, 'x');
+		return new String(line);
+	}
+
+	@Test
+	public void all_lines_are_written_to_system_out_for_failing_test_if_limits_are_not_exceeded() {
+		ByteArrayOutputStream systemOut = useReadableSystemOut();
+		SystemOutRule rule = new SystemOutRule().muteForSuccessfulTests(1, 1);
+		executeFailingTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				out.print("first\nsecond\n");
+				fail();
+			}
+		}, rule);
+		assertThat(systemOut.toString()).isEqualTo("first\nsecond\n");
+	}
+
 	@Test
 	public void no_text_is_written_to_system_out_for_sucessful_test_if_muted_locally_for_successful_tests() {
 		ByteArrayOutputStream systemOut = useReadableSystemOut();
@@ -184,6 +240,38 @@ public class SystemOutRuleTest {
 			.isEqualTo("arbitrary\ntext\n");
 	}
 
+	@Test
+	public void nested_rule_writes_to_log_of_enclosing_rule() {
+		ByteArrayOutputStream systemOut = useReadableSystemOut();
+		SystemOutRule outerRule = new SystemOutRule().enableLog().mute();
+		SystemOutRule innerRule = new SystemOutRule().enableLog();
+		executeTestWithRule(writeTextToSystemOut("arbitrary text"),
+			outerRule(outerRule).around(innerRule));
+		assertThat(innerRule.getLog()).isEqualTo("arbitrary text");
+		assertThat(outerRule.getLog()).isEqualTo("arbitrary text");
+		assertThat(systemOut.toString()).isEmpty();
+	}
+
+	@Test
+	public void rule_captures_text_if_system_out_has_been_replaced_after_enclosing_rule_started() {
+		ByteArrayOutputStream replacement = new ByteArrayOutputStream();
+		final PrintStream replacementStream = new PrintStream(replacement);
+		final SystemOutRule innerRule = new SystemOutRule().enableLog();
+		final PrintStream[] streamAfterInnerRule = new PrintStream[1];
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				setOut(replacementStream);
+				innerRule.apply(writeTextToSystemOut("arbitrary text"), null)
+					.evaluate();
+				streamAfterInnerRule[0] = out;
+			}
+		}, new SystemOutRule());
+		assertThat(innerRule.getLog()).isEqualTo("arbitrary text");
+		assertThat(replacement.toString()).isEqualTo("arbitrary text");
+		assertThat(streamAfterInnerRule[0]).isSameAs(replacementStream);
+	}
+
 	private ByteArrayOutputStream useReadableSystemOut() {
 		ByteArrayOutputStream readableStream = new ByteArrayOutputStream();
 		setOut(new PrintStream(readableStream));
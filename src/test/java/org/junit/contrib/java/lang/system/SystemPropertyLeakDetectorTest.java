@@ -0,0 +1,114 @@
+package org.junit.contrib.java.lang.system;
+
+import static java.lang.System.clearProperty;
+import static java.lang.System.getProperties;
+import static java.lang.System.getProperty;
+import static java.lang.System.setProperty;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.runner.Description.createTestDescription;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+
+public class SystemPropertyLeakDetectorTest {
+	private static final Description FIRST_TEST
+		= createTestDescription(SystemPropertyLeakDetectorTest.class, "first");
+	private static final Description SECOND_TEST
+		= createTestDescription(SystemPropertyLeakDetectorTest.class, "second");
+
+	@Rule
+	public final RestoreSystemProperties restoreSystemProperties
+		= new RestoreSystemProperties();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void report_names_leaked_properties_and_responsible_test() throws Exception {
+		setProperty("changed property", "original value");
+		setProperty("removed property", "removed value");
+		File report = new File(folder.getRoot(), "leaks.txt");
+		SystemPropertyLeakDetector detector = new SystemPropertyLeakDetector(report);
+		detector.testRunStarted(null);
+		detector.testStarted(FIRST_TEST);
+		setProperty("added property", "added value");
+		setProperty("changed property", "new value");
+		clearProperty("removed property");
+		detector.testFinished(FIRST_TEST);
+		detector.testRunFinished(new Result());
+		assertThat(readFileToString(report, "UTF-8")).isEqualTo(
+			"first(org.junit.contrib.java.lang.system.SystemPropertyLeakDetectorTest)\n"
+			+ "  added added property=added value\n"
+			+ "  changed changed property=new value (was original value)\n"
+			+ "  removed removed property=removed value\n");
+	}
+
+	@Test
+	public void restored_properties_are_not_reported() throws Exception {
+		setProperty("arbitrary property", "original value");
+		File report = new File(folder.getRoot(), "leaks.txt");
+		SystemPropertyLeakDetector detector = new SystemPropertyLeakDetector(report);
+		detector.testRunStarted(null);
+		detector.testStarted(FIRST_TEST);
+		setProperty("arbitrary property", "new value");
+		setProperty("another property", "arbitrary value");
+		setProperty("arbitrary property", "original value");
+		clearProperty("another property");
+		detector.testFinished(FIRST_TEST);
+		detector.testRunFinished(new Result());
+		assertThat(readFileToString(report, "UTF-8")).isEmpty();
+	}
+
+	@Test
+	public void changes_outside_of_tests_are_attributed_to_next_test() throws Exception {
+		File report = new File(folder.getRoot(), "leaks.txt");
+		SystemPropertyLeakDetector detector = new SystemPropertyLeakDetector(report);
+		detector.testRunStarted(null);
+		detector.testStarted(FIRST_TEST);
+		detector.testFinished(FIRST_TEST);
+		setProperty("arbitrary property", "arbitrary value");
+		detector.testStarted(SECOND_TEST);
+		detector.testFinished(SECOND_TEST);
+		detector.testRunFinished(new Result());
+		assertThat(readFileToString(report, "UTF-8")).isEqualTo(
+			"second(org.junit.contrib.java.lang.system.SystemPropertyLeakDetectorTest)"
+			+ " (before the test)\n"
+			+ "  added arbitrary property=arbitrary value\n");
+	}
+
+	@Test
+	public void leaks_of_replaced_properties_are_detected() throws Exception {
+		File report = new File(folder.getRoot(), "leaks.txt");
+		SystemPropertyLeakDetector detector = new SystemPropertyLeakDetector(report);
+		detector.testRunStarted(null);
+		detector.testStarted(FIRST_TEST);
+		Properties replacement = new Properties();
+		replacement.putAll(getProperties());
+		replacement.setProperty("arbitrary property", "arbitrary value");
+		System.setProperties(replacement);
+		detector.testFinished(FIRST_TEST);
+		detector.testRunFinished(new Result());
+		assertThat(readFileToString(report, "UTF-8")).isEqualTo(
+			"first(org.junit.contrib.java.lang.system.SystemPropertyLeakDetectorTest)\n"
+			+ "  added arbitrary property=arbitrary value\n");
+	}
+
+	@Test
+	public void original_properties_are_used_after_the_run() throws Exception {
+		Properties originalProperties = getProperties();
+		SystemPropertyLeakDetector detector = new SystemPropertyLeakDetector(
+			new File(folder.getRoot(), "leaks.txt"));
+		detector.testRunStarted(null);
+		setProperty("arbitrary property", "arbitrary value");
+		detector.testRunFinished(new Result());
+		assertThat(getProperties()).isSameAs(originalProperties);
+		assertThat(getProperty("arbitrary property")).isEqualTo("arbitrary value");
+	}
+}
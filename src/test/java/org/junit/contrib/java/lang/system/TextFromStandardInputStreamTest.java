@@ -3,19 +3,32 @@ package org.junit.contrib.java.lang.system;
 import static com.github.stefanbirkner.fishbowl.Fishbowl.exceptionThrownBy;
 import static java.lang.System.getProperty;
 import static java.lang.System.in;
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.contrib.java.lang.system.Executor.exceptionThrownWhenTestIsExecutedWithRule;
 import static org.junit.contrib.java.lang.system.Executor.executeTestWithRule;
 import static org.junit.contrib.java.lang.system.Statements.SUCCESSFUL_TEST;
 import static org.junit.contrib.java.lang.system.TextFromStandardInputStream.emptyStandardInputStream;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.Timeout;
 import org.junit.runners.model.Statement;
 
@@ -23,6 +36,7 @@ public class TextFromStandardInputStreamTest {
 	private static final byte[] DUMMY_ARRAY = new byte[1024];
 	private static final int VALID_OFFSET = 2;
 	private static final int VALID_READ_LENGTH = 100;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
 	private static final IOException DUMMY_IO_EXCEPTION = new IOException();
 	private static final RuntimeException DUMMY_RUNTIME_EXCEPTION = new RuntimeException();
 	private static final com.github.stefanbirkner.fishbowl.Statement READ_NEXT_BYTE
@@ -35,6 +49,9 @@ public class TextFromStandardInputStreamTest {
 	@Rule
 	public final Timeout timeout = new Timeout(1000);
 
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
 	private final TextFromStandardInputStream systemInMock = emptyStandardInputStream();
 
 	@BeforeClass
@@ -113,6 +130,514 @@ public class TextFromStandardInputStreamTest {
 		}, systemInMock);
 	}
 
+	@Test
+	public void non_ASCII_text_is_available_from_system_in_with_specified_charset() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.useCharset(UTF_8).provideText("\u00e4\u20ac\u4e2d");
+				BufferedReader reader = new BufferedReader(
+					new InputStreamReader(in, UTF_8));
+				assertThat(reader.readLine()).isEqualTo("\u00e4\u20ac\u4e2d");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_reads_a_single_line_by_default() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideLines("first line", "second line");
+				byte[] buffer = new byte[1024];
+				int numBytesRead = in.read(buffer);
+				assertThat(new String(buffer, 0, numBytesRead))
+					.isEqualTo("first line" + getProperty("line.separator"));
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_reads_multiple_lines_if_line_by_line_reading_is_disabled() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.disableLineByLineReading();
+				systemInMock.provideLines("first line", "second line");
+				byte[] buffer = new byte[1024];
+				int numBytesRead = in.read(buffer);
+				String lineSeparator = getProperty("line.separator");
+				assertThat(new String(buffer, 0, numBytesRead))
+					.isEqualTo("first line" + lineSeparator
+						+ "second line" + lineSeparator);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_provides_number_of_available_bytes() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideText("arbitrary text");
+				in.read();
+				assertThat(in.available()).isEqualTo(13);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_skips_bytes() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideText("arbitrary text");
+				long numBytesSkipped = in.skip(10);
+				assertThat(numBytesSkipped).isEqualTo(10);
+				assertSystemInProvidesText("text");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_can_be_reset_to_mark() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideText("arbitrary text");
+				in.skip(10);
+				assertThat(in.markSupported()).isTrue();
+				in.mark(100);
+				in.read();
+				in.reset();
+				assertSystemInProvidesText("text");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void lines_of_iterator_are_available_from_system_in() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				systemInMock.provideLines(
+					asList("first text", "second text").iterator());
+				Scanner firstScanner = new Scanner(in);
+				firstScanner.nextLine();
+				Scanner secondScanner = new Scanner(in);
+				String textFromSystemIn = secondScanner.nextLine();
+				assertThat(textFromSystemIn).isEqualTo("second text");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void lines_of_supplier_are_read_lazily_from_system_in() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				final int[] numberOfSuppliedLines = new int[1];
+				systemInMock.disableLineByLineReading();
+				systemInMock.provideLines(new LineSupplier() {
+					public String get() {
+						return (numberOfSuppliedLines[0] < 100000)
+							? "line " + numberOfSuppliedLines[0]++
+							: null;
+					}
+				});
+				BufferedReader reader = new BufferedReader(
+					new InputStreamReader(in));
+				assertThat(reader.readLine()).isEqualTo("line 0");
+				assertThat(numberOfSuppliedLines[0]).isLessThan(10000);
+				int numberOfLines = 1;
+				while (reader.readLine() != null)
+					++numberOfLines;
+				assertThat(numberOfLines).isEqualTo(100000);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_throws_requested_exception_after_lines_of_supplier() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideLines(asList("arbitrary text").iterator());
+				systemInMock.throwExceptionOnInputEnd(DUMMY_IO_EXCEPTION);
+				assertSystemInProvidesText(
+					"arbitrary text" + getProperty("line.separator"));
+				Throwable exception = exceptionThrownBy(READ_NEXT_BYTE);
+				assertThat(exception).isSameAs(DUMMY_IO_EXCEPTION);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void input_of_stream_is_available_from_system_in() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideInput(
+					new ByteArrayInputStream("arbitrary text".getBytes()));
+				assertSystemInProvidesText("arbitrary text");
+				assertThat(in.read()).isEqualTo(-1);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void provided_stream_is_closed_after_the_test() {
+		final boolean[] closed = new boolean[1];
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideInput(
+					new ByteArrayInputStream(new byte[0]) {
+						@Override
+						public void close() {
+							closed[0] = true;
+						}
+					});
+			}
+		}, systemInMock);
+		assertThat(closed[0]).isTrue();
+	}
+
+	@Test
+	public void bytes_of_array_are_available_from_system_in() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideBytes(new byte[] { 0, (byte) 0xff, 10 });
+				assertThat(in.read()).isEqualTo(0);
+				assertThat(in.read()).isEqualTo(0xff);
+				assertThat(in.read()).isEqualTo(10);
+				assertThat(in.read()).isEqualTo(-1);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void bytes_of_buffer_are_available_from_system_in_without_changing_buffer() {
+		final ByteBuffer buffer = ByteBuffer.wrap("arbitrary text".getBytes());
+		buffer.position(10);
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideBytes(buffer);
+				assertSystemInProvidesText("text");
+				assertThat(in.read()).isEqualTo(-1);
+			}
+		}, systemInMock);
+		assertThat(buffer.position()).isEqualTo(10);
+	}
+
+	@Test
+	public void fixture_is_read_by_many_tests() {
+		final InputFixture fixture = InputFixture.ofLines("first line",
+			"second line");
+		for (int i = 0; i < 3; ++i)
+			executeTestWithRule(new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					systemInMock.provideInput(fixture);
+					Scanner firstScanner = new Scanner(in);
+					assertThat(firstScanner.nextLine()).isEqualTo("first line");
+					Scanner secondScanner = new Scanner(in);
+					assertThat(secondScanner.nextLine()).isEqualTo("second line");
+				}
+			}, systemInMock);
+	}
+
+	@Test
+	public void fixture_is_read_line_by_line_with_its_charset() {
+		final Charset utf16 = Charset.forName("UTF-16BE");
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideInput(
+					InputFixture.ofLines(utf16, "first line", "second line"));
+				BufferedReader reader = new BufferedReader(
+					new InputStreamReader(in, utf16));
+				assertThat(reader.readLine()).isEqualTo("first line");
+				BufferedReader secondReader = new BufferedReader(
+					new InputStreamReader(in, utf16));
+				assertThat(secondReader.readLine()).isEqualTo("second line");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void fixture_of_bytes_is_not_changed_by_modifying_the_array() {
+		byte[] bytes = "arbitrary text".getBytes();
+		final InputFixture fixture = InputFixture.ofBytes(bytes);
+		bytes[0] = 'A';
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideInput(fixture);
+				assertSystemInProvidesText("arbitrary text");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void bytes_of_file_are_available_from_system_in() throws Exception {
+		final File file = folder.newFile();
+		writeByteArrayToFile(file,
+			new byte[] { 'a', (byte) 0xc3, (byte) 0xa4, (byte) 0xff });
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideFile(file);
+				byte[] buffer = new byte[10];
+				assertThat(in.read(buffer)).isEqualTo(4);
+				assertThat(buffer[3]).isEqualTo((byte) 0xff);
+				assertThat(in.read()).isEqualTo(-1);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void lines_of_file_are_read_line_by_line_from_system_in() throws Exception {
+		final File file = folder.newFile();
+		String lineSeparator = getProperty("line.separator");
+		writeStringToFile(file, "first line" + lineSeparator
+			+ "second line" + lineSeparator);
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() {
+				systemInMock.provideFile(file);
+				Scanner firstScanner = new Scanner(in);
+				firstScanner.nextLine();
+				Scanner secondScanner = new Scanner(in);
+				assertThat(secondScanner.nextLine()).isEqualTo("second line");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void file_that_cannot_be_read_is_rejected() {
+		final File file = new File(folder.getRoot(), "missing-file");
+		Throwable exception = exceptionThrownWhenTestIsExecutedWithRule(
+			new Statement() {
+				@Override
+				public void evaluate() {
+					systemInMock.provideFile(file);
+				}
+			}, systemInMock);
+		assertThat(exception)
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Cannot provide file \"" + file
+				+ "\" because it cannot be read.");
+	}
+
+	@Test
+	public void lines_that_are_sent_are_read_by_another_thread() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				InteractiveInput input = systemInMock.provideInteractiveInput();
+				LineCollector collector = new LineCollector();
+				collector.start();
+				input.send("first line");
+				input.send("second line");
+				input.close();
+				collector.join();
+				assertThat(collector.lines)
+					.containsExactly("first line", "second line");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void many_lines_are_sent_through_a_small_buffer() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				InteractiveInput input = systemInMock.provideInteractiveInput(
+					16, 1000);
+				LineCollector collector = new LineCollector();
+				collector.start();
+				for (int i = 0; i < 1000; ++i)
+					input.send("line " + i);
+				input.close();
+				collector.join();
+				assertThat(collector.lines).hasSize(1000);
+				assertThat(collector.lines.get(999)).isEqualTo("line 999");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_reaches_end_after_interactive_input_is_closed() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				InteractiveInput input = systemInMock.provideInteractiveInput();
+				input.sendText("x");
+				input.close();
+				assertThat(in.read()).isEqualTo('x');
+				assertThat(in.read()).isEqualTo(-1);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void system_in_fails_if_no_text_is_sent_within_timeout() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.provideInteractiveInput(16, 10);
+				Throwable exception = exceptionThrownBy(READ_NEXT_BYTE);
+				assertThat(exception)
+					.isInstanceOf(InterruptedIOException.class)
+					.hasMessage("No input has been provided within 10 ms.");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void send_fails_if_system_in_is_not_read_within_timeout() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				final InteractiveInput input
+					= systemInMock.provideInteractiveInput(4, 10);
+				Throwable exception = exceptionThrownBy(
+					new com.github.stefanbirkner.fishbowl.Statement() {
+						public void evaluate() {
+							input.sendText("too long");
+						}
+					});
+				assertThat(exception)
+					.isInstanceOf(AssertionError.class)
+					.hasMessage("Cannot send \"too long\" to System.in. The"
+						+ " input has not been read for 10 ms and its buffer"
+						+ " is full.");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void text_cannot_be_sent_after_interactive_input_is_closed() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				final InteractiveInput input
+					= systemInMock.provideInteractiveInput();
+				input.close();
+				Throwable exception = exceptionThrownBy(
+					new com.github.stefanbirkner.fishbowl.Statement() {
+						public void evaluate() {
+							input.send("arbitrary line");
+						}
+					});
+				assertThat(exception).isInstanceOf(IllegalStateException.class);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void input_is_delivered_at_specified_rate() {
+		final VirtualInputClock clock = new VirtualInputClock();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.useClock(clock).deliverAtRate(10);
+				systemInMock.provideText("0123456789");
+				assertSystemInProvidesText("0123456789");
+				assertThat(clock.nanoTime()).isEqualTo(1000000000L);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void a_single_read_returns_the_bytes_of_100_ms_at_most() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.useClock(new VirtualInputClock())
+					.deliverAtRate(50);
+				systemInMock.provideText("arbitrary text");
+				assertThat(in.read(DUMMY_ARRAY)).isEqualTo(5);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void input_is_delivered_in_chunks_of_specified_size() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.disableLineByLineReading().deliverInChunksOf(3);
+				systemInMock.provideText("arbitrary text");
+				byte[] buffer = new byte[100];
+				assertThat(in.read(buffer)).isEqualTo(3);
+				assertThat(new String(buffer, 0, 3)).isEqualTo("arb");
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void each_line_is_delayed() {
+		final VirtualInputClock clock = new VirtualInputClock();
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.useClock(clock).delayEachLine(100);
+				systemInMock.provideLines("first line", "second line");
+				BufferedReader reader = new BufferedReader(
+					new InputStreamReader(in));
+				assertThat(reader.readLine()).isEqualTo("first line");
+				assertThat(clock.nanoTime()).isEqualTo(100000000L);
+				assertThat(reader.readLine()).isEqualTo("second line");
+				assertThat(reader.readLine()).isNull();
+				assertThat(clock.nanoTime()).isEqualTo(200000000L);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void lines_are_delayed_in_real_time_by_default() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.delayEachLine(50);
+				systemInMock.provideLines("arbitrary line");
+				long start = System.nanoTime();
+				in.read();
+				assertThat(System.nanoTime() - start)
+					.isGreaterThanOrEqualTo(50000000L);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void no_bytes_are_available_from_delayed_input() {
+		executeTestWithRule(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				systemInMock.deliverInChunksOf(1);
+				systemInMock.provideText("arbitrary text");
+				assertThat(in.available()).isEqualTo(0);
+			}
+		}, systemInMock);
+	}
+
+	@Test
+	public void rate_must_be_positive() {
+		Throwable exception = exceptionThrownBy(
+			new com.github.stefanbirkner.fishbowl.Statement() {
+				public void evaluate() {
+					systemInMock.deliverAtRate(0);
+				}
+			});
+		assertThat(exception)
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("The rate must be at least 1 byte per second.");
+	}
+
 	@Test
 	public void system_in_provides_specified_text_and_throws_requested_IOException_afterwards() {
 		executeTestWithRule(new Statement() {
@@ -312,4 +837,20 @@ public class TextFromStandardInputStreamTest {
 		for (char c : text.toCharArray())
 			assertThat((char) System.in.read()).isSameAs(c);
 	}
+
+	private static class LineCollector extends Thread {
+		final List<String> lines = new ArrayList<String>();
+
+		@Override
+		public void run() {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null)
+					lines.add(line);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
 }
@@ -0,0 +1,69 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class ByteBufferInputSourceTest {
+	private static final byte[] LINE_SEPARATOR = "\r\n".getBytes();
+
+	private final ByteBufferInputSource source = new ByteBufferInputSource(
+		ByteBuffer.wrap("first line\r\nsecond\r\nlast".getBytes()));
+
+	@Test
+	public void line_is_read_in_chunks_until_line_separator() {
+		assertThat(readLine(4)).isEqualTo("firs");
+		assertThat(readLine(4)).isEqualTo("t li");
+		assertThat(readLine(4)).isEqualTo("ne\r\n");
+		assertThat(readLine(4)).isEqualTo("seco");
+		assertThat(readLine(4)).isEqualTo("nd\r\n");
+		assertThat(readLine(4)).isEqualTo("last");
+	}
+
+	@Test
+	public void available_bytes_in_line_are_provided_while_line_is_read() {
+		readLine(4);
+		assertThat(source.availableInLine(LINE_SEPARATOR)).isEqualTo(8);
+		readLine(8);
+		assertThat(source.availableInLine(LINE_SEPARATOR)).isEqualTo(0);
+		source.read();
+		assertThat(source.availableInLine(LINE_SEPARATOR)).isEqualTo(7);
+	}
+
+	@Test
+	public void line_is_read_again_after_reset() {
+		source.mark(100);
+		readLine(100);
+		readLine(3);
+		source.reset();
+		assertThat(readLine(100)).isEqualTo("first line\r\n");
+	}
+
+	@Test
+	public void rest_of_line_separator_is_read_after_line_separator_has_been_read_partially() {
+		assertThat(readLine(11)).isEqualTo("first line\r");
+		assertThat(readLine(100)).isEqualTo("\n");
+		assertThat(readLine(100)).isEqualTo("second\r\n");
+	}
+
+	@Test
+	public void rest_of_line_separator_is_read_after_single_byte_has_been_read() {
+		readLine(10);
+		source.read();
+		assertThat(readLine(100)).isEqualTo("\n");
+	}
+
+	@Test
+	public void rest_of_line_separator_is_available_in_line_after_line_separator_has_been_read_partially() {
+		readLine(11);
+		assertThat(source.availableInLine(LINE_SEPARATOR)).isEqualTo(1);
+	}
+
+	private String readLine(int len) {
+		byte[] buffer = new byte[len];
+		int numBytesRead = source.readLine(buffer, 0, len, LINE_SEPARATOR);
+		return new String(buffer, 0, numBytesRead);
+	}
+}
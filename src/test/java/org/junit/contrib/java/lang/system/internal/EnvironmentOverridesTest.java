@@ -0,0 +1,60 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class EnvironmentOverridesTest {
+	private final Map<String, String> realEnvironment = new HashMap<String, String>();
+
+	@Test
+	public void names_are_case_sensitive_by_default() {
+		realEnvironment.put("Path", "real value");
+		EnvironmentOverrides overrides = new EnvironmentOverrides(
+			realEnvironment, false);
+		overrides.put("PATH", "another value");
+		assertThat(overrides.get("Path")).isEqualTo("real value");
+		assertThat(overrides.get("PATH")).isEqualTo("another value");
+	}
+
+	@Test
+	public void real_variable_is_read_case_insensitive_if_names_are_case_insensitive() {
+		realEnvironment.put("Path", "real value");
+		EnvironmentOverrides overrides = new EnvironmentOverrides(
+			realEnvironment, true);
+		assertThat(overrides.get("PATH")).isEqualTo("real value");
+	}
+
+	@Test
+	public void changed_variable_is_read_case_insensitive_if_names_are_case_insensitive() {
+		realEnvironment.put("Path", "real value");
+		EnvironmentOverrides overrides = new EnvironmentOverrides(
+			realEnvironment, true);
+		overrides.put("PATH", "another value");
+		assertThat(overrides.get("path")).isEqualTo("another value");
+		assertThat(overrides).hasSize(1);
+	}
+
+	@Test
+	public void removed_variable_is_removed_case_insensitive_if_names_are_case_insensitive() {
+		realEnvironment.put("Path", "real value");
+		EnvironmentOverrides overrides = new EnvironmentOverrides(
+			realEnvironment, true);
+		overrides.remove("PATH");
+		assertThat(overrides.get("Path")).isNull();
+		assertThat(overrides).isEmpty();
+	}
+
+	@Test
+	public void real_environment_is_not_modified() {
+		realEnvironment.put("Path", "real value");
+		EnvironmentOverrides overrides = new EnvironmentOverrides(
+			realEnvironment, true);
+		overrides.put("PATH", "another value");
+		assertThat(realEnvironment).containsOnlyKeys("Path")
+			.containsEntry("Path", "real value");
+	}
+}
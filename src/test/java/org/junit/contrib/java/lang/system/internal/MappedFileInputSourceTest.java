@@ -0,0 +1,140 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileInputSourceTest {
+	private static final byte[] LINE_SEPARATOR = "\n".getBytes();
+	private static final byte[] CRLF = "\r\n".getBytes();
+	private static final int SEGMENT_SIZE = 4;
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private MappedFileInputSource source;
+
+	@After
+	public void closeSource() throws IOException {
+		if (source != null)
+			source.close();
+	}
+
+	@Test
+	public void bytes_are_read_across_segments() throws Exception {
+		source = sourceWithText("arbitrary text");
+		byte[] buffer = new byte[100];
+		StringBuilder text = new StringBuilder();
+		int numBytesRead;
+		while ((numBytesRead = source.read(buffer, 0, buffer.length)) != -1)
+			text.append(new String(buffer, 0, numBytesRead));
+		assertThat(text.toString()).isEqualTo("arbitrary text");
+	}
+
+	@Test
+	public void single_bytes_are_read_across_segments() throws Exception {
+		source = sourceWithText("abcdef");
+		for (int i = 0; i < 4; ++i)
+			source.read();
+		assertThat(source.read()).isEqualTo('e');
+	}
+
+	@Test
+	public void available_bytes_include_following_segments() throws Exception {
+		source = sourceWithText("arbitrary text");
+		source.read();
+		assertThat(source.available()).isEqualTo(13);
+	}
+
+	@Test
+	public void lines_are_read_across_segments() throws Exception {
+		source = sourceWithText("first\nsecond\n");
+		assertThat(readLine()).isEqualTo("firs");
+		assertThat(readLine()).isEqualTo("t\n");
+		assertThat(readLine()).isEqualTo("se");
+	}
+
+	@Test
+	public void line_separator_is_found_across_segments() throws Exception {
+		source = sourceWithText("abc\r\ndef\r\n");
+		assertThat(readLine(CRLF)).isEqualTo("abc\r");
+		assertThat(readLine(CRLF)).isEqualTo("\n");
+	}
+
+	@Test
+	public void rest_of_line_separator_is_available_in_line_at_end_of_segment()
+			throws Exception {
+		source = sourceWithText("abc\r\ndef\r\n");
+		readLine(CRLF);
+		assertThat(source.availableInLine(CRLF)).isEqualTo(1);
+	}
+
+	@Test
+	public void bytes_are_skipped_within_segment() throws Exception {
+		source = sourceWithText("arbitrary text");
+		assertThat(source.skip(2)).isEqualTo(2);
+		assertThat(source.read()).isEqualTo('b');
+	}
+
+	@Test
+	public void bytes_are_skipped_across_segments() throws Exception {
+		source = sourceWithText("arbitrary text");
+		assertThat(source.skip(10)).isEqualTo(10);
+		assertThat(source.read()).isEqualTo('t');
+	}
+
+	@Test
+	public void skip_stops_at_end_of_file() throws Exception {
+		source = sourceWithText("text");
+		assertThat(source.skip(10)).isEqualTo(4);
+		assertThat(source.read()).isEqualTo(-1);
+	}
+
+	@Test
+	public void source_is_reset_to_mark_in_previous_segment() throws Exception {
+		source = sourceWithText("arbitrary text");
+		source.skip(2);
+		source.mark(100);
+		source.skip(8);
+		source.reset();
+		assertThat(source.read()).isEqualTo('b');
+	}
+
+	@Test
+	public void empty_file_has_no_bytes() throws Exception {
+		source = sourceWithText("");
+		assertThat(source.read()).isEqualTo(-1);
+	}
+
+	@Test(expected = IOException.class)
+	public void source_cannot_be_read_after_it_has_been_closed()
+			throws Exception {
+		source = sourceWithText("arbitrary text");
+		source.close();
+		source.read();
+	}
+
+	private MappedFileInputSource sourceWithText(String text) throws IOException {
+		File file = temporaryFolder.newFile();
+		writeStringToFile(file, text);
+		return new MappedFileInputSource(file, SEGMENT_SIZE);
+	}
+
+	private String readLine() throws IOException {
+		return readLine(LINE_SEPARATOR);
+	}
+
+	private String readLine(byte[] lineSeparator) throws IOException {
+		byte[] buffer = new byte[100];
+		int numBytesRead = source.readLine(buffer, 0, buffer.length,
+			lineSeparator);
+		return new String(buffer, 0, numBytesRead);
+	}
+}
@@ -9,6 +9,7 @@ import static org.mockito.Mockito.when;
 import java.io.FileDescriptor;
 import java.net.InetAddress;
 import java.security.Permission;
+import java.util.List;
 
 import com.github.stefanbirkner.fishbowl.Statement;
 import org.junit.Rule;
@@ -458,6 +459,17 @@ public class NoExitSecurityManagerTest {
 			.isEqualTo(DUMMY_STATUS);
 	}
 
+	@Test
+	public void all_calls_of_checkExit_are_recorded() {
+		safeCallCheckExitWithStatus(DUMMY_STATUS);
+		safeCallCheckExitWithStatus(DUMMY_STATUS + 1);
+		List<ExitCalls.Call> calls = managerWithOriginal.getExitCalls()
+			.getCalls();
+		assertThat(calls).hasSize(2);
+		assertThat(calls.get(1).getStatus()).isEqualTo(DUMMY_STATUS + 1);
+		assertThat(calls.get(1).getThread()).isSameAs(Thread.currentThread());
+	}
+
 	private void safeCallCheckExitWithStatus(int status) {
 		try {
 			managerWithOriginal.checkExit(status);
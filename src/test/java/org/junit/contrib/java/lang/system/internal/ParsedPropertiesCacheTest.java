@@ -0,0 +1,65 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static com.github.stefanbirkner.fishbowl.Fishbowl.exceptionThrownBy;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.contrib.java.lang.system.internal.ParsedPropertiesCache.propertiesOfFile;
+import static org.junit.contrib.java.lang.system.internal.ParsedPropertiesCache.propertiesOfResource;
+
+import java.io.File;
+import java.util.Map;
+
+import com.github.stefanbirkner.fishbowl.Statement;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParsedPropertiesCacheTest {
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void file_is_parsed_once() throws Exception {
+		File file = temporaryFolder.newFile();
+		writeStringToFile(file, "key=value");
+		Map<String, String> first = propertiesOfFile(file);
+		Map<String, String> second = propertiesOfFile(file);
+		assertThat(second).isSameAs(first).containsEntry("key", "value");
+	}
+
+	@Test
+	public void file_is_parsed_again_if_its_length_has_changed() throws Exception {
+		File file = temporaryFolder.newFile();
+		writeStringToFile(file, "key=value");
+		long lastModified = file.lastModified();
+		propertiesOfFile(file);
+		writeStringToFile(file, "key=other value");
+		file.setLastModified(lastModified);
+		assertThat(propertiesOfFile(file)).containsEntry("key", "other value");
+	}
+
+	@Test
+	public void resource_is_parsed_once() throws Exception {
+		Map<String, String> first = propertiesOfResource(
+			"/org/junit/contrib/java/lang/system/example.properties",
+			getClass());
+		Map<String, String> second = propertiesOfResource(
+			"/org/junit/contrib/java/lang/system/example.properties",
+			getClass());
+		assertThat(second).isSameAs(first)
+			.containsEntry("arbitrary property", "arbitrary value");
+	}
+
+	@Test
+	public void parsed_properties_cannot_be_modified() throws Exception {
+		File file = temporaryFolder.newFile();
+		writeStringToFile(file, "key=value");
+		final Map<String, String> properties = propertiesOfFile(file);
+		Throwable exception = exceptionThrownBy(new Statement() {
+			public void evaluate() throws Throwable {
+				properties.put("key", "other value");
+			}
+		});
+		assertThat(exception).isInstanceOf(UnsupportedOperationException.class);
+	}
+}
@@ -0,0 +1,59 @@
+package org.junit.contrib.java.lang.system.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class StreamInputSourceTest {
+	private static final byte[] LINE_SEPARATOR = "\r\n".getBytes();
+
+	private StreamInputSource source;
+
+	@Test
+	public void lines_are_read_including_line_separator() throws Exception {
+		source = sourceWithText("first\r\nsecond");
+		assertThat(readLine(100)).isEqualTo("first\r\n");
+		assertThat(readLine(100)).isEqualTo("second");
+		assertThat(source.readLine(new byte[100], 0, 100, LINE_SEPARATOR))
+			.isEqualTo(-1);
+	}
+
+	@Test
+	public void line_is_read_in_chunks() throws Exception {
+		source = sourceWithText("first\r\nsecond");
+		assertThat(readLine(4)).isEqualTo("firs");
+		assertThat(readLine(4)).isEqualTo("t\r\n");
+		assertThat(readLine(4)).isEqualTo("seco");
+	}
+
+	@Test
+	public void line_that_is_longer_than_buffer_is_read_completely() throws Exception {
+		char[] longLine = new char[20000];
+		Arrays.fill(longLine, 'x');
+		source = sourceWithText(new String(longLine) + "\r\nnext");
+		assertThat(readLine(30000)).isEqualTo(new String(longLine) + "\r\n");
+		assertThat(readLine(30000)).isEqualTo("next");
+	}
+
+	@Test
+	public void bytes_are_read_after_line() throws Exception {
+		source = sourceWithText("first\r\nsecond");
+		readLine(100);
+		assertThat(source.read()).isEqualTo('s');
+		assertThat(source.available()).isEqualTo(5);
+	}
+
+	private StreamInputSource sourceWithText(String text) {
+		return new StreamInputSource(new ByteArrayInputStream(text.getBytes()));
+	}
+
+	private String readLine(int len) throws IOException {
+		byte[] buffer = new byte[len];
+		int numBytesRead = source.readLine(buffer, 0, len, LINE_SEPARATOR);
+		return new String(buffer, 0, numBytesRead);
+	}
+}